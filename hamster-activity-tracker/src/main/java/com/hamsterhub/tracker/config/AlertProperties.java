@@ -0,0 +1,14 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tracker.alert")
+public record AlertProperties(
+        @DefaultValue("10000") int queueCapacity,
+        @DefaultValue("2000") long batchWindowMs,
+        @DefaultValue("5") int digestThreshold,
+        @DefaultValue("20") int digestMaxIds,
+        @DefaultValue("30") int maxMessagesPerMinute
+) {
+}
@@ -0,0 +1,12 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tracker.cleanup")
+public record CleanupProperties(
+        @DefaultValue("604800000") long lastSeenRetentionMs,
+        @DefaultValue("100000") int maxEntriesPerRun,
+        @DefaultValue("50") long maxMillisPerRun
+) {
+}
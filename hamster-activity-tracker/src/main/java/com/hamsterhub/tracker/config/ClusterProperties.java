@@ -0,0 +1,27 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "tracker.cluster")
+public record ClusterProperties(
+        @DefaultValue("false") boolean enabled,
+        // адрес этого узла, как он записан в peers
+        String self,
+        // все узлы кластера, включая этот; список должен совпадать на всех узлах
+        @DefaultValue List<String> peers,
+        @DefaultValue("128") int virtualNodes,
+        @DefaultValue("65536") int forwardQueueCapacity,
+        @DefaultValue("512") int forwardBatchSize,
+        @DefaultValue("2000") long requestTimeoutMs,
+        @DefaultValue("200") long retryBackoffMs
+) {
+    public ClusterProperties {
+        peers = peers == null ? List.of() : List.copyOf(peers);
+        if (enabled && (self == null || !peers.contains(self))) {
+            throw new IllegalArgumentException("tracker.cluster.self must be one of tracker.cluster.peers: " + self);
+        }
+    }
+}
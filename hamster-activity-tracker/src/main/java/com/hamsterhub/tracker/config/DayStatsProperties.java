@@ -0,0 +1,16 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tracker.day-stats")
+public record DayStatsProperties(
+        @DefaultValue("HEAP") Store store
+) {
+    public enum Store {
+        // ячейка (день, хомяк) — объект в куче с ConcurrentHashMap по id
+        HEAP,
+        // ячейки — слоты в direct ByteBuffer по плотному номеру хомяка, в куче только страницы
+        OFF_HEAP
+    }
+}
@@ -0,0 +1,22 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tracker.bus")
+public record EventBusProperties(
+        @DefaultValue("65536") int capacity,
+        @DefaultValue("REJECT") OverloadPolicy overloadPolicy,
+        @DefaultValue("503") int rejectStatus,
+        @DefaultValue("1") int retryAfterSeconds,
+        @DefaultValue("1000") long blockTimeoutMs
+) {
+    public enum OverloadPolicy {
+        // сразу отказываем (429/503 + Retry-After)
+        REJECT,
+        // выкидываем самый старый WheelSpin из очереди, Enter/Exit не трогаем
+        DROP_OLDEST_SPIN,
+        // держим вызывающего до blockTimeoutMs, потом отказ
+        BLOCK
+    }
+}
@@ -0,0 +1,20 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tracker.export")
+public record ExportProperties(
+        @DefaultValue("true") boolean incremental,
+        @DefaultValue("5000") long flushIntervalMs,
+        @DefaultValue("1000") int batchSize,
+        @DefaultValue("20") int maxBatchesPerFlush,
+        @DefaultValue("BATCH") Mode mode
+) {
+    public enum Mode {
+        // INSERT ... ON CONFLICT пачкой через JDBC batch
+        BATCH,
+        // бинарный COPY во временную таблицу и один INSERT ... SELECT ... ON CONFLICT (только PostgreSQL)
+        COPY
+    }
+}
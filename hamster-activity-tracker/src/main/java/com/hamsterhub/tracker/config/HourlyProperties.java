@@ -0,0 +1,24 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tracker.hourly")
+public record HourlyProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("60") int bucketMinutes
+) {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    // сутки должны делиться на корзины без остатка, иначе последняя корзина дня вышла бы короче
+    public HourlyProperties {
+        if (enabled && (bucketMinutes <= 0 || MINUTES_PER_DAY % bucketMinutes != 0)) {
+            throw new IllegalArgumentException("tracker.hourly.bucket-minutes must divide 1440: " + bucketMinutes);
+        }
+    }
+
+    // 0 — корзины не ведутся
+    public int effectiveBucketMinutes() {
+        return enabled ? bucketMinutes : 0;
+    }
+}
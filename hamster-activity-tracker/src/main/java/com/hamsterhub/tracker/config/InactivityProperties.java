@@ -0,0 +1,10 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tracker.inactivity")
+public record InactivityProperties(
+        @DefaultValue("1000") long tickMs
+) {
+}
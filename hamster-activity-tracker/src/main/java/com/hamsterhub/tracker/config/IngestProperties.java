@@ -0,0 +1,25 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tracker.ingest")
+public record IngestProperties(
+        @DefaultValue("256") int chunkSize,
+        // неполный чанк NDJSON-потока уходит в шину и подтверждается не позже чем через столько
+        @DefaultValue("1000") long chunkMaxDelayMs,
+        // id длиннее отвергаются при приёме; потолок — строка журнала: 32767 байт UTF-8, до 3 байт на символ
+        @DefaultValue("256") int maxIdLength
+) {
+    public static final int MAX_ID_LENGTH = 10_000;
+
+    public IngestProperties {
+        if (chunkMaxDelayMs <= 0) {
+            throw new IllegalArgumentException("tracker.ingest.chunk-max-delay-ms must be positive: " + chunkMaxDelayMs);
+        }
+        if (maxIdLength < 1 || maxIdLength > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException(
+                    "tracker.ingest.max-id-length must be between 1 and " + MAX_ID_LENGTH + ": " + maxIdLength);
+        }
+    }
+}
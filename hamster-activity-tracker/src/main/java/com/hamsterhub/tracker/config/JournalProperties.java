@@ -0,0 +1,13 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tracker.journal")
+public record JournalProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("data/journal") String dir,
+        @DefaultValue("64") int segmentSizeMb,
+        @DefaultValue("200") long syncIntervalMs
+) {
+}
@@ -0,0 +1,14 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tracker.partition")
+public record PartitionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("0 30 0 * * *") String cron,
+        @DefaultValue("2") int monthsAhead,
+        @DefaultValue("24") int retainMonths,
+        @DefaultValue("data/archive") String archiveDir
+) {
+}
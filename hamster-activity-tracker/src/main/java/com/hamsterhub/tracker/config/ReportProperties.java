@@ -0,0 +1,12 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tracker.report")
+public record ReportProperties(
+        @DefaultValue("2000000") long cacheMaxRows,
+        @DefaultValue("1000") int rangePageSize,
+        @DefaultValue("100") int leaderboardSize
+) {
+}
@@ -0,0 +1,14 @@
+package com.hamsterhub.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tracker.snapshot")
+public record SnapshotProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("data/snapshot") String dir,
+        @DefaultValue("60000") long intervalMs,
+        @DefaultValue("2") int retain,
+        @DefaultValue("1000") long pauseTimeoutMs
+) {
+}
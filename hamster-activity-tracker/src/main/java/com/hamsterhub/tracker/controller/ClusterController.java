@@ -0,0 +1,48 @@
+package com.hamsterhub.tracker.controller;
+
+import com.hamsterhub.tracker.engine.ClusterRing;
+import com.hamsterhub.tracker.model.EventWrapper;
+import com.hamsterhub.tracker.model.IngestResult;
+import com.hamsterhub.tracker.service.EventForwarder;
+import com.hamsterhub.tracker.service.EventService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+// внутренние вызовы между узлами кластера
+@RestController
+@RequestMapping("/cluster")
+public class ClusterController {
+
+    private final EventService eventService;
+    private final ClusterRing ring;
+
+    public ClusterController(EventService eventService, ClusterRing ring) {
+        this.eventService = eventService;
+        this.ring = ring;
+    }
+
+    // всегда 200: отправитель по счётчику accepted сам дошлёт остаток пачки, повтор принятого не применяется
+    @PostMapping(path = "/events", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<IngestResult> receiveForwarded(
+            @RequestHeader(name = EventForwarder.SENDER_HEADER, required = false) String sender,
+            @RequestHeader(name = EventForwarder.BATCH_HEADER, required = false) String batch,
+            @RequestBody List<EventWrapper> events) {
+        return eventService.processForwarded(sender, batch, events);
+    }
+
+    // какой узел владеет колесом — для клиентов, которые хотят слать события сразу владельцу
+    @GetMapping("/owner")
+    public Map<String, String> owner(@RequestParam("wheelId") String wheelId) {
+        return Map.of("wheelId", wheelId, "node", ring.node(ring.owner(wheelId)));
+    }
+}
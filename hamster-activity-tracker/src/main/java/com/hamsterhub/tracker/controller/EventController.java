@@ -1,27 +1,67 @@
 package com.hamsterhub.tracker.controller;
 
 
+import com.hamsterhub.tracker.config.EventBusProperties;
+import com.hamsterhub.tracker.model.IngestResult;
 import com.hamsterhub.tracker.service.EventService;
 import hamsterhub.common.events.HamsterEvent;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/events")
 public class EventController {
 
     private final EventService eventService;
+    private final EventBusProperties busProps;
 
-    public EventController(EventService eventService) {
+    public EventController(EventService eventService, EventBusProperties busProps) {
         this.eventService = eventService;
+        this.busProps = busProps;
     }
 
     @PostMapping
-    public Mono<Void> receiveEvent(
+    public Mono<ResponseEntity<Void>> receiveEvent(
             @RequestBody HamsterEvent event,
             @RequestHeader(name = "X-Sensor-Id", required = false) String sensorId
     ) {
-        return eventService.processEvent(event, sensorId);
+        return eventService.processEvent(event, sensorId)
+                .map(result -> respond(result, null));
+    }
+
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<IngestResult>> receiveBatch(
+            @RequestBody List<HamsterEvent> events,
+            @RequestHeader(name = "X-Sensor-Id", required = false) String sensorId
+    ) {
+        return eventService.processBatch(events, sensorId)
+                .map(result -> respond(result, result));
+    }
+
+    // статус уже отправлен к моменту перегрузки, поэтому отказы видны только в счётчиках чанков
+    @PostMapping(path = "/batch",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<IngestResult> receiveStream(
+            @RequestBody Flux<HamsterEvent> events,
+            @RequestHeader(name = "X-Sensor-Id", required = false) String sensorId
+    ) {
+        return eventService.processStream(events, sensorId);
+    }
+
+    private <T> ResponseEntity<T> respond(IngestResult result, T body) {
+        if (result.rejected() == 0) {
+            return ResponseEntity.ok(body);
+        }
+        return ResponseEntity.status(busProps.rejectStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(busProps.retryAfterSeconds()))
+                .body(body);
     }
 }
 
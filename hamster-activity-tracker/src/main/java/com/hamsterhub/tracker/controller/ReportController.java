@@ -1,30 +1,137 @@
 package com.hamsterhub.tracker.controller;
 
-import com.hamsterhub.tracker.engine.ReportGenerator;
-import com.hamsterhub.tracker.model.DailyReport;
+import com.hamsterhub.tracker.model.HamsterDayStats;
+import com.hamsterhub.tracker.model.HamsterHourlyStats;
+import com.hamsterhub.tracker.model.HamsterPeriodStats;
+import com.hamsterhub.tracker.service.ClusterReportService;
 import com.hamsterhub.tracker.service.DailyReportService;
+import com.hamsterhub.tracker.service.EncodedReport;
+import com.hamsterhub.tracker.service.RangeReportService;
+import com.hamsterhub.tracker.service.SummaryReportService;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/report")
 public class ReportController {
 
     private final DailyReportService dailyReportService;
+    private final RangeReportService rangeReportService;
+    private final SummaryReportService summaryReportService;
+    private final ClusterReportService clusterReportService;
 
-    public ReportController(DailyReportService dailyReportService) {
+    public ReportController(DailyReportService dailyReportService,
+                            RangeReportService rangeReportService,
+                            SummaryReportService summaryReportService,
+                            ClusterReportService clusterReportService) {
         this.dailyReportService = dailyReportService;
+        this.rangeReportService = rangeReportService;
+        this.summaryReportService = summaryReportService;
+        this.clusterReportService = clusterReportService;
     }
 
+    // тело уже закодировано: оборачиваем байты в DataBuffer без копирования.
+    // If-None-Match с совпавшим ETag обрабатывает сам WebFlux — ответ 304 без тела
     @GetMapping("/daily")
-    public Mono<DailyReport> daily(
-            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        return dailyReportService.findDaily(date);
+    public Mono<ResponseEntity<DataBuffer>> daily(
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(name = ClusterReportService.SCOPE_HEADER, required = false) String scope) {
+        Mono<EncodedReport> report = fanOut(scope)
+                ? clusterReportService.findDailyEncoded(date)
+                : dailyReportService.findDailyEncoded(date);
+        return report.map(encoded -> respond(encoded, encoded.gzip() != null && acceptsGzip(acceptEncoding)));
+    }
+
+    // n не больше tracker.report.leaderboard-size: столько хомяков дня держится в топе
+    @GetMapping("/leaderboard")
+    public Mono<List<HamsterDayStats>> leaderboard(
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "n", defaultValue = "10") int n,
+            @RequestHeader(name = ClusterReportService.SCOPE_HEADER, required = false) String scope) {
+        if (n < 1 || n > dailyReportService.leaderboardSize()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "n must be between 1 and " + dailyReportService.leaderboardSize());
+        }
+        return fanOut(scope) ? clusterReportService.leaderboard(date, n) : dailyReportService.leaderboard(date, n);
+    }
+
+    // активность за день по корзинам tracker.hourly.bucket-minutes; хомяки без вращений в ответ не попадают
+    @GetMapping("/hourly")
+    public Mono<List<HamsterHourlyStats>> hourly(
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "hamsterId", required = false) String hamsterId,
+            @RequestHeader(name = ClusterReportService.SCOPE_HEADER, required = false) String scope) {
+        return fanOut(scope) ? clusterReportService.hourly(date, hamsterId) : dailyReportService.hourly(date, hamsterId);
+    }
+
+    // строка на каждую пару (день, хомяк), NDJSON пишется по мере чтения страниц из БД
+    @GetMapping(path = "/range", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<HamsterDayStats> range(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "hamsterId", required = false) String hamsterId) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from is after to");
+        }
+        return rangeReportService.stream(from, to, hamsterId);
+    }
+
+    // итоги за период одной строкой на хомяка; читается из недельных и месячных свёрток, где они покрывают период
+    @GetMapping("/summary")
+    public Mono<List<HamsterPeriodStats>> summary(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "hamsterId", required = false) String hamsterId) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from is after to");
+        }
+        return summaryReportService.summary(from, to, hamsterId);
+    }
+
+    // в кластере отчёт дня собирается со всех узлов; сами узлы отвечают друг другу только своей частью
+    private boolean fanOut(String scope) {
+        return clusterReportService.enabled() && !ClusterReportService.SCOPE_LOCAL.equals(scope);
+    }
+
+    private static ResponseEntity<DataBuffer> respond(EncodedReport report, boolean gzipped) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(report.etag(gzipped))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzipped) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        byte[] body = gzipped ? report.gzip() : report.json();
+        return response.body(DefaultDataBufferFactory.sharedInstance.wrap(body));
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 }
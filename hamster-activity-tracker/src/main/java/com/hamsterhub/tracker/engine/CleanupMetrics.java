@@ -0,0 +1,28 @@
+package com.hamsterhub.tracker.engine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+@Component
+class CleanupMetrics implements MeterBinder {
+    private final CleanupTask cleanup;
+
+    CleanupMetrics(CleanupTask cleanup) {
+        this.cleanup = cleanup;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tracker.cleanup.evicted", cleanup, CleanupTask::evictedHamsters)
+                .tag("kind", "hamster-last-seen")
+                .register(registry);
+        FunctionCounter.builder("tracker.cleanup.evicted", cleanup, CleanupTask::evictedSensors)
+                .tag("kind", "sensor-last-seen")
+                .register(registry);
+        FunctionCounter.builder("tracker.cleanup.evicted", cleanup, CleanupTask::evictedDays)
+                .tag("kind", "day")
+                .register(registry);
+    }
+}
@@ -1,21 +1,171 @@
 package com.hamsterhub.tracker.engine;
 
+import com.hamsterhub.tracker.config.CleanupProperties;
 import com.hamsterhub.tracker.config.TrackerProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Инкрементальная уборка: за один запуск просматривает не больше maxEntriesPerRun записей и укладывается
+ * в maxMillisPerRun, а следующий запуск продолжает с того места, где остановился предыдущий.
+ * Шарды EventProcessor не останавливаются — отметки сбрасываются через CAS.
+ * Память освобождают только выгруженные дни; у списанного хомяка или датчика гасится отметка
+ * последнего события, а его номер в IdDictionary и страницы колонок остаются за ним.
+ */
 @Component
 class CleanupTask {
+    private static final Logger log = LoggerFactory.getLogger(CleanupTask.class);
+    private static final int CLOCK_CHECK_EVERY = 1024;
+
     private final TrackerState state;
+    private final DailyStatsExporter exporter;
     private final TrackerProperties props;
+    private final CleanupProperties cleanupProps;
+    private final ZoneId zone;
 
-    CleanupTask(TrackerState state, TrackerProperties props) {
+    private final Sweep hamsters;
+    private final Sweep sensors;
+    private final LongAdder evictedDays = new LongAdder();
+
+    CleanupTask(TrackerState state,
+                DailyStatsExporter exporter,
+                TrackerProperties props,
+                CleanupProperties cleanupProps,
+                ZoneId zone) {
         this.state = state;
+        this.exporter = exporter;
         this.props = props;
+        this.cleanupProps = cleanupProps;
+        this.zone = zone;
+        this.hamsters = new Sweep(state::hamsterCount, state::evictHamsterLastSeen);
+        this.sensors = new Sweep(state::sensorCount, state::evictSensorLastSeen);
     }
 
     @Scheduled(fixedRateString = "${tracker.cleanup-interval-ms}")
     public void cleanup() {
-        long retainMs = props.cleanupIntervalMs();
+        Budget budget = new Budget(
+                Math.max(1, cleanupProps.maxEntriesPerRun()),
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cleanupProps.maxMillisPerRun()));
+        long olderThanMs = System.currentTimeMillis() - cleanupProps.lastSeenRetentionMs();
+
+        int days = exportForgottenDays(budget);
+        int hamstersEvicted = hamsters.run(olderThanMs, budget);
+        int sensorsEvicted = sensors.run(olderThanMs, budget);
+
+        if (days + hamstersEvicted + sensorsEvicted > 0) {
+            log.info("Cleanup evicted: days={} hamstersLastSeen={} sensorsLastSeen={}",
+                    days, hamstersEvicted, sensorsEvicted);
+        }
+    }
+
+    long evictedHamsters() {
+        return hamsters.evicted.sum();
+    }
+
+    long evictedSensors() {
+        return sensors.evicted.sum();
+    }
+
+    long evictedDays() {
+        return evictedDays.sum();
+    }
+
+    // дни старше окна ночной выгрузки: либо так и не попали в БД, либо вернулись в память после неё —
+    // поэтому выгрузка только наращивает итог в БД и не перетирает полный день частичным
+    // каждая выгруженная ячейка тратит бюджет, как просмотренная запись; остальные дни — следующим запуском
+    private int exportForgottenDays(Budget budget) {
+        LocalDate oldestKept = LocalDate.now(zone).minusDays(Math.max(1, props.exportDaysBack()));
+        List<LocalDate> forgotten = state.days().stream()
+                .filter(day -> day.isBefore(oldestKept))
+                .sorted()
+                .toList();
+        int exported = 0;
+        for (LocalDate day : forgotten) {
+            if (budget.exhausted()) {
+                break;
+            }
+            try {
+                budget.spend(exporter.exportForgottenDay(day));
+                exported++;
+            } catch (Exception e) {
+                log.warn("Cleanup could not export forgotten day {}: {}", day, e.toString());
+                budget.spend(1);
+            }
+        }
+        evictedDays.add(exported);
+        return exported;
+    }
+
+    @FunctionalInterface
+    private interface Evictor {
+        boolean evict(int id, long olderThanMs);
+    }
+
+    private static final class Budget {
+        private int entries;
+        private final long deadlineNanos;
+
+        Budget(int entries, long deadlineNanos) {
+            this.entries = entries;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        // часы смотрим не на каждой записи
+        void spend() {
+            entries--;
+            if (entries % CLOCK_CHECK_EVERY == 0 && System.nanoTime() > deadlineNanos) {
+                entries = 0;
+            }
+        }
+
+        // выгрузка дня — запрос в БД, часы смотрим после каждой
+        void spend(int spent) {
+            entries -= spent;
+            if (System.nanoTime() > deadlineNanos) {
+                entries = 0;
+            }
+        }
+
+        boolean exhausted() {
+            return entries <= 0;
+        }
+    }
+
+    private static final class Sweep {
+        private final IntSupplier size;
+        private final Evictor evictor;
+        private final LongAdder evicted = new LongAdder();
+        // только поток планировщика
+        private int cursor;
+
+        Sweep(IntSupplier size, Evictor evictor) {
+            this.size = size;
+            this.evictor = evictor;
+        }
+
+        int run(long olderThanMs, Budget budget) {
+            int total = size.getAsInt();
+            int count = 0;
+            for (int scanned = 0; scanned < total && !budget.exhausted(); scanned++) {
+                if (cursor >= total) {
+                    cursor = 0;
+                }
+                if (evictor.evict(cursor++, olderThanMs)) {
+                    count++;
+                }
+                budget.spend();
+            }
+            evicted.add(count);
+            return count;
+        }
     }
 }
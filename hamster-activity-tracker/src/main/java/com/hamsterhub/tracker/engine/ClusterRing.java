@@ -0,0 +1,97 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.ClusterProperties;
+import com.hamsterhub.tracker.model.EventWrapper;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Кольцо согласованного хэширования: какой узел кластера владеет колесом (у {@code SensorFailure} — датчиком).
+ * У каждого узла {@code virtualNodes} точек на кольце, ключ принадлежит первой точке по часовой стрелке,
+ * поэтому при добавлении узла переезжает лишь его доля колёс. Без кластера всё принадлежит этому узлу.
+ */
+@Component
+public class ClusterRing {
+    private final List<String> nodes;
+    private final int self;
+    // точки кольца по возрастанию и их узлы; поиск — бинарный, без аллокаций на событие
+    private final long[] points;
+    private final int[] owners;
+
+    public ClusterRing(ClusterProperties props) {
+        if (!props.enabled()) {
+            this.nodes = List.of(props.self() != null ? props.self() : "local");
+            this.self = 0;
+            this.points = new long[]{0L};
+            this.owners = new int[]{0};
+            return;
+        }
+        // порядок peers в настройках на узлах может отличаться, номера узлов — нет
+        this.nodes = props.peers().stream().distinct().sorted().toList();
+        this.self = nodes.indexOf(props.self());
+        int perNode = Math.max(1, props.virtualNodes());
+        long[][] entries = new long[nodes.size() * perNode][];
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int v = 0; v < perNode; v++) {
+                entries[node * perNode + v] = new long[]{hash(nodes.get(node) + "#" + v), node};
+            }
+        }
+        // совпавшие точки упорядочиваем по узлу, чтобы все узлы построили одно и то же кольцо
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[entries.length];
+        this.owners = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = (int) entries[i][1];
+        }
+    }
+
+    public int owner(String key) {
+        if (nodes.size() == 1 || key == null) {
+            return self;
+        }
+        int pos = Arrays.binarySearch(points, hash(key));
+        if (pos < 0) {
+            pos = -pos - 1;
+        }
+        return owners[pos == points.length ? 0 : pos];
+    }
+
+    public int owner(EventWrapper eventWrapper) {
+        return owner(EventBus.routingKey(eventWrapper));
+    }
+
+    public boolean isLocal(int node) {
+        return node == self;
+    }
+
+    public int self() {
+        return self;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public String node(int node) {
+        return nodes.get(node);
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    // String.hashCode одинаков в любой JVM; перемешиваем его до 64 бит (финализатор MurmurHash3),
+    // иначе соседние id колёс легли бы на кольцо кучно
+    static long hash(String key) {
+        long h = key.hashCode() & 0xFFFFFFFFL;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,8 @@
+package com.hamsterhub.tracker.engine;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+// daily_stats переписан за эти даты — кэши отчётов по ним устарели
+public record DailyStatsExported(Set<LocalDate> dates) {
+}
@@ -1,67 +1,346 @@
 package com.hamsterhub.tracker.engine;
 
+import com.hamsterhub.tracker.config.ExportProperties;
 import com.hamsterhub.tracker.config.TrackerProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
 class DailyStatsExporter {
+    private static final Logger log = LoggerFactory.getLogger(DailyStatsExporter.class);
+    private static final int COPY_BUFFER = 1 << 16;
+
+    // ночная выгрузка пишет точные итоги дня
+    private static final String EXACT = """
+            ON CONFLICT (date, hamster_id) DO UPDATE
+            SET total_rounds = EXCLUDED.total_rounds,
+                is_active    = EXCLUDED.is_active,
+                updated_at   = now()
+            """;
+
+    // непрерывная — только наращивает, чтобы запоздавшая пачка не перетёрла более свежий итог
+    private static final String MONOTONIC = """
+            ON CONFLICT (date, hamster_id) DO UPDATE
+            SET total_rounds = GREATEST(daily_stats.total_rounds, EXCLUDED.total_rounds),
+                is_active    = daily_stats.is_active OR EXCLUDED.is_active,
+                updated_at   = now()
+            """;
+
+    // почасовые корзины: ночная выгрузка пишет их как есть
+    private static final String HOURLY_EXACT = """
+            ON CONFLICT (date, hamster_id) DO UPDATE
+            SET bucket_minutes = EXCLUDED.bucket_minutes,
+                rounds         = EXCLUDED.rounds,
+                updated_at     = now()
+            """;
+
+    // непрерывная — поэлементный максимум, если ширина корзин не поменялась
+    private static final String HOURLY_MONOTONIC = """
+            ON CONFLICT (date, hamster_id) DO UPDATE
+            SET rounds         = CASE WHEN hourly_stats.bucket_minutes = EXCLUDED.bucket_minutes
+                                      THEN ARRAY(SELECT GREATEST(o, n)
+                                                 FROM unnest(hourly_stats.rounds, EXCLUDED.rounds)
+                                                      WITH ORDINALITY AS u(o, n, i)
+                                                 ORDER BY i)
+                                      ELSE EXCLUDED.rounds END,
+                bucket_minutes = EXCLUDED.bucket_minutes,
+                updated_at     = now()
+            """;
+
+    /**
+     * Одна ячейка может попасть в выгрузку дважды (день удалили и создали заново) — берём больший итог.
+     * old читает итоги до запроса (все части WITH видят один снимок), merged возвращает записанные,
+     * их разница по неделе и месяцу прибавляется к свёрткам. Корзины ячеек с вращениями уходят в hourly_stats.
+     * Параметры: ветка ON CONFLICT для daily_stats, ширина корзины, ветка ON CONFLICT для hourly_stats.
+     */
+    private static final String MERGE = """
+            WITH src AS (
+                SELECT DISTINCT ON (date, hamster_id) date, hamster_id, total_rounds, is_active, hourly_rounds
+                FROM daily_stats_staging
+                ORDER BY date, hamster_id, total_rounds DESC
+            ),
+            old AS (
+                SELECT d.date, d.hamster_id, d.total_rounds, d.is_active
+                FROM daily_stats d
+                JOIN src USING (date, hamster_id)
+                -- границы по дате дают отсечь секции daily_stats, которых выгрузка не касается
+                WHERE d.date BETWEEN (SELECT min(date) FROM src) AND (SELECT max(date) FROM src)
+            ),
+            merged AS (
+                INSERT INTO daily_stats(date, hamster_id, total_rounds, is_active)
+                SELECT date, hamster_id, total_rounds, is_active FROM src
+                %s
+                RETURNING date, hamster_id, total_rounds, is_active
+            ),
+            hourly AS (
+                INSERT INTO hourly_stats(date, hamster_id, bucket_minutes, rounds)
+                SELECT date, hamster_id, %d, hourly_rounds FROM src
+                WHERE hourly_rounds IS NOT NULL
+                %s
+            ),
+            delta AS (
+                SELECT m.date, m.hamster_id,
+                       m.total_rounds - COALESCE(o.total_rounds, 0) AS rounds,
+                       m.is_active::int - COALESCE(o.is_active::int, 0) AS active_days
+                FROM merged m
+                LEFT JOIN old o USING (date, hamster_id)
+            ),
+            weekly AS (
+                INSERT INTO weekly_stats(week_start, hamster_id, total_rounds, active_days)
+                SELECT date_trunc('week', date)::date, hamster_id, sum(rounds), sum(active_days)
+                FROM delta
+                GROUP BY 1, 2
+                ON CONFLICT (week_start, hamster_id) DO UPDATE
+                SET total_rounds = weekly_stats.total_rounds + EXCLUDED.total_rounds,
+                    active_days  = weekly_stats.active_days + EXCLUDED.active_days
+            )
+            INSERT INTO monthly_stats(month_start, hamster_id, total_rounds, active_days)
+            SELECT date_trunc('month', date)::date, hamster_id, sum(rounds), sum(active_days)
+            FROM delta
+            GROUP BY 1, 2
+            ON CONFLICT (month_start, hamster_id) DO UPDATE
+            SET total_rounds = monthly_stats.total_rounds + EXCLUDED.total_rounds,
+                active_days  = monthly_stats.active_days + EXCLUDED.active_days
+            """;
+
+    // ключ транзакционной advisory-блокировки: выгрузки в daily_stats и свёртки идут по одной
+    private static final long ROLLUP_LOCK = 0x48414d5354455253L;
 
     private final TrackerState state;
     private final JdbcTemplate jdbc;
+    private final TransactionOperations tx;
     private final TrackerProperties props;
+    private final ExportProperties exportProps;
+    private final EventJournal journal;
+    private final ApplicationEventPublisher events;
+
+    private final LongAdder flushedCells = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final Timer dailyDuration;
+    private final Timer flushDuration;
 
-    DailyStatsExporter(TrackerState state, JdbcTemplate jdbc, TrackerProperties props) {
+    DailyStatsExporter(TrackerState state,
+                       JdbcTemplate jdbc,
+                       TransactionOperations tx,
+                       TrackerProperties props,
+                       ExportProperties exportProps,
+                       EventJournal journal,
+                       ApplicationEventPublisher events,
+                       MeterRegistry registry) {
         this.state = state;
         this.jdbc = jdbc;
+        this.tx = tx;
         this.props = props;
+        this.exportProps = exportProps;
+        this.journal = journal;
+        this.events = events;
+        state.trackDirtyStats(exportProps.incremental());
+        this.dailyDuration = exportTimer(registry, "daily");
+        this.flushDuration = exportTimer(registry, "flush");
+    }
+
+    private Timer exportTimer(MeterRegistry registry, String kind) {
+        return Timer.builder("tracker.export.duration")
+                .description("One export pass into daily_stats and the rollups")
+                .tags("kind", kind, "mode", exportProps.mode().name())
+                .publishPercentileHistogram()
+                .register(registry);
     }
 
     @Transactional
     void exportDay(LocalDate day) {
+        exportDay(day, EXACT, HOURLY_EXACT);
+    }
+
+    /**
+     * День за окном ночной выгрузки. Он мог уже уйти в БД целиком и вернуться в память частично
+     * (повтор журнала, пересланные события с исходным receivedAt) — такой итог только наращивает строку.
+     *
+     * @return сколько ячеек дня выгружено
+     */
+    @Transactional
+    int exportForgottenDay(LocalDate day) {
+        return exportDay(day, MONOTONIC, HOURLY_MONOTONIC);
+    }
+
+    private int exportDay(LocalDate day, String onConflict, String hourlyOnConflict) {
         Map<String, TrackerState.DayStats> map = state.getStatsForDate(day);
         if (map.isEmpty()) {
+            return 0;
+        }
+
+        long started = System.nanoTime();
+        upsert(map.values(), onConflict, hourlyOnConflict);
+        dailyDuration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        events.publishEvent(new DailyStatsExported(Set.of(day)));
+
+        state.removeDay(day);
+        return map.size();
+    }
+
+    /**
+     * Непрерывная выгрузка: раз в flushIntervalMs пишет в daily_stats только изменившиеся ячейки,
+     * пачками по batchSize и не больше maxBatchesPerFlush пачек за запуск — остальное уйдёт следующим.
+     * Значение в таблице при этом только растёт (см. MONOTONIC).
+     */
+    @Scheduled(fixedDelayString = "${tracker.export.flush-interval-ms:5000}")
+    void flushDirty() {
+        if (!exportProps.incremental()) {
             return;
         }
+        int batchSize = Math.max(1, exportProps.batchSize());
+        for (int n = 0; n < Math.max(1, exportProps.maxBatchesPerFlush()); n++) {
+            List<TrackerState.DayStats> cells = new ArrayList<>(batchSize);
+            TrackerState.DayStats stats;
+            while (cells.size() < batchSize && (stats = state.pollDirty()) != null) {
+                cells.add(stats);
+            }
+            if (cells.isEmpty()) {
+                return;
+            }
+            try {
+                long started = System.nanoTime();
+                upsert(cells, MONOTONIC, HOURLY_MONOTONIC);
+                flushDuration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                flushedCells.add(cells.size());
+                events.publishEvent(new DailyStatsExported(datesOf(cells)));
+            } catch (DataAccessException e) {
+                // вернём ячейки в очередь, попробуем следующим запуском
+                cells.forEach(TrackerState.DayStats::markDirty);
+                failedFlushes.increment();
+                log.warn("Incremental export of {} cells failed: {}", cells.size(), e.toString());
+                return;
+            }
+        }
+    }
+
+    long flushedCells() {
+        return flushedCells.sum();
+    }
+
+    long failedFlushes() {
+        return failedFlushes.sum();
+    }
 
-        List<Object[]> batch = new ArrayList<>(map.size());
-        for (var stats : map.entrySet()) {
-            String hamsterId = stats.getKey();
-            int total = stats.getValue().totalRounds();
-            boolean active = total > props.activeThreshold();
-            batch.add(new Object[]{day, hamsterId, total, active});
+    int dirtyCells() {
+        return state.dirtyCount();
+    }
+
+    private static Set<LocalDate> datesOf(List<TrackerState.DayStats> cells) {
+        Set<LocalDate> dates = new HashSet<>();
+        for (TrackerState.DayStats stats : cells) {
+            dates.add(stats.date());
         }
+        return dates;
+    }
 
-        int[] res = jdbc.batchUpdate("""
-            INSERT INTO daily_stats(date, hamster_id, total_rounds, is_active)
-            VALUES (?, ?, ?, ?)
-            ON CONFLICT (date, hamster_id) DO UPDATE
-            SET total_rounds = EXCLUDED.total_rounds,
-                is_active    = EXCLUDED.is_active,
-                updated_at   = now()
-        """, batch);
+    /**
+     * Ячейки сначала попадают во временную таблицу сессии (JDBC batch или COPY), затем один запрос
+     * сливает их в daily_stats и добавляет к weekly_stats/monthly_stats разницу между новым и прежним итогом дня.
+     * Всё в одной транзакции; при ночной выгрузке — в транзакции exportDay.
+     */
+    private void upsert(Collection<TrackerState.DayStats> cells, String onConflict, String hourlyOnConflict) {
+        tx.executeWithoutResult(status -> {
+            jdbc.execute("""
+                CREATE TEMP TABLE IF NOT EXISTS daily_stats_staging (
+                  date          date      NOT NULL,
+                  hamster_id    text      NOT NULL,
+                  total_rounds  integer   NOT NULL,
+                  is_active     boolean   NOT NULL,
+                  hourly_rounds integer[]
+                )
+            """);
+            jdbc.execute("TRUNCATE daily_stats_staging");
+            if (exportProps.mode() == ExportProperties.Mode.COPY) {
+                copyToStaging(cells);
+            } else {
+                batchToStaging(cells);
+            }
+            // разница считается от прочитанного итога: параллельная выгрузка между чтением и записью её бы исказила
+            jdbc.execute("SELECT pg_advisory_xact_lock(" + ROLLUP_LOCK + ")");
+            jdbc.update(MERGE.formatted(onConflict, state.bucketMinutes(), hourlyOnConflict));
+        });
+    }
 
-        state.removeDay(day);
+    private void batchToStaging(Collection<TrackerState.DayStats> cells) {
+        List<Object[]> batch = new ArrayList<>(cells.size());
+        for (TrackerState.DayStats stats : cells) {
+            int total = stats.totalRounds();
+            batch.add(new Object[]{stats.date(), stats.hamsterId(), total, total > props.activeThreshold(),
+                    stats.buckets()});
+        }
+        jdbc.batchUpdate("""
+            INSERT INTO daily_stats_staging(date, hamster_id, total_rounds, is_active, hourly_rounds)
+            VALUES (?, ?, ?, ?, ?)
+            """, batch);
+    }
+
+    private void copyToStaging(Collection<TrackerState.DayStats> cells) {
+        jdbc.execute((ConnectionCallback<Void>) con -> {
+            CopyIn copy = con.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY daily_stats_staging (date, hamster_id, total_rounds, is_active, hourly_rounds) FROM STDIN (FORMAT binary)");
+            try {
+                PgCopyEncoder encoder = new PgCopyEncoder(copy::writeToCopy, COPY_BUFFER);
+                for (TrackerState.DayStats stats : cells) {
+                    int total = stats.totalRounds();
+                    int[] buckets = stats.buckets();
+                    encoder.startRow(5);
+                    encoder.date(stats.date());
+                    encoder.text(stats.hamsterId());
+                    encoder.int4(total);
+                    encoder.bool(total > props.activeThreshold());
+                    if (buckets != null) {
+                        encoder.int4Array(buckets);
+                    } else {
+                        encoder.nullValue();
+                    }
+                }
+                encoder.finish();
+                copy.endCopy();
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+            return null;
+        });
     }
 
-    // Экспорт каждый день в указанное время;
+    // Экспорт каждый день в указанное время; при непрерывной выгрузке — сверка, точные итоги дня
     @Scheduled(cron = "${tracker.export-cron}", zone = "${tracker.zone-id}")
+    // сутки считаем в зоне DayClock, по которой шарды раскладывают события по дням: иначе граница журнала
+    // может уйти за начало текущего дня шардов, и рестарт выбросит этот день
     void dailyExport() {
-        ZoneId zone = (props.zoneId() != null && !props.zoneId().isBlank())
-                ? ZoneId.of(props.zoneId())
-                : ZoneId.systemDefault();
-
-        LocalDate today = LocalDate.now(zone);
+        LocalDate today = LocalDate.now(TrackerState.ZONE);
         for (int i = 1; i <= Math.max(1, props.exportDaysBack()); i++) {
             exportDay(today.minusDays(i));
         }
+
+        // прошлые дни уже в БД — журнал до начала суток больше не нужен
+        if (state.days().stream().noneMatch(day -> day.isBefore(today))) {
+            journal.truncateBefore(today.atStartOfDay(TrackerState.ZONE).toInstant().toEpochMilli());
+        }
     }
 }
@@ -0,0 +1,55 @@
+package com.hamsterhub.tracker.engine;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Дата события по его времени без аллокаций: границы последних суток закэшированы и пересчитываются,
+ * только когда приходит событие следующих суток (то есть около полуночи). Запоздавшие события прошлых дней
+ * считаются честно через {@link java.time.ZonedDateTime} и кэш назад не откатывают.
+ */
+final class DayClock {
+    private static final long DAY_MS = 86_400_000L;
+
+    private final ZoneId zone;
+    // неизменяемый снимок: шарды читают его без блокировок, гонка при замене безвредна
+    private volatile Day current;
+
+    DayClock(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    LocalDate dateOf(long tsMs) {
+        Day day = current;
+        if (day != null && tsMs >= day.startMs() && tsMs < day.endMs()) {
+            return day.date();
+        }
+        return recompute(day, tsMs);
+    }
+
+    // минута суток по местным часам; в обычные сутки — вычитанием из закэшированной полуночи
+    int minuteOfDay(long tsMs) {
+        Day day = current;
+        if (day != null && tsMs >= day.startMs() && tsMs < day.endMs() && day.endMs() - day.startMs() == DAY_MS) {
+            return (int) ((tsMs - day.startMs()) / 60_000L);
+        }
+        // сутки с переводом часов: час после перевода считается по часам на стене
+        ZonedDateTime time = Instant.ofEpochMilli(tsMs).atZone(zone);
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private LocalDate recompute(Day cached, long tsMs) {
+        LocalDate date = Instant.ofEpochMilli(tsMs).atZone(zone).toLocalDate();
+        if (cached == null || tsMs >= cached.endMs()) {
+            // границы через atStartOfDay: сутки с переводом часов короче или длиннее 24 ч
+            current = new Day(date,
+                    date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        }
+        return date;
+    }
+
+    private record Day(LocalDate date, long startMs, long endMs) {}
+}
@@ -0,0 +1,129 @@
+package com.hamsterhub.tracker.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Топ-K хомяков одного дня, обновляется из {@link TrackerState.DayStats#addRounds}.
+ * Итоги дня только растут, поэтому вытесненный хомяк вернётся, лишь когда обгонит текущий минимум, —
+ * и тогда снова придёт сюда. Значит, набор всегда точный топ-K, а чтение первых N — O(K) без обхода дня.
+ * <p>
+ * Топ — массив фиксированной длины, место хомяка хранится в его {@code DayStats}. Вращение хомяка, который уже
+ * в топе, сюда не приходит вовсе: итоги читаются из ячеек, а порядок досортировывается под блокировкой при чтении
+ * и при вытеснении. Горячий путь топ-хомяка не берёт монитор и ничего не аллоцирует.
+ */
+final class DayLeaderboard {
+    record Entry(String hamsterId, int totalRounds) {}
+
+    private final int capacity;
+    // больше кругов — выше; при равенстве по id, чтобы порядок не зависел от времени вставки
+    private final TrackerState.DayStats[] ranked;
+    // итоги ranked на момент последней досортировки
+    private final int[] totals;
+    private int size;
+
+    // минимум заполненного топа; растёт монотонно, поэтому устаревшее значение только занижено
+    private volatile int threshold = -1;
+
+    DayLeaderboard(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.ranked = new TrackerState.DayStats[this.capacity];
+        this.totals = new int[this.capacity];
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    void offer(TrackerState.DayStats stats) {
+        if (accepts(stats.rank(), stats.totalRounds())) {
+            admit(stats);
+        }
+    }
+
+    // быстрый путь без блокировки: true — хомяка нет в топе, но до минимума он дотянул
+    boolean accepts(int rank, int total) {
+        return rank < 0 && total >= threshold;
+    }
+
+    synchronized List<Entry> top(int n) {
+        resort();
+        int count = Math.min(n, size);
+        List<Entry> top = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            top.add(new Entry(ranked[i].hamsterId(), totals[i]));
+        }
+        return top;
+    }
+
+    private synchronized void admit(TrackerState.DayStats stats) {
+        if (stats.rank() >= 0) {
+            // параллельный offer той же ячейки успел раньше
+            return;
+        }
+        resort();
+        // итог читаем под блокировкой: из двух параллельных addRounds в топ попадёт последнее значение
+        int total = stats.totalRounds();
+        if (size == capacity) {
+            int last = size - 1;
+            if (!before(total, stats, last)) {
+                return;
+            }
+            // вращение вытесняемого после снимка видело rank >= 0 и сюда не пошло. Сначала сбрасываем место,
+            // потом перечитываем итог: либо мы увидим его прибавку, либо он увидит -1 и придёт сам
+            TrackerState.DayStats evicted = ranked[last];
+            evicted.setRank(-1);
+            int evictedTotal = evicted.totalRounds();
+            if (!before(total, stats, evictedTotal, evicted)) {
+                place(evicted, evictedTotal, last);
+                return;
+            }
+            size--;
+        }
+        int pos = size++;
+        while (pos > 0 && before(total, stats, pos - 1)) {
+            place(ranked[pos - 1], totals[pos - 1], pos);
+            pos--;
+        }
+        place(stats, total, pos);
+        if (size == capacity) {
+            threshold = totals[size - 1];
+        }
+    }
+
+    // снимок итогов и сортировка вставками: топ почти упорядочен, сдвигаются только обогнавшие соседа
+    private void resort() {
+        for (int i = 0; i < size; i++) {
+            totals[i] = ranked[i].totalRounds();
+        }
+        for (int i = 1; i < size; i++) {
+            TrackerState.DayStats stats = ranked[i];
+            int total = totals[i];
+            int pos = i;
+            while (pos > 0 && before(total, stats, pos - 1)) {
+                place(ranked[pos - 1], totals[pos - 1], pos);
+                pos--;
+            }
+            if (pos != i) {
+                place(stats, total, pos);
+            }
+        }
+        if (size == capacity) {
+            threshold = totals[size - 1];
+        }
+    }
+
+    private boolean before(int total, TrackerState.DayStats stats, int pos) {
+        return before(total, stats, totals[pos], ranked[pos]);
+    }
+
+    private static boolean before(int total, TrackerState.DayStats stats, int otherTotal, TrackerState.DayStats other) {
+        return total > otherTotal || total == otherTotal && stats.hamsterId().compareTo(other.hamsterId()) < 0;
+    }
+
+    private void place(TrackerState.DayStats stats, int total, int pos) {
+        ranked[pos] = stats;
+        totals[pos] = total;
+        stats.setRank(pos);
+    }
+}
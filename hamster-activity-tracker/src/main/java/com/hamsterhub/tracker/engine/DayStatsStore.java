@@ -0,0 +1,42 @@
+package com.hamsterhub.tracker.engine;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Ячейки (день, хомяк) вместе с топом дня и очередью изменённых ячеек для непрерывной выгрузки.
+ * {@link HeapDayStatsStore} держит ячейку объектом, {@link OffHeapDayStatsStore} — слотом вне кучи,
+ * а {@link TrackerState.DayStats} у него лишь короткоживущий вид на слот.
+ */
+interface DayStatsStore {
+
+    // ячейка создаётся при первом обращении
+    TrackerState.DayStats statsFor(LocalDate date, String hamsterId);
+
+    // путь шарда: без аллокаций на каждое событие; hamster — номер из словаря, minuteOfDay == -1 — без корзин
+    void addRounds(LocalDate date, int hamster, int rounds, int minuteOfDay);
+
+    // ячейки дня по id хомяка; пусто, если дня нет в памяти
+    Map<String, TrackerState.DayStats> statsForDate(LocalDate date);
+
+    Optional<DayLeaderboard> leaderboard(LocalDate date);
+
+    Set<LocalDate> days();
+
+    void removeDay(LocalDate date);
+
+    // buckets — корзины ячеек, null — без корзин
+    void restoreDay(LocalDate date, String[] hamsterIds, long[] rounds, char[][] buckets, int count);
+
+    // следующая изменённая ячейка с уже снятым флагом; null — изменений нет
+    TrackerState.DayStats pollDirty();
+
+    int dirtyCount();
+
+    void trackDirty(boolean tracking);
+
+    // память ячеек вне кучи, байт
+    long offHeapBytes();
+}
@@ -0,0 +1,125 @@
+package com.hamsterhub.tracker.engine;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Колесо таймеров для неактивности: сущность взводится один раз и лежит в ячейке своего дедлайна
+ * (lastSeen + timeout). Новые события её не двигают — шард только смотрит флаг armed. Когда ячейка подходит,
+ * колесо перечитывает lastSeen: если событие было, сущность переезжает на новый дедлайн, иначе она истекла.
+ * Так один проход трогает только ячейки, чьё время пришло, а не всех хомяков и датчики.
+ * touch — из любых потоков, advance — из одного потока монитора.
+ */
+final class DeadlineWheel {
+    private static final int ARMED = 1;
+
+    private final long timeoutMs;
+    private final long tickMs;
+    private final IntToLongFunction lastSeen;
+    private final IntColumn armed = new IntColumn(0);
+    // взведённые шардами, но ещё не разложенные по ячейкам
+    private final Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+    private final IntList[] slots;
+    private long currentTick = Long.MIN_VALUE;
+    private int scheduled;
+
+    DeadlineWheel(long timeoutMs, long tickMs, IntToLongFunction lastSeen) {
+        this.timeoutMs = timeoutMs;
+        this.tickMs = Math.max(1, tickMs);
+        this.lastSeen = lastSeen;
+        // дедлайн не дальше timeout (с запасом на метки из будущего) — хватает одного оборота
+        int span = (int) Math.min(1 << 20, Math.ceilDiv(Math.max(1, timeoutMs), this.tickMs) + 1);
+        this.slots = new IntList[span + 1];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new IntList();
+        }
+    }
+
+    // вызывается на каждое событие: в частом случае — одно volatile-чтение
+    void touch(int id) {
+        if (armed.get(id) != ARMED && armed.compareAndSet(id, 0, ARMED)) {
+            pending.offer(id);
+        }
+    }
+
+    /** Обрабатывает подошедшие ячейки; истёкшие id отдаёт в onExpired и снимает с колеса. Возвращает их число. */
+    int advance(long nowMs, IntConsumer onExpired) {
+        long nowTick = Math.floorDiv(nowMs, tickMs);
+        int expired = 0;
+        if (currentTick != Long.MIN_VALUE) {
+            // отстали больше чем на оборот — достаточно пройти каждую ячейку один раз
+            long from = Math.max(currentTick + 1, nowTick - slots.length + 1);
+            for (long tick = from; tick <= nowTick; tick++) {
+                IntList due = slots[index(tick)];
+                if (due.size == 0) {
+                    continue;
+                }
+                slots[index(tick)] = new IntList();
+                scheduled -= due.size;
+                for (int i = 0; i < due.size; i++) {
+                    expired += check(due.ids[i], nowMs, nowTick, onExpired);
+                }
+            }
+        }
+        currentTick = nowTick;
+
+        Integer id;
+        while ((id = pending.poll()) != null) {
+            expired += check(id, nowMs, nowTick, onExpired);
+        }
+        return expired;
+    }
+
+    int scheduled() {
+        return scheduled + pending.size();
+    }
+
+    private int check(int id, long nowMs, long nowTick, IntConsumer onExpired) {
+        long ts = lastSeen.applyAsLong(id);
+        if (ts != 0L && ts + timeoutMs >= nowMs) {
+            schedule(id, ts + timeoutMs, nowTick);
+            return 0;
+        }
+        // снимаем флаг и перечитываем: событие, пришедшее между чтениями, либо видно здесь,
+        // либо шард увидит снятый флаг и взведёт сущность заново
+        armed.set(id, 0);
+        ts = lastSeen.applyAsLong(id);
+        if (ts == 0L) {
+            return 0; // отметку сбросила уборка
+        }
+        if (ts + timeoutMs >= nowMs) {
+            if (armed.compareAndSet(id, 0, ARMED)) {
+                schedule(id, ts + timeoutMs, nowTick);
+            }
+            return 0;
+        }
+        onExpired.accept(id);
+        return 1;
+    }
+
+    private void schedule(int id, long deadlineMs, long nowTick) {
+        long tick = Math.ceilDiv(deadlineMs + 1, tickMs);
+        tick = Math.max(nowTick + 1, Math.min(tick, nowTick + slots.length - 1));
+        slots[index(tick)].add(id);
+        scheduled++;
+    }
+
+    private int index(long tick) {
+        return (int) Math.floorMod(tick, (long) slots.length);
+    }
+
+    private static final class IntList {
+        int[] ids = new int[8];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.hamsterhub.tracker.engine;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ячейки (день, хомяк), изменившиеся с последней выгрузки. Ячейка стоит в очереди не больше одного раза:
+ * выгрузчик снимает флаг до того, как прочитать значение, поэтому прибавка после чтения снова поставит её в очередь.
+ */
+final class DirtyStatsQueue {
+    private final ConcurrentLinkedQueue<TrackerState.DayStats> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile boolean tracking = true;
+
+    // без непрерывной выгрузки очередь некому разбирать — тогда изменения не копим
+    void setTracking(boolean tracking) {
+        this.tracking = tracking;
+    }
+
+    void offer(TrackerState.DayStats stats) {
+        if (!tracking) {
+            return;
+        }
+        queue.offer(stats);
+        size.incrementAndGet();
+    }
+
+    TrackerState.DayStats poll() {
+        TrackerState.DayStats stats = queue.poll();
+        if (stats != null) {
+            size.decrementAndGet();
+        }
+        return stats;
+    }
+
+    int size() {
+        return size.get();
+    }
+}
@@ -1,21 +1,155 @@
 package com.hamsterhub.tracker.engine;
 
+import com.hamsterhub.tracker.config.EventBusProperties;
+import com.hamsterhub.tracker.config.EventBusProperties.OverloadPolicy;
+import com.hamsterhub.tracker.config.TrackerProperties;
 import com.hamsterhub.tracker.model.EventWrapper;
+import hamsterhub.common.events.*;
 import org.springframework.stereotype.Component;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.Sinks;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
 public class EventBus {
-    private final Sinks.Many<EventWrapper> sink = Sinks.many().multicast().onBackpressureBuffer();
-    private static final Sinks.EmitFailureHandler RETRY_NON_SERIALIZED =
-            (signalType, emitResult) -> emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED;
+    // по кольцевому буферу фиксированного размера на шард: при перегрузке память не растёт
+    private final ArrayBlockingQueue<EventWrapper>[] shards;
+    private final OverloadPolicy policy;
+    private final long blockTimeoutMs;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public EventBus(EventBusProperties props, TrackerProperties trackerProps) {
+        int shardCount = Math.max(1, trackerProps.workers());
+        int perShard = Math.max(1, (props.capacity() + shardCount - 1) / shardCount);
+        @SuppressWarnings("unchecked")
+        ArrayBlockingQueue<EventWrapper>[] queues = new ArrayBlockingQueue[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            queues[i] = new ArrayBlockingQueue<>(perShard);
+        }
+        this.shards = queues;
+        this.policy = props.overloadPolicy() != null ? props.overloadPolicy() : OverloadPolicy.REJECT;
+        this.blockTimeoutMs = Math.max(0, props.blockTimeoutMs());
+    }
+
+    /**
+     * @return false, если событие не влезло в очередь своего шарда согласно политике перегрузки
+     */
+    public boolean emit(EventWrapper event) {
+        ArrayBlockingQueue<EventWrapper> queue = shards[shardOf(event)];
+        if (queue.offer(event)) {
+            return true;
+        }
+        boolean accepted = switch (policy) {
+            case REJECT -> false;
+            case DROP_OLDEST_SPIN -> shedOldestSpin(queue) && queue.offer(event);
+            case BLOCK -> offerBlocking(queue, event);
+        };
+        if (!accepted) {
+            rejected.increment();
+        }
+        return accepted;
+    }
+
+    // кладём пачку до первого отказа; возвращает число принятых событий
+    public int emitAll(List<EventWrapper> events) {
+        int accepted = 0;
+        for (EventWrapper event : events) {
+            if (!emit(event)) {
+                break;
+            }
+            accepted++;
+        }
+        return accepted;
+    }
+
+    public boolean isBlocking() {
+        return policy == OverloadPolicy.BLOCK;
+    }
+
+    int shardCount() {
+        return shards.length;
+    }
+
+    // все события одного колеса попадают в один шард и обрабатываются строго по порядку
+    int shardOf(EventWrapper eventWrapper) {
+        String key = routingKey(eventWrapper);
+        return key == null ? 0 : Math.floorMod(spread(key.hashCode()), shards.length);
+    }
+
+    // по нему же событие выбирает и шард, и узел кластера: колесо целиком живёт в одном месте
+    public static String routingKey(EventWrapper eventWrapper) {
+        return switch (eventWrapper.event()) {
+            case HamsterEnter e -> e.wheelId();
+            case HamsterExit e -> e.wheelId();
+            case WheelSpin e -> e.wheelId();
+            case SensorFailure e -> e.sensorId() != null ? e.sensorId() : eventWrapper.sensorId();
+        };
+    }
+
+    EventWrapper poll(int shard, long timeout, TimeUnit unit) throws InterruptedException {
+        return shards[shard].poll(timeout, unit);
+    }
+
+    int drainTo(int shard, Collection<? super EventWrapper> target, int maxEvents) {
+        return shards[shard].drainTo(target, maxEvents);
+    }
+
+    int depth() {
+        int depth = 0;
+        for (ArrayBlockingQueue<EventWrapper> queue : shards) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    int depth(int shard) {
+        return shards[shard].size();
+    }
+
+    int capacity() {
+        int capacity = 0;
+        for (ArrayBlockingQueue<EventWrapper> queue : shards) {
+            capacity += queue.size() + queue.remainingCapacity();
+        }
+        return capacity;
+    }
+
+    long rejectedCount() {
+        return rejected.sum();
+    }
+
+    long shedCount() {
+        return shed.sum();
+    }
+
+    private boolean shedOldestSpin(ArrayBlockingQueue<EventWrapper> queue) {
+        for (Iterator<EventWrapper> it = queue.iterator(); it.hasNext(); ) {
+            if (it.next().event() instanceof WheelSpin) {
+                it.remove();
+                shed.increment();
+                return true;
+            }
+        }
+        return false;
+    }
 
-    public void emit(EventWrapper event) {
-        sink.emitNext(event, RETRY_NON_SERIALIZED);
+    private boolean offerBlocking(ArrayBlockingQueue<EventWrapper> queue, EventWrapper event) {
+        try {
+            return queue.offer(event, blockTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
-    public Flux<EventWrapper> flux() {
-        return sink.asFlux();
+    // "wheel-N" отличаются в младших символах, перемешиваем старшие биты хэша
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
     }
-}
\ No newline at end of file
+}
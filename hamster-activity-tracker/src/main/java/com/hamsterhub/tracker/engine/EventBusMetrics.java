@@ -0,0 +1,37 @@
+package com.hamsterhub.tracker.engine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+@Component
+class EventBusMetrics implements MeterBinder {
+    private final EventBus bus;
+
+    EventBusMetrics(EventBus bus) {
+        this.bus = bus;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tracker.bus.depth", bus, EventBus::depth)
+                .description("Events waiting in EventBus")
+                .register(registry);
+        for (int i = 0; i < bus.shardCount(); i++) {
+            int shard = i;
+            Gauge.builder("tracker.bus.shard.depth", bus, b -> b.depth(shard))
+                    .tag("shard", String.valueOf(shard))
+                    .register(registry);
+        }
+        Gauge.builder("tracker.bus.capacity", bus, EventBus::capacity)
+                .register(registry);
+        FunctionCounter.builder("tracker.bus.rejected", bus, EventBus::rejectedCount)
+                .description("Events refused because EventBus was full")
+                .register(registry);
+        FunctionCounter.builder("tracker.bus.shed", bus, EventBus::shedCount)
+                .description("Queued WheelSpin events dropped to admit newer ones")
+                .register(registry);
+    }
+}
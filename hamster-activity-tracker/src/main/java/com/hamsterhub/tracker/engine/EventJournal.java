@@ -0,0 +1,391 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.JournalProperties;
+import com.hamsterhub.tracker.model.EventWrapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Журнал принятых событий (write-ahead): шард пишет событие в свой сегмент до того, как применить его
+ * к {@link TrackerState}, а на старте журнал проигрывается, чтобы восстановить состояние после падения.
+ * У каждого шарда свой каталог и единственный писатель, поэтому запись идёт без блокировок.
+ * На диск сбрасывается фоновым потоком раз в syncIntervalMs (group commit) — до той позиции,
+ * которую шард опубликовал после очередной пачки.
+ * В корне журнала лежат два служебных файла: число шардов, которыми он писался, и граница последней
+ * полной выгрузки в БД — дни раньше неё после проигрывания из памяти выбрасываются.
+ */
+@Component
+class EventJournal {
+    private static final Logger log = LoggerFactory.getLogger(EventJournal.class);
+    private static final long RETRY_AFTER_FAILURE_MS = 10_000L;
+    private static final String SHARDS_FILE = "shards";
+    private static final String EXPORTED_BEFORE_FILE = "exported-before";
+
+    private final boolean enabled;
+    private final Path root;
+    private final int segmentSize;
+    private final long syncIntervalMs;
+
+    private ShardWriter[] writers = new ShardWriter[0];
+    private Thread flusher;
+    private volatile boolean running;
+    private volatile List<Position> retainFrom;
+
+    EventJournal(JournalProperties props) {
+        this.enabled = props.enabled();
+        this.root = Path.of(props.dir());
+        this.segmentSize = Math.max(1, props.segmentSizeMb()) * 1024 * 1024;
+        this.syncIntervalMs = Math.max(1, props.syncIntervalMs());
+    }
+
+    static EventJournal disabled() {
+        return new EventJournal(new JournalProperties(false, "", 1, 1));
+    }
+
+    /**
+     * До replay(). Порядок событий колеса журнал хранит только внутри каталога его шарда: если tracker.workers
+     * поменяли, а сегменты остались, события одного колеса легли бы в разные каталоги и проигрались не по порядку.
+     */
+    void checkShards(int shards) {
+        if (!enabled || !Files.isDirectory(root)) {
+            return;
+        }
+        Path file = root.resolve(SHARDS_FILE);
+        try {
+            if (!Files.exists(file)) {
+                return;
+            }
+            int written = Integer.parseInt(Files.readString(file).trim());
+            if (written != shards && list(root, Files::isDirectory).stream()
+                    .anyMatch(shardDir -> !list(shardDir, JournalSegment::isSegment).isEmpty())) {
+                throw new IllegalStateException(("Journal %s was written by %d shards, but tracker.workers is %d: "
+                        + "restore tracker.workers=%d or move the journal away once its days are exported")
+                        .formatted(root.toAbsolutePath(), written, shards, written));
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Journal layout file {} unreadable, shard count not checked: {}", file, e.toString());
+        }
+    }
+
+    // граница последней полной выгрузки: события раньше неё уже в БД, 0 — выгрузок ещё не было
+    long exportedBefore() {
+        if (!enabled) {
+            return 0L;
+        }
+        Path file = root.resolve(EXPORTED_BEFORE_FILE);
+        try {
+            return Files.exists(file) ? Long.parseLong(Files.readString(file).trim()) : 0L;
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Journal watermark {} unreadable, replayed days are kept: {}", file, e.toString());
+            return 0L;
+        }
+    }
+
+    // до open(): проигрываем все сегменты всех шардов, колесо целиком лежит в одном каталоге
+    int replay(Consumer<EventWrapper> consumer) {
+        return replay(List.of(), consumer);
+    }
+
+    // from — позиции из снапшота: более ранние сегменты и записи в них уже учтены в состоянии
+    int replay(List<Position> from, Consumer<EventWrapper> consumer) {
+        if (!enabled || !Files.isDirectory(root)) {
+            return 0;
+        }
+        int total = 0;
+        for (Path shardDir : list(root, Files::isDirectory)) {
+            Position position = find(from, shardDir);
+            for (Path file : list(shardDir, JournalSegment::isSegment)) {
+                int order = position != null ? file.getFileName().toString().compareTo(position.segment()) : 1;
+                if (order < 0) {
+                    continue;
+                }
+                try (JournalSegment segment = JournalSegment.openForReplay(file)) {
+                    total += order == 0 ? segment.replay(position.offset(), consumer) : segment.replay(consumer);
+                } catch (IOException e) {
+                    log.error("Journal segment {} skipped: {}", file, e.toString());
+                }
+            }
+        }
+        log.info("Journal replayed {} events from {}", total, root.toAbsolutePath());
+        return total;
+    }
+
+    /**
+     * Докуда журнал применён к состоянию. Вызывать, только пока шарды стоят на границе пачки.
+     * Каталоги без открытого сегмента (шард ещё ничего не писал или остался от прежнего числа шардов)
+     * целиком проиграны на старте, поэтому для них позиция — конец последнего сегмента.
+     */
+    List<Position> positions() {
+        if (!enabled || !Files.isDirectory(root)) {
+            return List.of();
+        }
+        List<Position> positions = new ArrayList<>();
+        for (Path shardDir : list(root, Files::isDirectory)) {
+            String shard = shardDir.getFileName().toString();
+            JournalSegment current = writerSegment(shard);
+            if (current != null) {
+                positions.add(new Position(shard, current.path().getFileName().toString(), current.position()));
+                continue;
+            }
+            List<Path> segments = list(shardDir, JournalSegment::isSegment);
+            if (!segments.isEmpty()) {
+                Path last = segments.get(segments.size() - 1);
+                positions.add(new Position(shard, last.getFileName().toString(), Integer.MAX_VALUE));
+            }
+        }
+        return positions;
+    }
+
+    // сегменты, которые ещё нужны для восстановления от последнего сохранённого снапшота, не удаляются
+    void retainFrom(List<Position> snapshotPositions) {
+        this.retainFrom = List.copyOf(snapshotPositions);
+    }
+
+    void open(int shards) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            writeFile(SHARDS_FILE, Integer.toString(shards));
+        } catch (IOException e) {
+            log.warn("Journal layout file not written in {}: {}", root, e.toString());
+        }
+        ShardWriter[] opened = new ShardWriter[shards];
+        for (int i = 0; i < shards; i++) {
+            opened[i] = new ShardWriter(root.resolve("shard-" + i));
+        }
+        writers = opened;
+        running = true;
+        flusher = Thread.ofPlatform().name("journal-flusher").daemon().start(this::flushLoop);
+    }
+
+    void append(int shard, EventWrapper eventWrapper) {
+        if (enabled) {
+            writers[shard].append(eventWrapper);
+        }
+    }
+
+    // вызывается шардом после пачки: всё до этой позиции уйдёт на диск ближайшим flush
+    void commit(int shard) {
+        if (enabled) {
+            writers[shard].commit();
+        }
+    }
+
+    /**
+     * Всё, что получено раньше cutoffMs, выгружено в БД: запоминает границу и удаляет закрытые сегменты,
+     * целиком лежащие до неё. Открытый на запись сегмент остаётся, но его события до границы
+     * при следующем старте в итоги дней уже не попадут (см. exportedBefore).
+     */
+    void truncateBefore(long cutoffMs) {
+        if (!enabled || !Files.isDirectory(root)) {
+            return;
+        }
+        try {
+            writeFile(EXPORTED_BEFORE_FILE, Long.toString(Math.max(exportedBefore(), cutoffMs)));
+        } catch (IOException e) {
+            log.warn("Journal watermark not written in {}: {}", root, e.toString());
+        }
+        for (Path shardDir : list(root, Files::isDirectory)) {
+            Position retained = find(retainFrom, shardDir);
+            JournalSegment open = writerSegment(shardDir.getFileName().toString());
+            for (Path segment : list(shardDir, JournalSegment::isSegment)) {
+                if (JournalSegment.coversUntil(segment) <= cutoffMs && !retained(retained, segment)
+                        && (open == null || !open.path().equals(segment))) {
+                    try {
+                        Files.deleteIfExists(segment);
+                    } catch (IOException e) {
+                        log.warn("Journal segment {} not deleted: {}", segment, e.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (ShardWriter writer : writers) {
+            writer.close();
+        }
+    }
+
+    private boolean retained(Position snapshotPosition, Path segment) {
+        if (retainFrom == null) {
+            return false;
+        }
+        return snapshotPosition == null
+                || segment.getFileName().toString().compareTo(snapshotPosition.segment()) >= 0;
+    }
+
+    private JournalSegment writerSegment(String shard) {
+        for (ShardWriter writer : writers) {
+            if (writer.dir.getFileName().toString().equals(shard)) {
+                return writer.segment;
+            }
+        }
+        return null;
+    }
+
+    private static Position find(List<Position> positions, Path shardDir) {
+        if (positions == null) {
+            return null;
+        }
+        String shard = shardDir.getFileName().toString();
+        for (Position position : positions) {
+            if (position.shard().equals(shard)) {
+                return position;
+            }
+        }
+        return null;
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                Thread.sleep(syncIntervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (ShardWriter writer : writers) {
+                writer.flush();
+            }
+        }
+    }
+
+    private void writeFile(String name, String value) throws IOException {
+        Files.createDirectories(root);
+        Path tmp = root.resolve(name + ".tmp");
+        Files.writeString(tmp, value);
+        Files.move(tmp, root.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static List<Path> list(Path dir, java.util.function.Predicate<Path> filter) {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(filter).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // сегмент и смещение внутри него, до которых события шарда уже применены
+    record Position(String shard, String segment, int offset) {
+    }
+
+    private final class ShardWriter {
+        private final Path dir;
+        private int sequence;
+        private long dayEndsAt;
+        private long failedAt;
+
+        // segment и committed меняет только поток шарда; flush и ротация — под монитором писателя
+        private volatile JournalSegment segment;
+        private volatile int committed;
+        private int flushed;
+
+        ShardWriter(Path dir) {
+            this.dir = dir;
+        }
+
+        void append(EventWrapper eventWrapper) {
+            if (!JournalSegment.fits(eventWrapper)) {
+                // событие применится, но в журнал не попадёт: после падения его не будет
+                log.error("Journal record skipped, id is too long: type={} receivedAt={}",
+                        eventWrapper.event().getClass().getSimpleName(), eventWrapper.receivedAt());
+                return;
+            }
+            JournalSegment current = segment;
+            if (current != null && eventWrapper.receivedAt() < dayEndsAt && current.append(eventWrapper)) {
+                return;
+            }
+            current = rotate(eventWrapper.receivedAt());
+            if (current != null && !current.append(eventWrapper)) {
+                log.error("Journal record does not fit into an empty segment: {}", eventWrapper);
+            }
+        }
+
+        void commit() {
+            JournalSegment current = segment;
+            if (current != null) {
+                committed = current.position();
+            }
+        }
+
+        synchronized void flush() {
+            JournalSegment current = segment;
+            int to = committed;
+            if (current != null && to > flushed) {
+                current.force(flushed, to);
+                flushed = to;
+            }
+        }
+
+        // новый сегмент — когда текущий заполнен или начались новые сутки (удобно отрезать по дням)
+        private synchronized JournalSegment rotate(long receivedAt) {
+            long now = System.currentTimeMillis();
+            if (failedAt != 0 && now - failedAt < RETRY_AFTER_FAILURE_MS) {
+                return null;
+            }
+            closeSegment();
+            LocalDate day = Instant.ofEpochMilli(receivedAt).atZone(TrackerState.ZONE).toLocalDate();
+            // не даём границе откатиться назад, если ротацию по размеру вызвало запоздавшее событие
+            long endsAt = Math.max(dayEndsAt, day.plusDays(1).atStartOfDay(TrackerState.ZONE).toInstant().toEpochMilli());
+            try {
+                Files.createDirectories(dir);
+                JournalSegment next = JournalSegment.create(
+                        dir.resolve(JournalSegment.fileName(now, sequence++, endsAt)), now, segmentSize);
+                dayEndsAt = endsAt;
+                segment = next;
+                committed = next.position();
+                flushed = next.position();
+                failedAt = 0;
+                return next;
+            } catch (IOException e) {
+                failedAt = now;
+                log.error("Journal segment could not be created in {}, events are not journaled: {}", dir, e.toString());
+                return null;
+            }
+        }
+
+        synchronized void close() {
+            closeSegment();
+        }
+
+        private void closeSegment() {
+            JournalSegment current = segment;
+            if (current == null) {
+                return;
+            }
+            current.force(flushed, current.position());
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.warn("Journal segment {} not closed cleanly: {}", current.path(), e.toString());
+            }
+            segment = null;
+        }
+    }
+}
@@ -3,59 +3,233 @@ package com.hamsterhub.tracker.engine;
 import com.hamsterhub.tracker.config.TrackerProperties;
 import com.hamsterhub.tracker.model.EventWrapper;
 import hamsterhub.common.events.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
-import reactor.core.Disposable;
-import reactor.core.scheduler.Schedulers;
 
-import java.time.Instant;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class EventProcessor {
     private static final Logger log = LoggerFactory.getLogger(EventProcessor.class);
+    private static final int DRAIN_BATCH = 256;
+    // порядок совпадает с typeIndex
+    private static final String[] EVENT_TYPES = {"enter", "exit", "spin", "failure"};
 
     private final EventBus bus;
     private final TrackerState state;
     private final TrackerProperties props;
+    private final EventJournal journal;
+    private final SnapshotStore snapshots;
+    private final DayClock days = new DayClock(TrackerState.ZONE);
 
-    private Disposable subscription;
+    private final Timer[] applyLatency = new Timer[EVENT_TYPES.length];
+    private final DistributionSummary batchSize;
+    private final Counter unknownHamsterSpins;
+    private final Counter failedEvents;
 
-    public EventProcessor(EventBus bus, TrackerState state, TrackerProperties props) {
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private volatile boolean running;
+    private volatile Pause pause;
+
+    public EventProcessor(EventBus bus,
+                          TrackerState state,
+                          TrackerProperties props,
+                          EventJournal journal,
+                          SnapshotStore snapshots,
+                          MeterRegistry registry) {
         this.bus = bus;
         this.state = state;
         this.props = props;
+        this.journal = journal;
+        this.snapshots = snapshots;
+        // перцентили считаются на стороне приложения (HdrHistogram), гистограмма — для агрегации в Prometheus
+        for (int i = 0; i < EVENT_TYPES.length; i++) {
+            applyLatency[i] = Timer.builder("tracker.event.latency")
+                    .description("From receipt by the HTTP endpoint to being applied to TrackerState")
+                    .tag("type", EVENT_TYPES[i])
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(registry);
+        }
+        this.batchSize = DistributionSummary.builder("tracker.event.batch")
+                .description("Events drained by a shard in one batch")
+                .register(registry);
+        this.unknownHamsterSpins = Counter.builder("tracker.event.spin.unknown-hamster")
+                .description("WheelSpin events for a wheel nobody occupies")
+                .register(registry);
+        this.failedEvents = Counter.builder("tracker.event.failures")
+                .description("Events that threw while being applied")
+                .register(registry);
     }
 
+    // HTTP-сервер поднимается после инициализации бинов, поэтому трафик пойдёт уже на восстановленное состояние:
+    // последний снапшот плюс хвост журнала после его позиций
     @PostConstruct
     void start() {
-        int workers = Math.max(1, props.workers());
-        subscription = bus.flux()
-                .doOnSubscribe(s -> log.info("EventProcessor subscribed, workers={}", workers))
-                .parallel(workers)
-                .runOn(Schedulers.parallel())
-                .doOnNext(eventWrapper -> log.debug("DEQUEUE {}", eventWrapper))
-                .subscribe(this::handle, e -> log.error("Event stream error", e));
-        log.info("EventProcessor started with {} workers", workers);
+        int shards = bus.shardCount();
+        long started = System.nanoTime();
+        List<EventJournal.Position> from = List.of();
+        journal.checkShards(shards);
+        Optional<StateSnapshot> snapshot = snapshots.loadLatest();
+        if (snapshot.isPresent()) {
+            snapshot.get().restoreInto(state);
+            from = snapshot.get().journalPositions();
+        }
+        int replayed = journal.replay(from, this::handle);
+        dropExportedDays(journal.exportedBefore());
+        if (snapshots.enabled()) {
+            journal.retainFrom(from);
+        }
+        log.info("State restored in {} ms: snapshot={} dayEntries={} journalTail={}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                snapshot.isPresent(), snapshot.map(StateSnapshot::dayEntries).orElse(0), replayed);
+        journal.open(shards);
+        running = true;
+        for (int i = 0; i < shards; i++) {
+            int shard = i;
+            workerThreads.add(Thread.ofPlatform()
+                    .name("event-shard-" + shard)
+                    .daemon()
+                    .start(() -> drainLoop(shard)));
+        }
+        log.info("EventProcessor started with {} shards", shards);
+    }
+
+    // занятость колёс и отметки журнал восстановил целиком, а итоги выгруженных дней уже в БД:
+    // вернись они в память, ночная выгрузка перетёрла бы полный день частичным
+    private void dropExportedDays(long exportedBefore) {
+        if (exportedBefore <= 0) {
+            return;
+        }
+        LocalDate firstKept = days.dateOf(exportedBefore);
+        List<LocalDate> exported = state.days().stream().filter(day -> day.isBefore(firstKept)).toList();
+        exported.forEach(state::removeDay);
+        if (!exported.isEmpty()) {
+            log.info("Dropped restored days already exported before {}: {}", firstKept, exported);
+        }
     }
 
     @PreDestroy
     void stop() {
-        if (subscription != null) subscription.dispose();
+        running = false;
+        for (Thread worker : workerThreads) {
+            worker.interrupt();
+        }
+        for (Thread worker : workerThreads) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workerThreads.clear();
+    }
+
+    /**
+     * Останавливает все шарды на границе пачки и, пока они стоят, снимает копию состояния вместе
+     * с позициями журнала. Пусто, если шарды не дошли до границы за timeoutMs.
+     */
+    synchronized Optional<StateSnapshot> captureSnapshot(long timeoutMs) {
+        if (!running) {
+            return Optional.empty();
+        }
+        Pause current = new Pause(workerThreads.size());
+        pause = current;
+        try {
+            if (!current.arrived.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+                return Optional.empty();
+            }
+            return Optional.of(StateSnapshot.capture(state, journal.positions()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } finally {
+            pause = null;
+            current.released.countDown();
+        }
     }
 
-    private void handle(EventWrapper eventWrapper) {
+    // единственный писатель своего шарда: события одного колеса идут строго по порядку.
+    // Забираем пачками, чтобы не платить за блокировку очереди на каждое событие
+    private void drainLoop(int shard) {
+        List<EventWrapper> batch = new ArrayList<>(DRAIN_BATCH);
+        while (running) {
+            try {
+                Pause requested = pause;
+                if (requested != null) {
+                    requested.arriveAndAwait();
+                }
+                EventWrapper first = bus.poll(shard, 100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                bus.drainTo(shard, batch, DRAIN_BATCH - 1);
+                for (EventWrapper eventWrapper : batch) {
+                    journal.append(shard, eventWrapper);
+                }
+                for (EventWrapper eventWrapper : batch) {
+                    log.debug("DEQUEUE {}", eventWrapper);
+                    handle(eventWrapper);
+                }
+                journal.commit(shard);
+                recordApplied(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // одно битое событие не должно останавливать шард: без потока его очередь встанет навсегда
+                log.error("Shard {} dropped the rest of a batch of {} events", shard, batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // часы читаются один раз на пачку; при проигрывании журнала на старте задержку не пишем
+    private void recordApplied(List<EventWrapper> batch) {
+        long appliedAt = System.currentTimeMillis();
+        for (EventWrapper eventWrapper : batch) {
+            applyLatency[typeIndex(eventWrapper.event())]
+                    .record(Math.max(0L, appliedAt - eventWrapper.receivedAt()), TimeUnit.MILLISECONDS);
+        }
+        batchSize.record(batch.size());
+    }
+
+    private static int typeIndex(HamsterEvent event) {
+        return switch (event) {
+            case HamsterEnter e -> 0;
+            case HamsterExit e -> 1;
+            case WheelSpin e -> 2;
+            case SensorFailure e -> 3;
+        };
+    }
+
+    void handle(EventWrapper eventWrapper) {
         HamsterEvent event = eventWrapper.event();
         String sensorId = eventWrapper.sensorId();
         long receivedAt = eventWrapper.receivedAt();
 
         // отмечаем «живость» сенсора для мониторинга неактивности
         if (sensorId != null && !sensorId.isBlank()) {
-            state.updateSensorLastEvent(sensorId, eventWrapper.receivedAt());
+            state.updateSensorLastEvent(state.internSensor(sensorId), eventWrapper.receivedAt());
         }
 
         try {
@@ -66,6 +240,7 @@ public class EventProcessor {
                 case SensorFailure e -> handleFailure(e, sensorId, receivedAt);
             }
         } catch (Exception ex) {
+            failedEvents.increment();
             log.error("Failed to process {}: {}", event, ex, ex);
         }
     }
@@ -73,26 +248,27 @@ public class EventProcessor {
     private void handleEnter(HamsterEnter event, long receivedAt) {
         Objects.requireNonNull(event.hamsterId(), "HamsterId is required");
         Objects.requireNonNull(event.wheelId(), "WheelId is required");
-        state.updateHamsterLastEvent(event.hamsterId(), receivedAt);
+        int hamster = state.internHamster(event.hamsterId());
+        int wheel = state.internWheel(event.wheelId());
+        state.updateHamsterLastEvent(hamster, receivedAt);
         // идемпотентность
-        var current = state.getWheelHamster(event.wheelId()).orElse(null);
-        if (!Objects.equals(current, event.hamsterId())) {
-            state.occupyWheel(event.wheelId(), event.hamsterId());
+        if (state.wheelHamster(wheel) != hamster) {
+            state.occupyWheel(wheel, hamster);
         }
-        var date = java.time.Instant.ofEpochMilli(receivedAt).atZone(TrackerState.ZONE).toLocalDate();
-        state.statsFor(date, event.hamsterId()).addRounds(0);
-        log.info("Enter: hamster={} wheel={}", event.hamsterId(), event.wheelId());
+        state.addRounds(days.dateOf(receivedAt), hamster, 0, -1);
+        log.debug("Enter: hamster={} wheel={}", event.hamsterId(), event.wheelId());
     }
 
     private void handleExit(HamsterExit event, long receivedAt) {
         Objects.requireNonNull(event.hamsterId(), "HamsterId is required");
         Objects.requireNonNull(event.wheelId(), "WheelId is required");
-        state.updateHamsterLastEvent(event.hamsterId(), receivedAt);
+        int hamster = state.internHamster(event.hamsterId());
+        int wheel = state.lookupWheel(event.wheelId());
+        state.updateHamsterLastEvent(hamster, receivedAt);
         // идемпотентность
-        String current = state.getWheelHamster(event.wheelId()).orElse(null);
-        if (Objects.equals(current, event.hamsterId())) {
-            state.releaseWheel(event.wheelId(), event.hamsterId());
-            log.info("Exit: hamster={} wheel={}", event.hamsterId(), event.wheelId());
+        if (wheel != TrackerState.NONE && state.wheelHamster(wheel) == hamster) {
+            state.releaseWheel(wheel, hamster);
+            log.debug("Exit: hamster={} wheel={}", event.hamsterId(), event.wheelId());
         } else {
             log.warn("Exit ignored: hamster {} is not occupying wheel {}", event.hamsterId(), event.wheelId());
         }
@@ -104,15 +280,19 @@ public class EventProcessor {
             return;
         }
 
-        String hamster = state.getWheelHamster(event.wheelId()).orElse(null);
-        if (hamster == null) {
+        int wheel = state.lookupWheel(event.wheelId());
+        int hamster = state.wheelHamster(wheel);
+        if (hamster == TrackerState.NONE) {
+            unknownHamsterSpins.increment();
             log.warn("WheelSpin {} by unknown hamster", event);
             return;
         }
 
-        if (!state.shouldAcceptSpin(event.wheelId(), event.durationMs(), receivedAt, props.deduplicationWindowMs())) {
-            log.debug("Deduplicated spin: wheel={} durationMs={} ts={}",
-                    event.wheelId(), event.durationMs(), receivedAt);
+        if (!state.shouldAcceptSpin(wheel, event.durationMs(), receivedAt, props.deduplicationWindowMs())) {
+            if (log.isDebugEnabled()) {
+                log.debug("Deduplicated spin: wheel={} durationMs={} ts={}",
+                        event.wheelId(), event.durationMs(), receivedAt);
+            }
             return;
         }
 
@@ -120,19 +300,35 @@ public class EventProcessor {
         if (rounds <= 0) return;
 
         state.updateHamsterLastEvent(hamster, receivedAt);
-        state.statsFor(dateOf(receivedAt), hamster).addRounds(rounds);
+        // все круги вращения — в корзину времени, когда оно пришло
+        state.addRounds(days.dateOf(receivedAt), hamster, rounds, days.minuteOfDay(receivedAt));
 
-        log.info("Spin: hamster={} wheel={} +{} rounds", hamster, event.wheelId(), rounds);
+        // на каждое событие — только debug под проверкой уровня: иначе массив аргументов и boxing на каждый спин
+        if (log.isDebugEnabled()) {
+            log.debug("Spin: hamster={} wheel={} +{} rounds", state.hamsterName(hamster), event.wheelId(), rounds);
+        }
     }
 
     private void handleFailure(SensorFailure e, String sensorId, long receivedAt) {
         if (sensorId != null && !sensorId.isBlank()) {
-            state.updateSensorLastEvent(sensorId, receivedAt);
+            state.updateSensorLastEvent(state.internSensor(sensorId), receivedAt);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("SensorFailure: sensorId={} code={}", e.sensorId(), e.errorCode());
         }
-        log.info("SensorFailure: sensorId={} code={}", e.sensorId(), e.errorCode());
     }
 
-    private static LocalDate dateOf(long tsMs) {
-        return Instant.ofEpochMilli(tsMs).atZone(TrackerState.ZONE).toLocalDate();
+    private static final class Pause {
+        private final CountDownLatch arrived;
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        Pause(int shards) {
+            this.arrived = new CountDownLatch(shards);
+        }
+
+        void arriveAndAwait() throws InterruptedException {
+            arrived.countDown();
+            released.await();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.hamsterhub.tracker.engine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+@Component
+class ExportMetrics implements MeterBinder {
+    private final DailyStatsExporter exporter;
+
+    ExportMetrics(DailyStatsExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tracker.export.dirty", exporter, DailyStatsExporter::dirtyCells)
+                .description("Cells changed since the last incremental flush")
+                .register(registry);
+        FunctionCounter.builder("tracker.export.flushed", exporter, DailyStatsExporter::flushedCells)
+                .register(registry);
+        FunctionCounter.builder("tracker.export.failures", exporter, DailyStatsExporter::failedFlushes)
+                .register(registry);
+    }
+}
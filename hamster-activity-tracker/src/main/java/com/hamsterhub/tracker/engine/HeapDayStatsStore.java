@@ -0,0 +1,231 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.HourlyProperties;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// ячейки объектами в куче: карта дня по строковому id
+final class HeapDayStatsStore implements DayStatsStore {
+    private final Map<LocalDate, Map<String, TrackerState.DayStats>> daily = new ConcurrentHashMap<>();
+    private final Map<LocalDate, DayLeaderboard> leaderboards = new ConcurrentHashMap<>();
+    private final DirtyStatsQueue dirtyStats = new DirtyStatsQueue();
+    private final IdDictionary hamsters;
+    private final int leaderboardSize;
+    private final int bucketMinutes;
+
+    HeapDayStatsStore(IdDictionary hamsters, int leaderboardSize, int bucketMinutes) {
+        this.hamsters = hamsters;
+        this.leaderboardSize = leaderboardSize;
+        this.bucketMinutes = bucketMinutes;
+    }
+
+    // сначала get: computeIfAbsent с захватывающей лямбдой аллоцирует её на каждый вызов, даже при попадании
+    @Override
+    public TrackerState.DayStats statsFor(LocalDate date, String hamsterId) {
+        Map<String, TrackerState.DayStats> day = daily.get(date);
+        if (day == null) {
+            day = daily.computeIfAbsent(date, d -> new ConcurrentHashMap<>());
+        }
+        TrackerState.DayStats stats = day.get(hamsterId);
+        if (stats != null) {
+            return stats;
+        }
+        return day.computeIfAbsent(hamsterId, id -> new Cell(date, id, dirtyStats, boardFor(date), bucketMinutes));
+    }
+
+    @Override
+    public void addRounds(LocalDate date, int hamster, int rounds, int minuteOfDay) {
+        statsFor(date, hamsters.name(hamster)).addRounds(rounds, minuteOfDay);
+    }
+
+    @Override
+    public Map<String, TrackerState.DayStats> statsForDate(LocalDate date) {
+        return daily.getOrDefault(date, Map.of());
+    }
+
+    @Override
+    public Optional<DayLeaderboard> leaderboard(LocalDate date) {
+        return Optional.ofNullable(leaderboards.get(date));
+    }
+
+    private DayLeaderboard boardFor(LocalDate date) {
+        return leaderboards.computeIfAbsent(date, d -> new DayLeaderboard(leaderboardSize));
+    }
+
+    @Override
+    public Set<LocalDate> days() {
+        return daily.keySet();
+    }
+
+    @Override
+    public void removeDay(LocalDate date) {
+        daily.remove(date);
+        leaderboards.remove(date);
+    }
+
+    // восстановленные ячейки помечаются изменёнными — БД могла отстать от снапшота
+    @Override
+    public void restoreDay(LocalDate date, String[] hamsterIds, long[] rounds, char[][] buckets, int count) {
+        Map<String, TrackerState.DayStats> stats = new ConcurrentHashMap<>(Math.max(16, count * 4 / 3 + 1));
+        DayLeaderboard board = new DayLeaderboard(leaderboardSize);
+        leaderboards.put(date, board);
+        for (int i = 0; i < count; i++) {
+            Cell cell = new Cell(date, hamsterIds[i], dirtyStats, board, bucketMinutes);
+            cell.addRounds((int) rounds[i], -1);
+            if (buckets != null && buckets[i] != null) {
+                cell.restoreBuckets(buckets[i]);
+            }
+            stats.put(hamsterIds[i], cell);
+        }
+        daily.put(date, stats);
+    }
+
+    @Override
+    public TrackerState.DayStats pollDirty() {
+        Cell cell = (Cell) dirtyStats.poll();
+        if (cell != null) {
+            cell.clearDirty();
+        }
+        return cell;
+    }
+
+    @Override
+    public int dirtyCount() {
+        return dirtyStats.size();
+    }
+
+    @Override
+    public void trackDirty(boolean tracking) {
+        dirtyStats.setTracking(tracking);
+    }
+
+    @Override
+    public long offHeapBytes() {
+        return 0L;
+    }
+
+    static final class Cell extends TrackerState.DayStats {
+        private static final VarHandle DIRTY;
+        private static final VarHandle BUCKETS;
+        private static final VarHandle BUCKET = MethodHandles.arrayElementVarHandle(char[].class);
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                DIRTY = lookup.findVarHandle(Cell.class, "dirty", boolean.class);
+                BUCKETS = lookup.findVarHandle(Cell.class, "buckets", char[].class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final DirtyStatsQueue dirtyQueue;
+        private final DayLeaderboard leaderboard;
+        private final LongAdder totalRounds = new LongAdder();
+        private final int bucketMinutes;
+        private volatile boolean dirty;
+        // место в топе дня, -1 — не в топе; пишет только DayLeaderboard под своей блокировкой
+        private volatile int rank = -1;
+        // корзины активности за сутки: беззнаковые 16-битные счётчики с насыщением, 24 часа — 64 байта.
+        // Заводятся при первом вращении с известным временем, у хомяка без вращений их нет
+        private volatile char[] buckets;
+
+        // новая ячейка сразу изменённая: в БД должна попасть и запись с нулём кругов
+        Cell(LocalDate date, String hamsterId, DirtyStatsQueue dirtyQueue, DayLeaderboard leaderboard,
+             int bucketMinutes) {
+            super(date, hamsterId);
+            this.dirtyQueue = dirtyQueue;
+            this.leaderboard = leaderboard;
+            this.bucketMinutes = bucketMinutes;
+            markDirty();
+            leaderboard.offer(this);
+        }
+
+        @Override
+        void addRounds(int rounds, int minuteOfDay) {
+            if (rounds > 0) {
+                totalRounds.add(rounds);
+                if (bucketMinutes > 0 && minuteOfDay >= 0) {
+                    addToBucket(minuteOfDay / bucketMinutes, rounds);
+                }
+                markDirty();
+                leaderboard.offer(this);
+            }
+        }
+
+        @Override
+        int rank() {
+            return rank;
+        }
+
+        @Override
+        void setRank(int rank) {
+            this.rank = rank;
+        }
+
+        @Override
+        int totalRounds() {
+            return totalRounds.intValue();
+        }
+
+        @Override
+        int[] buckets() {
+            char[] current = buckets;
+            if (current == null) {
+                return null;
+            }
+            int[] copy = new int[current.length];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = (char) BUCKET.getVolatile(current, i);
+            }
+            return copy;
+        }
+
+        @Override
+        char[] rawBuckets() {
+            char[] current = buckets;
+            return current == null ? null : current.clone();
+        }
+
+        // корзины другой ширины (настройку поменяли между рестартами) не восстанавливаем
+        void restoreBuckets(char[] restored) {
+            if (bucketMinutes > 0 && restored.length == HourlyProperties.MINUTES_PER_DAY / bucketMinutes) {
+                buckets = restored.clone();
+            }
+        }
+
+        @Override
+        void markDirty() {
+            if (!dirty && DIRTY.compareAndSet(this, false, true)) {
+                dirtyQueue.offer(this);
+            }
+        }
+
+        void clearDirty() {
+            dirty = false;
+        }
+
+        // одну ячейку могут наращивать шарды разных колёс, поэтому CAS; переполнение упирается в 65535
+        private void addToBucket(int bucket, int rounds) {
+            char[] current = buckets;
+            if (current == null) {
+                char[] created = new char[HourlyProperties.MINUTES_PER_DAY / bucketMinutes];
+                current = BUCKETS.compareAndSet(this, null, created) ? created : buckets;
+            }
+            int index = Math.min(bucket, current.length - 1);
+            char prev;
+            char next;
+            do {
+                prev = (char) BUCKET.getVolatile(current, index);
+                next = (char) Math.min(Character.MAX_VALUE, prev + rounds);
+            } while (prev != next && !BUCKET.compareAndSet(current, index, prev, next));
+        }
+    }
+}
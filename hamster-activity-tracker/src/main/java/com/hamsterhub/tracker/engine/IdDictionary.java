@@ -0,0 +1,70 @@
+package com.hamsterhub.tracker.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Внешние id ("wheel-N", "ham-N", "sensor-N") → плотные int, чтобы состояние хранить в примитивных массивах.
+ * Выданный номер больше не меняется.
+ */
+final class IdDictionary {
+    static final int NONE = -1;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private volatile int size;
+
+    int intern(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : register(name);
+    }
+
+    int lookup(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : NONE;
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    // имена в порядке id: повторный intern в том же порядке выдаёт те же номера
+    String[] names() {
+        int n = size;
+        return Arrays.copyOf(names, n);
+    }
+
+    // загрузка снапшота в пустой словарь: одна блокировка на всё вместо intern по одному
+    synchronized void restore(String[] restored) {
+        if (size != 0) {
+            throw new IllegalStateException("Dictionary is not empty");
+        }
+        names = Arrays.copyOf(restored, Math.max(64, restored.length));
+        size = restored.length;
+        for (int id = 0; id < restored.length; id++) {
+            ids.put(restored[id], id);
+        }
+    }
+
+    private synchronized int register(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        String[] current = names;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = name;
+        names = current;
+        size = id + 1;
+        // публикуем id только после того, как имя уже видно через names
+        ids.put(name, id);
+        return id;
+    }
+}
@@ -1,59 +1,76 @@
 package com.hamsterhub.tracker.engine;
 
+import com.hamsterhub.tracker.config.InactivityProperties;
 import com.hamsterhub.tracker.config.TrackerProperties;
-import com.hamsterhub.tracker.service.AlertService;
+import com.hamsterhub.tracker.service.Alert;
+import com.hamsterhub.tracker.service.AlertDispatcher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 
 import java.time.Duration;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Раз в tickMs продвигает колёса дедлайнов (см. {@link DeadlineWheel}) и шлёт алерт по каждому истёкшему.
+ * Алерт уходит один раз: истёкшая сущность снимается с колеса до своего следующего события.
+ * Доставка асинхронная (см. {@link AlertDispatcher}), поэтому медленная почта проверку не задерживает.
+ */
 @Component
 class InactivityMonitor {
 
     private final TrackerState state;
-    private final AlertService alerts;
-    private final TrackerProperties props;
-    private final Disposable task;
-    private final ConcurrentHashMap.KeySetView<String, Boolean> hamsterAlerted =
-            ConcurrentHashMap.newKeySet();
-    private final ConcurrentHashMap.KeySetView<String, Boolean> sensorAlerted  =
-            ConcurrentHashMap.newKeySet();
-
-    InactivityMonitor(TrackerState state, AlertService alerts, TrackerProperties props) {
+    private final AlertDispatcher alerts;
+    private final InactivityProperties inactivityProps;
+    private final DeadlineWheel hamsters;
+    private final DeadlineWheel sensors;
+    private Disposable task;
+
+    InactivityMonitor(TrackerState state,
+                      AlertDispatcher alerts,
+                      TrackerProperties props,
+                      InactivityProperties inactivityProps) {
         this.state = state;
         this.alerts = alerts;
-        this.props = props;
+        this.inactivityProps = inactivityProps;
+        this.hamsters = new DeadlineWheel(props.hamsterInactivityMs(), inactivityProps.tickMs(), state::hamsterLastEvent);
+        this.sensors = new DeadlineWheel(props.sensorInactivityMs(), inactivityProps.tickMs(), state::sensorLastEvent);
+        state.watchInactivity(hamsters, sensors);
+    }
 
-        this.task = Flux.interval(Duration.ofMinutes(1))
+    @PostConstruct
+    void start() {
+        this.task = Flux.interval(Duration.ofMillis(Math.max(1, inactivityProps.tickMs())))
                 .onBackpressureDrop()
                 .subscribe(t -> check());
     }
 
+    // состояние могли восстановить из снапшота уже после подключения колёс — взводим всех ещё раз
+    @EventListener(ApplicationReadyEvent.class)
+    void armRestored() {
+        state.armExisting();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (task != null) {
+            task.dispose();
+        }
+    }
+
     void check() {
-        long now = System.currentTimeMillis();
-
-        // проверяем хомяков
-        state.hamstersLastSeen().forEach((hamId, lastTs) -> {
-            boolean inactive = now - lastTs > props.hamsterInactivityMs();
-            if (inactive) {
-                if (hamsterAlerted.add(hamId)) {
-                    alerts.sendAlert("Hamster %s inactive".formatted(hamId));
-                }
-            } else {
-                hamsterAlerted.remove(hamId);
-            }
-        });
-
-        // проверяем сенсоры
-        state.sensorsLastSeen().forEach((sensorId, last) -> {
-            boolean inactive = now - last > props.sensorInactivityMs();
-            if (inactive) {
-                if (sensorAlerted.add(sensorId)) alerts.sendAlert("Sensor %s inactive".formatted(sensorId));
-            } else {
-                sensorAlerted.remove(sensorId);
-            }
-        });
+        check(System.currentTimeMillis());
+    }
+
+    synchronized void check(long nowMs) {
+        hamsters.advance(nowMs, id -> alerts.submit(Alert.hamsterInactive(state.hamsterName(id))));
+        sensors.advance(nowMs, id -> alerts.submit(Alert.sensorInactive(state.sensorName(id))));
+    }
+
+    int scheduled() {
+        return hamsters.scheduled() + sensors.scheduled();
     }
 }
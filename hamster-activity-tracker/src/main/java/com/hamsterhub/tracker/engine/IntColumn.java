@@ -0,0 +1,38 @@
+package com.hamsterhub.tracker.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+// int[] по плотному id с заданным значением по умолчанию
+final class IntColumn extends PagedArray<int[]> {
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int initial;
+
+    IntColumn(int initial) {
+        this.initial = initial;
+    }
+
+    @Override
+    int[] newPage() {
+        int[] page = new int[PAGE_SIZE];
+        if (initial != 0) {
+            Arrays.fill(page, initial);
+        }
+        return page;
+    }
+
+    int get(int index) {
+        int[] page = pageOrNull(index);
+        return page != null ? (int) SLOT.getVolatile(page, offset(index)) : initial;
+    }
+
+    void set(int index, int value) {
+        SLOT.setVolatile(page(index), offset(index), value);
+    }
+
+    boolean compareAndSet(int index, int expected, int value) {
+        return SLOT.compareAndSet(page(index), offset(index), expected, value);
+    }
+}
@@ -0,0 +1,282 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.model.EventWrapper;
+import hamsterhub.common.events.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Один файл журнала, отображённый в память.
+ * Заголовок: [magic, version, createdAt]. Запись: [длина тела, crc32c тела, тело].
+ * Нулевая длина или несовпавший crc — конец журнала (хвост, не дописанный при падении).
+ */
+final class JournalSegment implements Closeable {
+    static final int HEADER_SIZE = 16;
+    private static final int MAGIC = 0x484A524E; // "HJRN"
+    private static final int VERSION = 1;
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_STRING = Short.MAX_VALUE;
+    private static final String SUFFIX = ".journal";
+
+    private static final byte ENTER = 1;
+    private static final byte EXIT = 2;
+    private static final byte SPIN = 3;
+    private static final byte FAILURE = 4;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long createdAt;
+    private final CRC32C crc = new CRC32C();
+
+    private JournalSegment(Path path, FileChannel channel, MappedByteBuffer buffer, long createdAt) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.createdAt = createdAt;
+    }
+
+    static JournalSegment create(Path path, long createdAt, int sizeBytes) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes);
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, createdAt);
+        buffer.position(HEADER_SIZE);
+        return new JournalSegment(path, channel, buffer, createdAt);
+    }
+
+    static JournalSegment openForReplay(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Not a journal segment: " + path);
+        }
+        buffer.position(HEADER_SIZE);
+        return new JournalSegment(path, channel, buffer, buffer.getLong(8));
+    }
+
+    // coversUntil — граница, раньше которой лежат все receivedAt сегмента; по ней журнал режется после выгрузки
+    static String fileName(long createdAt, int sequence, long coversUntil) {
+        return String.format("%019d-%04d-%019d%s", createdAt, sequence, coversUntil, SUFFIX);
+    }
+
+    static boolean isSegment(Path path) {
+        return path.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    static long coversUntil(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('-') + 1, name.length() - SUFFIX.length()));
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long createdAt() {
+        return createdAt;
+    }
+
+    int position() {
+        return buffer.position();
+    }
+
+    /**
+     * @return false, если запись не поместилась — пора открывать следующий сегмент
+     */
+    boolean append(EventWrapper eventWrapper) {
+        if (buffer.remaining() < RECORD_HEADER + maxBodySize(eventWrapper)) {
+            return false;
+        }
+        int start = buffer.position();
+        int bodyStart = start + RECORD_HEADER;
+        try {
+            buffer.position(bodyStart);
+            writeBody(eventWrapper);
+        } catch (RuntimeException e) {
+            buffer.position(start);
+            throw e;
+        }
+        int bodyEnd = buffer.position();
+        int limit = buffer.limit();
+        buffer.position(bodyStart).limit(bodyEnd);
+        crc.reset();
+        crc.update(buffer);
+        buffer.limit(limit);
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.putInt(start, bodyEnd - bodyStart);
+        return true;
+    }
+
+    void force(int from, int to) {
+        if (to > from) {
+            buffer.force(from, to - from);
+        }
+    }
+
+    // проигрывает записи по порядку; возвращает их число
+    int replay(Consumer<EventWrapper> consumer) {
+        return replay(HEADER_SIZE, consumer);
+    }
+
+    // from — позиция, сохранённая в снапшоте: всё до неё уже применено
+    int replay(int from, Consumer<EventWrapper> consumer) {
+        int count = 0;
+        int pos = Math.max(HEADER_SIZE, from);
+        while (pos + RECORD_HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(pos);
+            int bodyStart = pos + RECORD_HEADER;
+            if (length <= 0 || bodyStart + length > buffer.capacity()) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(bodyStart, length));
+            if ((int) crc.getValue() != buffer.getInt(pos + 4)) {
+                break;
+            }
+            buffer.position(bodyStart);
+            consumer.accept(readBody());
+            count++;
+            pos = bodyStart + length;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Влезают ли все строки записи в поле длины: такие id отсекает приём, а здесь — последний рубеж,
+     * чтобы запись можно было пропустить, не роняя поток шарда.
+     */
+    static boolean fits(EventWrapper eventWrapper) {
+        boolean fits = fits(eventWrapper.sensorId());
+        return fits && switch (eventWrapper.event()) {
+            case HamsterEnter e -> fits(e.hamsterId()) && fits(e.wheelId());
+            case HamsterExit e -> fits(e.hamsterId()) && fits(e.wheelId());
+            case WheelSpin e -> fits(e.wheelId());
+            case SensorFailure e -> fits(e.sensorId());
+        };
+    }
+
+    // до MAX_STRING / 3 символов влезает в любом случае, длиннее — считаем байты
+    private static boolean fits(String value) {
+        return value == null || value.length() <= MAX_STRING / 3
+                || value.length() <= MAX_STRING && value.getBytes(StandardCharsets.UTF_8).length <= MAX_STRING;
+    }
+
+    // оценка сверху: тип, ts, число и до трёх строк по 3 байта UTF-8 на символ
+    private static int maxBodySize(EventWrapper eventWrapper) {
+        int chars = length(eventWrapper.sensorId());
+        switch (eventWrapper.event()) {
+            case HamsterEnter e -> chars += length(e.hamsterId()) + length(e.wheelId());
+            case HamsterExit e -> chars += length(e.hamsterId()) + length(e.wheelId());
+            case WheelSpin e -> chars += length(e.wheelId());
+            case SensorFailure e -> chars += length(e.sensorId());
+        }
+        return 1 + 8 + 8 + 3 * 2 + 3 * chars;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private void writeBody(EventWrapper eventWrapper) {
+        switch (eventWrapper.event()) {
+            case HamsterEnter e -> {
+                writeHeader(ENTER, eventWrapper);
+                writeString(e.hamsterId());
+                writeString(e.wheelId());
+            }
+            case HamsterExit e -> {
+                writeHeader(EXIT, eventWrapper);
+                writeString(e.hamsterId());
+                writeString(e.wheelId());
+            }
+            case WheelSpin e -> {
+                writeHeader(SPIN, eventWrapper);
+                writeString(e.wheelId());
+                buffer.putLong(e.durationMs());
+            }
+            case SensorFailure e -> {
+                writeHeader(FAILURE, eventWrapper);
+                writeString(e.sensorId());
+                buffer.putInt(e.errorCode());
+            }
+        }
+    }
+
+    private void writeHeader(byte type, EventWrapper eventWrapper) {
+        buffer.put(type);
+        buffer.putLong(eventWrapper.receivedAt());
+        writeString(eventWrapper.sensorId());
+    }
+
+    // id у нас ASCII, поэтому обычно пишем посимвольно без промежуточного byte[]
+    private void writeString(String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        int lengthPos = buffer.position();
+        buffer.position(lengthPos + 2);
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                buffer.position(lengthPos + 2);
+                writeUtf8(lengthPos, value);
+                return;
+            }
+            buffer.put((byte) c);
+        }
+        if (length > MAX_STRING) {
+            throw new IllegalArgumentException("Id is too long for journal: " + length);
+        }
+        buffer.putShort(lengthPos, (short) length);
+    }
+
+    private void writeUtf8(int lengthPos, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING) {
+            throw new IllegalArgumentException("Id is too long for journal: " + bytes.length);
+        }
+        buffer.put(bytes);
+        buffer.putShort(lengthPos, (short) bytes.length);
+    }
+
+    private EventWrapper readBody() {
+        byte type = buffer.get();
+        long receivedAt = buffer.getLong();
+        String sensorId = readString();
+        HamsterEvent event = switch (type) {
+            case ENTER -> new HamsterEnter(readString(), readString());
+            case EXIT -> new HamsterExit(readString(), readString());
+            case SPIN -> new WheelSpin(readString(), buffer.getLong());
+            case FAILURE -> new SensorFailure(readString(), buffer.getInt());
+            default -> throw new IllegalStateException("Unknown journal record type " + type + " in " + path);
+        };
+        return new EventWrapper(event, sensorId, receivedAt);
+    }
+
+    private String readString() {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,40 @@
+package com.hamsterhub.tracker.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// long[] по плотному id; 0 — "значения нет"
+final class LongColumn extends PagedArray<long[]> {
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    @Override
+    long[] newPage() {
+        return new long[PAGE_SIZE];
+    }
+
+    long get(int index) {
+        long[] page = pageOrNull(index);
+        return page != null ? (long) SLOT.getVolatile(page, offset(index)) : 0L;
+    }
+
+    void set(int index, long value) {
+        SLOT.setVolatile(page(index), offset(index), value);
+    }
+
+    boolean compareAndSet(int index, long expected, long value) {
+        return SLOT.compareAndSet(page(index), offset(index), expected, value);
+    }
+
+    // монотонное обновление: меньшее значение не перетирает большее
+    void accumulateMax(int index, long value) {
+        long[] page = page(index);
+        int offset = offset(index);
+        long current;
+        do {
+            current = (long) SLOT.getVolatile(page, offset);
+            if (current >= value) {
+                return;
+            }
+        } while (!SLOT.compareAndSet(page, offset, current, value));
+    }
+}
@@ -0,0 +1,431 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.HourlyProperties;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ячейки дня вне кучи: по таблице на день, слот ячейки — по плотному номеру хомяка из {@link IdDictionary}
+ * в страницах direct ByteBuffer. Номера плотные, поэтому вместо хэш-таблицы прямой индекс: ни ключей, ни проб,
+ * ни рехеша. В куче остаются только страницы по {@link PagedArray#PAGE_SIZE} слотов и топ дня — число объектов
+ * не растёт с числом хомяков, и сборщику нечего обходить.
+ * <p>
+ * Слот: [флаги, итог, место в топе + 1, изменён, корзины по две в int], все поля — int с атомарным доступом
+ * через VarHandle, нулевая память — пустой слот. {@link TrackerState.DayStats} здесь — короткоживущий вид на слот
+ * для отчётов, выгрузки и снапшота; путь шарда {@link #addRounds} пишет в слот напрямую.
+ */
+final class OffHeapDayStatsStore implements DayStatsStore {
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    // смещения полей слота в байтах
+    private static final int FLAGS = 0;
+    private static final int TOTAL = 4;
+    private static final int RANK = 8;
+    private static final int DIRTY = 12;
+    private static final int BUCKETS = 16;
+
+    private static final int PRESENT = 1;
+    private static final int HAS_BUCKETS = 2;
+    private static final int BUCKET_MAX = 0xFFFF;
+
+    private final Map<LocalDate, Day> daily = new ConcurrentHashMap<>();
+    private final IdDictionary hamsters;
+    private final int leaderboardSize;
+    private final int bucketMinutes;
+    private final int bucketCount;
+    private final int slotBytes;
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicInteger dirtyCount = new AtomicInteger();
+    private volatile boolean tracking = true;
+
+    // курсор непрерывной выгрузки; её разбирает один поток, поэтому под блокировкой pollDirty
+    private LocalDate cursorDay;
+    private int cursorId;
+
+    OffHeapDayStatsStore(IdDictionary hamsters, int leaderboardSize, int bucketMinutes) {
+        this.hamsters = hamsters;
+        this.leaderboardSize = leaderboardSize;
+        this.bucketMinutes = bucketMinutes;
+        this.bucketCount = bucketMinutes > 0 ? HourlyProperties.MINUTES_PER_DAY / bucketMinutes : 0;
+        // 24 корзины — 64 байта на слот, ровно строка кэша
+        this.slotBytes = BUCKETS + (bucketCount + 1) / 2 * Integer.BYTES;
+    }
+
+    @Override
+    public TrackerState.DayStats statsFor(LocalDate date, String hamsterId) {
+        int hamster = hamsters.intern(hamsterId);
+        Day day = day(date);
+        claim(day, day.page(hamster), slot(hamster), hamster);
+        return new Cell(day, hamster);
+    }
+
+    @Override
+    public void addRounds(LocalDate date, int hamster, int rounds, int minuteOfDay) {
+        Day day = day(date);
+        ByteBuffer page = day.page(hamster);
+        int slot = slot(hamster);
+        claim(day, page, slot, hamster);
+        add(day, page, slot, hamster, rounds, minuteOfDay, null);
+    }
+
+    @Override
+    public Map<String, TrackerState.DayStats> statsForDate(LocalDate date) {
+        Day day = daily.get(date);
+        return day == null ? Map.of() : new DayView(day);
+    }
+
+    @Override
+    public Optional<DayLeaderboard> leaderboard(LocalDate date) {
+        Day day = daily.get(date);
+        return day == null ? Optional.empty() : Optional.of(day.board);
+    }
+
+    @Override
+    public Set<LocalDate> days() {
+        return daily.keySet();
+    }
+
+    // страницы освобождает сборщик вместе с их ByteBuffer: запоздавший шард, ещё пишущий в день, не попадёт в чужую память
+    @Override
+    public void removeDay(LocalDate date) {
+        Day day = daily.remove(date);
+        if (day == null) {
+            return;
+        }
+        int dirty = 0;
+        for (int id = day.next(0); id >= 0; id = day.next(id + 1)) {
+            if (INT.compareAndSet(day.pageOrNull(id), slot(id) + DIRTY, 1, 0)) {
+                dirty++;
+            }
+        }
+        dirtyCount.addAndGet(-dirty);
+        allocatedBytes.addAndGet(-day.bytes.get());
+    }
+
+    // восстановленные ячейки помечаются изменёнными — БД могла отстать от снапшота
+    @Override
+    public void restoreDay(LocalDate date, String[] hamsterIds, long[] rounds, char[][] buckets, int count) {
+        Day day = new Day(date);
+        for (int i = 0; i < count; i++) {
+            int hamster = hamsters.intern(hamsterIds[i]);
+            ByteBuffer page = day.page(hamster);
+            int slot = slot(hamster);
+            claim(day, page, slot, hamster);
+            if (buckets != null && buckets[i] != null && buckets[i].length == bucketCount) {
+                for (int b = 0; b < bucketCount; b++) {
+                    addToBucket(page, slot, b, buckets[i][b]);
+                }
+            }
+            add(day, page, slot, hamster, (int) rounds[i], -1, null);
+        }
+        daily.put(date, day);
+    }
+
+    /**
+     * Обходит таблицы дней от курсора по флагу «изменён»: за вызов не больше одного круга по всем дням.
+     * Счётчик изменённых даёт сразу ответить «пусто», не трогая память таблиц.
+     */
+    @Override
+    public synchronized TrackerState.DayStats pollDirty() {
+        int expected = dirtyCount.get();
+        int days = daily.size();
+        for (int visited = 0; visited <= days && dirtyCount.get() > 0; visited++) {
+            Day day = cursorDay == null ? null : daily.get(cursorDay);
+            if (day != null) {
+                for (int id = day.next(cursorId); id >= 0; id = day.next(id + 1)) {
+                    if (INT.compareAndSet(day.pageOrNull(id), slot(id) + DIRTY, 1, 0)) {
+                        dirtyCount.decrementAndGet();
+                        cursorId = id + 1;
+                        return new Cell(day, id);
+                    }
+                }
+            }
+            cursorDay = nextDay(cursorDay);
+            cursorId = 0;
+        }
+        // полный круг впустую: счётчик остался от записей в уже удалённый день
+        if (expected > 0) {
+            dirtyCount.compareAndSet(expected, 0);
+        }
+        return null;
+    }
+
+    @Override
+    public int dirtyCount() {
+        return Math.max(0, dirtyCount.get());
+    }
+
+    @Override
+    public void trackDirty(boolean tracking) {
+        this.tracking = tracking;
+    }
+
+    @Override
+    public long offHeapBytes() {
+        return allocatedBytes.get();
+    }
+
+    private Day day(LocalDate date) {
+        Day day = daily.get(date);
+        return day != null ? day : daily.computeIfAbsent(date, Day::new);
+    }
+
+    // следующий по порядку день после current, после последнего — снова первый
+    private LocalDate nextDay(LocalDate current) {
+        LocalDate first = null;
+        LocalDate next = null;
+        for (LocalDate date : daily.keySet()) {
+            if (first == null || date.isBefore(first)) {
+                first = date;
+            }
+            if (current != null && date.isAfter(current) && (next == null || date.isBefore(next))) {
+                next = date;
+            }
+        }
+        return next != null ? next : first;
+    }
+
+    private int slot(int hamster) {
+        return PagedArray.offset(hamster) * slotBytes;
+    }
+
+    // первое обращение к слоту: ячейка появляется изменённой и с нулём кругов, как в куче
+    private void claim(Day day, ByteBuffer page, int slot, int hamster) {
+        if (((int) INT.getVolatile(page, slot + FLAGS) & PRESENT) != 0
+                || ((int) INT.getAndBitwiseOr(page, slot + FLAGS, PRESENT) & PRESENT) != 0) {
+            return;
+        }
+        day.size.incrementAndGet();
+        day.limit.accumulateAndGet(hamster + 1, Math::max);
+        markDirty(page, slot);
+        day.board.offer(new Cell(day, hamster));
+    }
+
+    // self — вид, через который пришла прибавка; null — вид для топа создаётся, только если ячейка в него проходит.
+    // Хомяк, уже стоящий в топе, сюда не проходит: ни вида, ни имени из словаря, ни монитора топа
+    private void add(Day day, ByteBuffer page, int slot, int hamster, int rounds, int minuteOfDay, Cell self) {
+        if (rounds <= 0) {
+            return;
+        }
+        int total = (int) INT.getAndAdd(page, slot + TOTAL, rounds) + rounds;
+        if (bucketCount > 0 && minuteOfDay >= 0) {
+            addToBucket(page, slot, Math.min(minuteOfDay / bucketMinutes, bucketCount - 1), rounds);
+        }
+        markDirty(page, slot);
+        if (day.board.accepts((int) INT.getVolatile(page, slot + RANK) - 1, total)) {
+            day.board.offer(self != null ? self : new Cell(day, hamster));
+        }
+    }
+
+    // две 16-битные корзины в одном int, CAS на весь int; переполнение упирается в 65535
+    private void addToBucket(ByteBuffer page, int slot, int bucket, int rounds) {
+        if (rounds <= 0) {
+            return;
+        }
+        int offset = slot + BUCKETS + (bucket >>> 1) * Integer.BYTES;
+        int shift = (bucket & 1) << 4;
+        int prev;
+        int next;
+        do {
+            prev = (int) INT.getVolatile(page, offset);
+            int count = (prev >>> shift) & BUCKET_MAX;
+            if (count == BUCKET_MAX) {
+                break;
+            }
+            next = prev & ~(BUCKET_MAX << shift) | Math.min(BUCKET_MAX, count + rounds) << shift;
+        } while (!INT.compareAndSet(page, offset, prev, next));
+        if (((int) INT.getVolatile(page, slot + FLAGS) & HAS_BUCKETS) == 0) {
+            INT.getAndBitwiseOr(page, slot + FLAGS, HAS_BUCKETS);
+        }
+    }
+
+    private void markDirty(ByteBuffer page, int slot) {
+        if (tracking && (int) INT.getVolatile(page, slot + DIRTY) == 0 && INT.compareAndSet(page, slot + DIRTY, 0, 1)) {
+            dirtyCount.incrementAndGet();
+        }
+    }
+
+    private int bucket(ByteBuffer page, int slot, int bucket) {
+        return (int) INT.getVolatile(page, slot + BUCKETS + (bucket >>> 1) * Integer.BYTES) >>> ((bucket & 1) << 4)
+                & BUCKET_MAX;
+    }
+
+    private final class Day extends PagedArray<ByteBuffer> {
+        final LocalDate date;
+        final DayLeaderboard board = new DayLeaderboard(leaderboardSize);
+        final AtomicInteger size = new AtomicInteger();
+        // номера хомяков дня меньше limit: дальше обход не идёт
+        final AtomicInteger limit = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+
+        Day(LocalDate date) {
+            this.date = date;
+        }
+
+        // страница выделяется под блокировкой PagedArray, один раз
+        @Override
+        ByteBuffer newPage() {
+            int length = PAGE_SIZE * slotBytes;
+            bytes.addAndGet(length);
+            allocatedBytes.addAndGet(length);
+            return ByteBuffer.allocateDirect(length);
+        }
+
+        // первый занятый номер не меньше from; -1 — таких нет
+        int next(int from) {
+            int end = limit.get();
+            for (int id = from; id < end; id++) {
+                ByteBuffer page = pageOrNull(id);
+                if (page == null) {
+                    id |= PAGE_MASK;
+                } else if (((int) INT.getVolatile(page, slot(id) + FLAGS) & PRESENT) != 0) {
+                    return id;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final class Cell extends TrackerState.DayStats {
+        private final Day day;
+        private final int hamster;
+
+        Cell(Day day, int hamster) {
+            super(day.date, hamsters.name(hamster));
+            this.day = day;
+            this.hamster = hamster;
+        }
+
+        @Override
+        void addRounds(int rounds, int minuteOfDay) {
+            add(day, day.page(hamster), slot(hamster), hamster, rounds, minuteOfDay, this);
+        }
+
+        @Override
+        int totalRounds() {
+            return (int) INT.getVolatile(day.page(hamster), slot(hamster) + TOTAL);
+        }
+
+        @Override
+        int rank() {
+            return (int) INT.getVolatile(day.page(hamster), slot(hamster) + RANK) - 1;
+        }
+
+        @Override
+        void setRank(int rank) {
+            INT.setVolatile(day.page(hamster), slot(hamster) + RANK, rank + 1);
+        }
+
+        @Override
+        void markDirty() {
+            OffHeapDayStatsStore.this.markDirty(day.page(hamster), slot(hamster));
+        }
+
+        @Override
+        int[] buckets() {
+            ByteBuffer page = day.page(hamster);
+            int slot = slot(hamster);
+            if (((int) INT.getVolatile(page, slot + FLAGS) & HAS_BUCKETS) == 0) {
+                return null;
+            }
+            int[] buckets = new int[bucketCount];
+            for (int b = 0; b < bucketCount; b++) {
+                buckets[b] = bucket(page, slot, b);
+            }
+            return buckets;
+        }
+
+        @Override
+        char[] rawBuckets() {
+            int[] buckets = buckets();
+            if (buckets == null) {
+                return null;
+            }
+            char[] raw = new char[buckets.length];
+            for (int b = 0; b < raw.length; b++) {
+                raw[b] = (char) buckets[b];
+            }
+            return raw;
+        }
+    }
+
+    // карта дня поверх таблицы: get — по словарю без обхода, итерация — по занятым слотам
+    private final class DayView extends AbstractMap<String, TrackerState.DayStats> {
+        private final Day day;
+
+        DayView(Day day) {
+            this.day = day;
+        }
+
+        @Override
+        public TrackerState.DayStats get(Object key) {
+            if (!(key instanceof String hamsterId)) {
+                return null;
+            }
+            int hamster = hamsters.lookup(hamsterId);
+            if (hamster == IdDictionary.NONE || hamster >= day.limit.get()) {
+                return null;
+            }
+            ByteBuffer page = day.pageOrNull(hamster);
+            return page != null && ((int) INT.getVolatile(page, slot(hamster) + FLAGS) & PRESENT) != 0
+                    ? new Cell(day, hamster)
+                    : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return day.size.get();
+        }
+
+        @Override
+        public Set<Entry<String, TrackerState.DayStats>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return day.size.get();
+                }
+
+                @Override
+                public Iterator<Entry<String, TrackerState.DayStats>> iterator() {
+                    return new Iterator<>() {
+                        private int next = day.next(0);
+
+                        @Override
+                        public boolean hasNext() {
+                            return next >= 0;
+                        }
+
+                        @Override
+                        public Entry<String, TrackerState.DayStats> next() {
+                            if (next < 0) {
+                                throw new NoSuchElementException();
+                            }
+                            Cell cell = new Cell(day, next);
+                            next = day.next(next + 1);
+                            return Map.entry(cell.hamsterId(), cell);
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.hamsterhub.tracker.engine;
+
+import java.util.Arrays;
+
+/**
+ * Массив, растущий страницами: выделенные страницы никогда не копируются,
+ * поэтому разные потоки могут писать в разные индексы без общей блокировки.
+ */
+abstract class PagedArray<P> {
+    static final int PAGE_BITS = 10;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private volatile Object[] pages = new Object[16];
+
+    abstract P newPage();
+
+    @SuppressWarnings("unchecked")
+    final P pageOrNull(int index) {
+        Object[] directory = pages;
+        int p = index >>> PAGE_BITS;
+        return p < directory.length ? (P) directory[p] : null;
+    }
+
+    final P page(int index) {
+        P page = pageOrNull(index);
+        return page != null ? page : allocate(index >>> PAGE_BITS);
+    }
+
+    static int offset(int index) {
+        return index & PAGE_MASK;
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized P allocate(int p) {
+        Object[] directory = pages;
+        if (p >= directory.length) {
+            directory = Arrays.copyOf(directory, Math.max(p + 1, directory.length * 2));
+        }
+        if (directory[p] == null) {
+            directory[p] = newPage();
+        }
+        pages = directory;
+        return (P) directory[p];
+    }
+}
@@ -0,0 +1,167 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.PartitionProperties;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Обслуживание помесячных секций daily_stats и hourly_stats: заранее создаёт секции на monthsAhead месяцев вперёд,
+ * а месяцы старше retainMonths отсоединяет, выгружает бинарным COPY в gzip-файл archiveDir и только после записи
+ * файла на диск удаляет. Свёртки weekly_stats/monthly_stats при этом остаются.
+ * Вернуть месяц: создать секцию и {@code gunzip -c daily_stats_YYYY_MM.copy.gz | psql -c "COPY daily_stats FROM STDIN (FORMAT binary)"}
+ * (для hourly_stats — так же).
+ */
+@Component
+class PartitionMaintenanceTask {
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceTask.class);
+    static final List<String> TABLES = List.of("daily_stats", "hourly_stats");
+    private static final String SUFFIX = ".copy.gz";
+
+    private final JdbcTemplate jdbc;
+    private final PartitionProperties props;
+    private final ZoneId zone;
+
+    PartitionMaintenanceTask(JdbcTemplate jdbc, PartitionProperties props, ZoneId zone) {
+        this.jdbc = jdbc;
+        this.props = props;
+        this.zone = zone;
+    }
+
+    @Scheduled(cron = "${tracker.partition.cron:0 30 0 * * *}", zone = "${tracker.zone-id}")
+    void maintain() {
+        if (!props.enabled()) {
+            return;
+        }
+        YearMonth current = YearMonth.now(zone);
+        createAhead(current);
+        if (props.retainMonths() > 0) {
+            for (String table : TABLES) {
+                archiveExpired(table, current.minusMonths(props.retainMonths()));
+            }
+        }
+    }
+
+    // отсоединённые, но не удалённые секции — след прерванного архива: их доводим до конца так же
+    private void archiveExpired(String table, YearMonth cutoff) {
+        List<String> attached = partitions(table);
+        List<String> all = Stream.concat(attached.stream(), detached(table).stream()).toList();
+        for (YearMonth month : expired(table, all, cutoff)) {
+            try {
+                archive(table, month, attached.contains(partitionName(table, month)));
+            } catch (IOException | UncheckedIOException | DataAccessException e) {
+                // таблица остаётся (возможно, уже отсоединённой), следующий запуск попробует снова
+                log.error("Partition {} not archived: {}", partitionName(table, month), e.toString());
+                return;
+            }
+        }
+    }
+
+    void createAhead(YearMonth current) {
+        for (String table : TABLES) {
+            for (int i = 0; i <= Math.max(0, props.monthsAhead()); i++) {
+                YearMonth month = current.plusMonths(i);
+                try {
+                    jdbc.execute("CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')"
+                            .formatted(partitionName(table, month), table, month.atDay(1), month.plusMonths(1).atDay(1)));
+                } catch (DataAccessException e) {
+                    // например, строки этого месяца уже лежат в секции _default
+                    log.error("Partition {} not created: {}", partitionName(table, month), e.toString());
+                }
+            }
+        }
+    }
+
+    static String partitionName(String table, YearMonth month) {
+        return "%s_%04d_%02d".formatted(table, month.getYear(), month.getMonthValue());
+    }
+
+    // помесячные секции таблицы строго раньше cutoff, от старых к новым
+    static List<YearMonth> expired(String table, List<String> partitions, YearMonth cutoff) {
+        Pattern monthly = Pattern.compile(Pattern.quote(table) + "_(\\d{4})_(\\d{2})");
+        return partitions.stream()
+                .map(monthly::matcher)
+                .filter(Matcher::matches)
+                .map(m -> YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))))
+                .filter(month -> month.isBefore(cutoff))
+                .sorted()
+                .toList();
+    }
+
+    private List<String> partitions(String table) {
+        return jdbc.queryForList("""
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = ?
+        """, String.class, table);
+    }
+
+    private List<String> detached(String table) {
+        return jdbc.queryForList("""
+            SELECT c.relname
+            FROM pg_class c
+            WHERE c.relkind = 'r'
+              AND c.relnamespace = current_schema()::regnamespace
+              AND c.relname LIKE ?
+              AND NOT EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = c.oid)
+        """, String.class, table.replace("_", "\\_") + "\\_%");
+    }
+
+    /**
+     * Сначала DETACH: он ждёт пишущие в секцию транзакции, а после него строки этого месяца уходят в секцию
+     * _default. В отсоединённую таблицу никто уже не пишет, поэтому удаляется ровно то, что попало в архив.
+     */
+    private void archive(String table, YearMonth month, boolean attached) throws IOException {
+        String name = partitionName(table, month);
+        if (attached) {
+            jdbc.execute("ALTER TABLE " + table + " DETACH PARTITION " + name);
+        }
+        Path dir = Path.of(props.archiveDir());
+        Files.createDirectories(dir);
+        Path target = dir.resolve(name + SUFFIX);
+        Path tmp = dir.resolve(name + SUFFIX + ".tmp");
+
+        Long rows = jdbc.execute((ConnectionCallback<Long>) con -> {
+            try (FileChannel channel = FileChannel.open(tmp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), 1 << 16);
+                long copied = con.unwrap(PGConnection.class).getCopyAPI()
+                        .copyOut("COPY " + name + " TO STDOUT (FORMAT binary)", gzip);
+                gzip.finish();
+                gzip.flush();
+                channel.force(true);
+                return copied;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        // файл уже на диске — теперь таблицу можно убрать
+        jdbc.execute("DROP TABLE " + name);
+        log.info("Partition {} archived to {}: rows={} size={}KB", name, target, rows, Files.size(target) / 1024);
+    }
+}
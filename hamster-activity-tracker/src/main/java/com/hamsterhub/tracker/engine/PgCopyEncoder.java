@@ -0,0 +1,119 @@
+package com.hamsterhub.tracker.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Поток в бинарном формате COPY PostgreSQL: сигнатура, затем строки [число полей, (длина, значение)...],
+ * в конце -1. Пишет в свой буфер и отдаёт его в sink кусками, так что вся выгрузка в памяти не собирается.
+ */
+final class PgCopyEncoder {
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final long PG_EPOCH_DAY = LocalDate.of(2000, 1, 1).toEpochDay();
+    private static final int INT4_OID = 23;
+
+    @FunctionalInterface
+    interface Sink {
+        void write(byte[] bytes, int offset, int length) throws SQLException;
+    }
+
+    private final Sink sink;
+    private final ByteBuffer buffer;
+
+    PgCopyEncoder(Sink sink, int bufferSize) throws SQLException {
+        this.sink = sink;
+        this.buffer = ByteBuffer.allocate(Math.max(64, bufferSize));
+        buffer.put(SIGNATURE).putInt(0).putInt(0); // флаги и длина расширения заголовка
+    }
+
+    void startRow(int fields) throws SQLException {
+        ensure(Short.BYTES);
+        buffer.putShort((short) fields);
+    }
+
+    // date — число дней от 2000-01-01
+    void date(LocalDate value) throws SQLException {
+        ensure(Integer.BYTES * 2);
+        buffer.putInt(Integer.BYTES).putInt((int) (value.toEpochDay() - PG_EPOCH_DAY));
+    }
+
+    void int4(int value) throws SQLException {
+        ensure(Integer.BYTES * 2);
+        buffer.putInt(Integer.BYTES).putInt(value);
+    }
+
+    // integer[]: [ndim=1, флаг NULL-ов, oid int4, длина, нижняя граница 1], затем элементы как int4
+    void int4Array(int[] values) throws SQLException {
+        ensure(Integer.BYTES * 6);
+        buffer.putInt(Integer.BYTES * 5 + values.length * Integer.BYTES * 2)
+                .putInt(1).putInt(0).putInt(INT4_OID).putInt(values.length).putInt(1);
+        for (int value : values) {
+            int4(value);
+        }
+    }
+
+    void nullValue() throws SQLException {
+        ensure(Integer.BYTES);
+        buffer.putInt(-1);
+    }
+
+    void bool(boolean value) throws SQLException {
+        ensure(Integer.BYTES + 1);
+        buffer.putInt(1).put((byte) (value ? 1 : 0));
+    }
+
+    // id у нас ASCII: пишем посимвольно без промежуточного byte[], иначе — через UTF-8
+    void text(String value) throws SQLException {
+        int length = value.length();
+        if (Integer.BYTES + length <= buffer.capacity()) {
+            ensure(Integer.BYTES + length);
+            int start = buffer.position();
+            buffer.putInt(length);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    buffer.position(start);
+                    textUtf8(value);
+                    return;
+                }
+                buffer.put((byte) c);
+            }
+            return;
+        }
+        textUtf8(value);
+    }
+
+    void finish() throws SQLException {
+        ensure(Short.BYTES);
+        buffer.putShort((short) -1);
+        flush();
+    }
+
+    private void textUtf8(String value) throws SQLException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(Integer.BYTES);
+        buffer.putInt(bytes.length);
+        if (bytes.length <= buffer.capacity()) {
+            ensure(bytes.length);
+            buffer.put(bytes);
+        } else {
+            flush();
+            sink.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private void ensure(int bytes) throws SQLException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (buffer.position() > 0) {
+            sink.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+}
@@ -1,9 +1,23 @@
 package com.hamsterhub.tracker.engine;
 
 import com.hamsterhub.tracker.model.DailyReport;
+import com.hamsterhub.tracker.model.HamsterDayStats;
+import com.hamsterhub.tracker.model.HamsterHourlyStats;
 
 import java.time.LocalDate;
+import java.util.List;
 
 public interface ReportGenerator {
     DailyReport generate(LocalDate date);
+
+    // строки дня по возрастанию hamsterId; hamsterId == null — все хомяки
+    List<HamsterDayStats> rows(LocalDate date, String hamsterId);
+
+    // первые n по убыванию кругов из топа дня, не больше leaderboardSize(); пусто, если дня нет в памяти
+    List<HamsterDayStats> leaderboard(LocalDate date, int n);
+
+    int leaderboardSize();
+
+    // корзины дня по возрастанию hamsterId, только хомяки с вращениями; hamsterId == null — все хомяки
+    List<HamsterHourlyStats> hourly(LocalDate date, String hamsterId);
 }
@@ -1,10 +1,15 @@
 package com.hamsterhub.tracker.engine;
 
 import com.hamsterhub.tracker.model.DailyReport;
+import com.hamsterhub.tracker.model.HamsterDayStats;
+import com.hamsterhub.tracker.model.HamsterHourlyStats;
 import com.hamsterhub.tracker.model.HamsterStats;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -30,4 +35,66 @@ public class ReportGeneratorImpl implements ReportGenerator {
                 ));
         return new DailyReport(date, map);
     }
+
+    @Override
+    public List<HamsterDayStats> rows(LocalDate date, String hamsterId) {
+        Map<String, TrackerState.DayStats> day = state.getStatsForDate(date);
+        if (hamsterId != null) {
+            TrackerState.DayStats stats = day.get(hamsterId);
+            return stats == null ? List.of() : List.of(row(date, hamsterId, stats));
+        }
+        List<HamsterDayStats> rows = new ArrayList<>(day.size());
+        day.forEach((id, stats) -> rows.add(row(date, id, stats)));
+        rows.sort(Comparator.comparing(HamsterDayStats::hamsterId));
+        return rows;
+    }
+
+    @Override
+    public List<HamsterDayStats> leaderboard(LocalDate date, int n) {
+        return state.leaderboardFor(date)
+                .map(board -> board.top(n).stream()
+                        .map(entry -> row(date, entry.hamsterId(), entry.totalRounds()))
+                        .toList())
+                .orElse(List.of());
+    }
+
+    @Override
+    public int leaderboardSize() {
+        return state.leaderboardSize();
+    }
+
+    @Override
+    public List<HamsterHourlyStats> hourly(LocalDate date, String hamsterId) {
+        Map<String, TrackerState.DayStats> day = state.getStatsForDate(date);
+        if (hamsterId != null) {
+            TrackerState.DayStats stats = day.get(hamsterId);
+            HamsterHourlyStats row = stats == null ? null : hourlyRow(date, hamsterId, stats);
+            return row == null ? List.of() : List.of(row);
+        }
+        List<HamsterHourlyStats> rows = new ArrayList<>();
+        day.forEach((id, stats) -> {
+            HamsterHourlyStats row = hourlyRow(date, id, stats);
+            if (row != null) {
+                rows.add(row);
+            }
+        });
+        rows.sort(Comparator.comparing(HamsterHourlyStats::hamsterId));
+        return rows;
+    }
+
+    // null — у хомяка в этот день не было вращений
+    private HamsterHourlyStats hourlyRow(LocalDate date, String hamsterId, TrackerState.DayStats stats) {
+        int[] buckets = stats.buckets();
+        return buckets == null ? null : new HamsterHourlyStats(date, hamsterId, state.bucketMinutes(), buckets);
+    }
+
+    private static HamsterDayStats row(LocalDate date, String hamsterId, TrackerState.DayStats stats) {
+        return row(date, hamsterId, stats.totalRounds());
+    }
+
+    private static HamsterDayStats row(LocalDate date, String hamsterId, int totalRounds) {
+        HamsterStats hs = new HamsterStats(hamsterId);
+        hs.addRounds(totalRounds);
+        return new HamsterDayStats(date, hamsterId, hs.getTotalRounds(), hs.isActive());
+    }
 }
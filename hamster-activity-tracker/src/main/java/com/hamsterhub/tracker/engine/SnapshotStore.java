@@ -0,0 +1,98 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.SnapshotProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Каталог снапшотов {@link TrackerState}: файл пишется во временный, сбрасывается на диск и атомарно
+ * переименовывается, так что при падении посреди записи остаётся предыдущий целый снапшот.
+ */
+@Component
+class SnapshotStore {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private final boolean enabled;
+    private final Path dir;
+    private final int retain;
+
+    SnapshotStore(SnapshotProperties props) {
+        this.enabled = props.enabled();
+        this.dir = Path.of(props.dir());
+        this.retain = Math.max(1, props.retain());
+    }
+
+    static SnapshotStore disabled() {
+        return new SnapshotStore(new SnapshotProperties(false, "", 1, 1, 1));
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    // самый свежий читаемый снапшот; битый файл пропускаем и берём предыдущий
+    Optional<StateSnapshot> loadLatest() {
+        if (!enabled || !Files.isDirectory(dir)) {
+            return Optional.empty();
+        }
+        for (Path file : snapshots().reversed()) {
+            try (InputStream in = Files.newInputStream(file)) {
+                return Optional.of(StateSnapshot.readFrom(in));
+            } catch (IOException | RuntimeException e) {
+                log.error("Snapshot {} skipped: {}", file, e.toString());
+            }
+        }
+        return Optional.empty();
+    }
+
+    void save(StateSnapshot snapshot) throws IOException {
+        Files.createDirectories(dir);
+        Path target = dir.resolve(String.format("%s%019d%s", PREFIX, snapshot.createdAt(), SUFFIX));
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            snapshot.writeTo(out);
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        List<Path> all = snapshots();
+        for (int i = 0; i < all.size() - retain; i++) {
+            Files.deleteIfExists(all.get(i));
+        }
+    }
+
+    private List<Path> snapshots() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(SnapshotStore::isSnapshot)
+                    .sorted(Comparator.comparing(Path::getFileName))
+                    .toList();
+        } catch (IOException e) {
+            log.warn("Snapshot directory {} not readable: {}", dir, e.toString());
+            return List.of();
+        }
+    }
+
+    private static boolean isSnapshot(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+}
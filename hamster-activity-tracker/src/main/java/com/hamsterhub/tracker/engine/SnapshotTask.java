@@ -0,0 +1,62 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.SnapshotProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Периодический снапшот состояния: шарды стоят только на время копирования массивов,
+ * запись файла идёт в потоке планировщика. После записи журнал до позиций снапшота разрешается удалять.
+ */
+@Component
+class SnapshotTask {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotTask.class);
+
+    private final EventProcessor processor;
+    private final SnapshotStore store;
+    private final EventJournal journal;
+    private final SnapshotProperties props;
+
+    SnapshotTask(EventProcessor processor, SnapshotStore store, EventJournal journal, SnapshotProperties props) {
+        this.processor = processor;
+        this.store = store;
+        this.journal = journal;
+        this.props = props;
+    }
+
+    @Scheduled(fixedDelayString = "${tracker.snapshot.interval-ms:60000}",
+            initialDelayString = "${tracker.snapshot.interval-ms:60000}")
+    void snapshot() {
+        if (!store.enabled()) {
+            return;
+        }
+        long started = System.nanoTime();
+        Optional<StateSnapshot> captured = processor.captureSnapshot(props.pauseTimeoutMs());
+        if (captured.isEmpty()) {
+            log.warn("Snapshot skipped: shards did not reach a batch boundary within {} ms", props.pauseTimeoutMs());
+            return;
+        }
+        long capturedAt = System.nanoTime();
+        try {
+            store.save(captured.get());
+            journal.retainFrom(captured.get().journalPositions());
+            log.info("Snapshot saved: dayEntries={} capture={}ms write={}ms",
+                    captured.get().dayEntries(),
+                    (capturedAt - started) / 1_000_000, (System.nanoTime() - capturedAt) / 1_000_000);
+        } catch (IOException e) {
+            log.error("Snapshot not saved: {}", e.toString());
+        }
+    }
+
+    // свежий снапшот при штатной остановке — следующий старт почти не проигрывает журнал
+    @PreDestroy
+    void snapshotOnShutdown() {
+        snapshot();
+    }
+}
@@ -0,0 +1,68 @@
+package com.hamsterhub.tracker.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Дедупликация WheelSpin: одно и то же вращение ретранслируют все датчики колеса.
+ * На колесо — кольцо из {@link #SLOTS} последних принятых (длительность, ts); отпечаток старше окна
+ * не совпадает и просто перезаписывается, поэтому память на колесо постоянная.
+ * Кольцо колеса пишет только шард-владелец, на горячем пути нет ни блокировок, ни аллокаций.
+ */
+final class SpinDeduplicator {
+    static final int SLOTS = 8;
+
+    // [голова, длительность0, ts0, ..., длительность7, ts7]
+    static final int STRIDE = 1 + 2 * SLOTS;
+    private static final long EMPTY_DURATION = -1L;
+
+    private final Rings rings = new Rings();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    boolean accept(int wheel, long durationMs, long tsMs, long windowMs) {
+        long[] page = rings.page(wheel);
+        int base = PagedArray.offset(wheel) * STRIDE;
+        for (int i = base + 1; i < base + STRIDE; i += 2) {
+            if (page[i] == durationMs && Math.abs(tsMs - page[i + 1]) <= windowMs) {
+                hits.increment();
+                return false;
+            }
+        }
+        int head = (int) page[base];
+        int slot = base + 1 + 2 * head;
+        page[slot] = durationMs;
+        page[slot + 1] = tsMs;
+        page[base] = (head + 1) % SLOTS;
+        misses.increment();
+        return true;
+    }
+
+    void copyRing(int wheel, long[] dst, int dstPos) {
+        System.arraycopy(rings.page(wheel), PagedArray.offset(wheel) * STRIDE, dst, dstPos, STRIDE);
+    }
+
+    void restoreRing(int wheel, long[] src, int srcPos) {
+        System.arraycopy(src, srcPos, rings.page(wheel), PagedArray.offset(wheel) * STRIDE, STRIDE);
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+    private static final class Rings extends PagedArray<long[]> {
+        @Override
+        long[] newPage() {
+            long[] page = new long[PAGE_SIZE * STRIDE];
+            for (int base = 0; base < page.length; base += STRIDE) {
+                for (int i = base + 1; i < base + STRIDE; i += 2) {
+                    page[i] = EMPTY_DURATION;
+                }
+            }
+            return page;
+        }
+    }
+}
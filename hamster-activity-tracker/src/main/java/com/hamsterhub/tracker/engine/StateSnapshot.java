@@ -0,0 +1,336 @@
+package com.hamsterhub.tracker.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Согласованная копия {@link TrackerState} вместе с позициями журнала, до которых она доведена.
+ * Снимается, пока шарды стоят на границе пачки: на этом этапе только копируются массивы и ссылки,
+ * а сериализация идёт уже после того, как шарды отпущены.
+ * Формат: [magic, version, createdAt, позиции журнала, словари id, колёса, last-seen, дни][crc32c].
+ * С версии 2 у ячейки дня есть почасовые корзины; файл версии 1 читается без них.
+ * С версии 3 id пишутся с int-длиной в байтах UTF-8: writeUTF не берёт строки длиннее 65535 байт,
+ * и один такой id ломал бы каждый следующий снапшот. Версии 1 и 2 читаются через readUTF.
+ */
+final class StateSnapshot {
+    private static final int MAGIC = 0x48534E50; // "HSNP"
+    private static final int VERSION = 3;
+    private static final int VERSION_WITHOUT_BUCKETS = 1;
+    private static final int VERSION_SHORT_NAMES = 2;
+    private static final int BUFFER = 1 << 16;
+
+    private final long createdAt;
+    private final List<EventJournal.Position> journalPositions;
+    private final String[] wheels;
+    private final String[] hamsters;
+    private final String[] sensors;
+    private final int[] wheelHamster;
+    private final long[] spinRings;
+    private final long[] hamsterLastSeen;
+    private final long[] sensorLastSeen;
+    private final List<Day> days;
+
+    private StateSnapshot(long createdAt,
+                          List<EventJournal.Position> journalPositions,
+                          String[] wheels,
+                          String[] hamsters,
+                          String[] sensors,
+                          int[] wheelHamster,
+                          long[] spinRings,
+                          long[] hamsterLastSeen,
+                          long[] sensorLastSeen,
+                          List<Day> days) {
+        this.createdAt = createdAt;
+        this.journalPositions = journalPositions;
+        this.wheels = wheels;
+        this.hamsters = hamsters;
+        this.sensors = sensors;
+        this.wheelHamster = wheelHamster;
+        this.spinRings = spinRings;
+        this.hamsterLastSeen = hamsterLastSeen;
+        this.sensorLastSeen = sensorLastSeen;
+        this.days = days;
+    }
+
+    // вызывать только пока шарды остановлены: иначе копия не совпадёт с позициями журнала
+    static StateSnapshot capture(TrackerState state, List<EventJournal.Position> journalPositions) {
+        String[] wheels = state.wheelNames();
+        String[] hamsters = state.hamsterNames();
+        String[] sensors = state.sensorNames();
+
+        int[] wheelHamster = new int[wheels.length];
+        long[] spinRings = new long[wheels.length * SpinDeduplicator.STRIDE];
+        for (int wheel = 0; wheel < wheels.length; wheel++) {
+            wheelHamster[wheel] = state.wheelHamster(wheel);
+            state.spinDeduplicator().copyRing(wheel, spinRings, wheel * SpinDeduplicator.STRIDE);
+        }
+        long[] hamsterLastSeen = new long[hamsters.length];
+        for (int hamster = 0; hamster < hamsters.length; hamster++) {
+            hamsterLastSeen[hamster] = state.hamsterLastEvent(hamster);
+        }
+        long[] sensorLastSeen = new long[sensors.length];
+        for (int sensor = 0; sensor < sensors.length; sensor++) {
+            sensorLastSeen[sensor] = state.sensorLastEvent(sensor);
+        }
+
+        List<Day> days = new ArrayList<>();
+        for (LocalDate date : state.days()) {
+            Map<String, TrackerState.DayStats> stats = state.getStatsForDate(date);
+            String[] names = new String[stats.size()];
+            long[] rounds = new long[names.length];
+            char[][] buckets = new char[names.length][];
+            int n = 0;
+            for (var entry : stats.entrySet()) {
+                if (n == names.length) {
+                    break;
+                }
+                names[n] = entry.getKey();
+                buckets[n] = entry.getValue().rawBuckets();
+                rounds[n++] = entry.getValue().totalRounds();
+            }
+            days.add(new Day(date, n, names, rounds, buckets));
+        }
+        return new StateSnapshot(System.currentTimeMillis(), List.copyOf(journalPositions),
+                wheels, hamsters, sensors, wheelHamster, spinRings, hamsterLastSeen, sensorLastSeen, days);
+    }
+
+    long createdAt() {
+        return createdAt;
+    }
+
+    List<EventJournal.Position> journalPositions() {
+        return journalPositions;
+    }
+
+    int dayEntries() {
+        int total = 0;
+        for (Day day : days) {
+            total += day.size;
+        }
+        return total;
+    }
+
+    // в пустое состояние: словари заполняются в том же порядке, поэтому id совпадают с сохранёнными
+    void restoreInto(TrackerState state) {
+        state.restoreIds(wheels, hamsters, sensors);
+        for (int wheel = 0; wheel < wheels.length; wheel++) {
+            if (wheelHamster[wheel] != TrackerState.NONE) {
+                state.occupyWheel(wheel, wheelHamster[wheel]);
+            }
+            state.spinDeduplicator().restoreRing(wheel, spinRings, wheel * SpinDeduplicator.STRIDE);
+        }
+        for (int hamster = 0; hamster < hamsters.length; hamster++) {
+            if (hamsterLastSeen[hamster] != 0L) {
+                state.updateHamsterLastEvent(hamster, hamsterLastSeen[hamster]);
+            }
+        }
+        for (int sensor = 0; sensor < sensors.length; sensor++) {
+            if (sensorLastSeen[sensor] != 0L) {
+                state.updateSensorLastEvent(sensor, sensorLastSeen[sensor]);
+            }
+        }
+        for (Day day : days) {
+            state.restoreDay(day.date, day.names, day.rounds, day.buckets, day.size);
+        }
+    }
+
+    void writeTo(OutputStream target) throws IOException {
+        CRC32C crc = new CRC32C();
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new CheckedOutputStream(target, crc), BUFFER));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(createdAt);
+
+        out.writeInt(journalPositions.size());
+        for (EventJournal.Position position : journalPositions) {
+            out.writeUTF(position.shard());
+            out.writeUTF(position.segment());
+            out.writeInt(position.offset());
+        }
+
+        writeNames(out, wheels);
+        writeNames(out, hamsters);
+        writeNames(out, sensors);
+        for (int i = 0; i < wheels.length; i++) {
+            out.writeInt(wheelHamster[i]);
+        }
+        writeLongs(out, spinRings);
+        writeLongs(out, hamsterLastSeen);
+        writeLongs(out, sensorLastSeen);
+
+        // хомяк дня пишется номером из словаря; имя — только если в словаре его почему-то нет
+        Map<String, Integer> hamsterIds = days.isEmpty() ? Map.of() : indexOf(hamsters);
+        out.writeInt(days.size());
+        for (Day day : days) {
+            out.writeLong(day.date.toEpochDay());
+            out.writeInt(day.size);
+            for (int i = 0; i < day.size; i++) {
+                Integer id = hamsterIds.get(day.names[i]);
+                out.writeInt(id != null ? id : TrackerState.NONE);
+                if (id == null) {
+                    writeName(out, day.names[i]);
+                }
+                out.writeLong(day.rounds[i]);
+                writeBuckets(out, day.buckets[i]);
+            }
+        }
+        out.flush();
+        target.write(ByteBuffer.allocate(Long.BYTES).putLong(crc.getValue()).array());
+        target.flush();
+    }
+
+    // контрольная сумма проверяется до разбора: битый файл не должен превратиться в мусорное состояние
+    static StateSnapshot readFrom(InputStream source) throws IOException {
+        byte[] bytes = source.readAllBytes();
+        int bodyLength = bytes.length - Long.BYTES;
+        if (bodyLength < 0) {
+            throw new IOException("Snapshot is truncated");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bodyLength);
+        if (ByteBuffer.wrap(bytes, bodyLength, Long.BYTES).getLong() != crc.getValue()) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bodyLength));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a tracker snapshot");
+        }
+        int version = in.readInt();
+        if (version < VERSION_WITHOUT_BUCKETS || version > VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        long createdAt = in.readLong();
+
+        int positionCount = in.readInt();
+        List<EventJournal.Position> positions = new ArrayList<>(positionCount);
+        for (int i = 0; i < positionCount; i++) {
+            positions.add(new EventJournal.Position(in.readUTF(), in.readUTF(), in.readInt()));
+        }
+
+        String[] wheels = readNames(in, version);
+        String[] hamsters = readNames(in, version);
+        String[] sensors = readNames(in, version);
+        int[] wheelHamster = new int[wheels.length];
+        for (int i = 0; i < wheels.length; i++) {
+            wheelHamster[i] = in.readInt();
+        }
+        long[] spinRings = readLongs(in, wheels.length * SpinDeduplicator.STRIDE);
+        long[] hamsterLastSeen = readLongs(in, hamsters.length);
+        long[] sensorLastSeen = readLongs(in, sensors.length);
+
+        int dayCount = in.readInt();
+        List<Day> days = new ArrayList<>(dayCount);
+        for (int d = 0; d < dayCount; d++) {
+            LocalDate date = LocalDate.ofEpochDay(in.readLong());
+            int size = in.readInt();
+            String[] names = new String[size];
+            long[] rounds = new long[size];
+            char[][] buckets = new char[size][];
+            for (int i = 0; i < size; i++) {
+                int id = in.readInt();
+                names[i] = id != TrackerState.NONE ? hamsters[id] : readName(in, version);
+                rounds[i] = in.readLong();
+                if (version != VERSION_WITHOUT_BUCKETS) {
+                    buckets[i] = readBuckets(in);
+                }
+            }
+            days.add(new Day(date, size, names, rounds, buckets));
+        }
+        return new StateSnapshot(createdAt, positions, wheels, hamsters, sensors,
+                wheelHamster, spinRings, hamsterLastSeen, sensorLastSeen, days);
+    }
+
+    private static void writeNames(DataOutputStream out, String[] names) throws IOException {
+        out.writeInt(names.length);
+        for (String name : names) {
+            writeName(out, name);
+        }
+    }
+
+    private static String[] readNames(DataInputStream in, int version) throws IOException {
+        String[] names = new String[in.readInt()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = readName(in, version);
+        }
+        return names;
+    }
+
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readName(DataInputStream in, int version) throws IOException {
+        if (version <= VERSION_SHORT_NAMES) {
+            return in.readUTF();
+        }
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Snapshot name length out of range: " + length);
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    // число корзин, затем счётчики; 0 — корзин нет
+    private static void writeBuckets(DataOutputStream out, char[] buckets) throws IOException {
+        out.writeShort(buckets == null ? 0 : buckets.length);
+        if (buckets != null) {
+            for (char bucket : buckets) {
+                out.writeChar(bucket);
+            }
+        }
+    }
+
+    private static char[] readBuckets(DataInputStream in) throws IOException {
+        int length = in.readUnsignedShort();
+        if (length == 0) {
+            return null;
+        }
+        char[] buckets = new char[length];
+        for (int i = 0; i < length; i++) {
+            buckets[i] = in.readChar();
+        }
+        return buckets;
+    }
+
+    private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static long[] readLongs(DataInputStream in, int length) throws IOException {
+        long[] values = new long[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+
+    private static Map<String, Integer> indexOf(String[] names) {
+        Map<String, Integer> index = new HashMap<>(names.length * 4 / 3 + 1);
+        for (int i = 0; i < names.length; i++) {
+            index.put(names[i], i);
+        }
+        return index;
+    }
+
+    private record Day(LocalDate date, int size, String[] names, long[] rounds, char[][] buckets) {
+    }
+}
@@ -1,90 +1,339 @@
 package com.hamsterhub.tracker.engine;
 
+import com.hamsterhub.tracker.config.DayStatsProperties;
+import com.hamsterhub.tracker.config.HourlyProperties;
+import com.hamsterhub.tracker.config.ReportProperties;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.Set;
+import java.util.function.ObjLongConsumer;
 
 @Component
 public class TrackerState {
 
     static final ZoneId ZONE = ZoneId.systemDefault();
-    private final Map<String, ConcurrentHashMap<Long, Long>> wheelDeduplicationMap = new ConcurrentHashMap<>();
+    static final int NONE = IdDictionary.NONE;
 
-    // map со статистикой
-    private final Map<LocalDate, Map<String, DayStats>> daily = new ConcurrentHashMap<>();
+    // строковые id переводятся в плотные int один раз на входе, дальше всё по индексам
+    private final IdDictionary wheels = new IdDictionary();
+    private final IdDictionary hamsters = new IdDictionary();
+    private final IdDictionary sensors = new IdDictionary();
 
-    private final Map<String, String> wheelWithHamster = new ConcurrentHashMap<>();
-    private final Map<String, Long> sensorLastEvent = new ConcurrentHashMap<>();
-    private final Map<String, Long> hamsterLastEvent = new ConcurrentHashMap<>();
+    // ячейки (день, хомяк) со статистикой
+    private final DayStatsStore dayStats;
+    private final int leaderboardSize;
+    // ширина корзины почасовой активности в минутах; 0 — корзины не ведутся
+    private final int bucketMinutes;
+
+    // колесо целиком принадлежит одному шарду EventProcessor: его ячейки пишет только этот шард
+    private final IntColumn wheelHamster = new IntColumn(NONE);
+    private final SpinDeduplicator spinDeduplicator = new SpinDeduplicator();
+
+    private final LongColumn sensorLastEvent = new LongColumn();
+    private final LongColumn hamsterLastEvent = new LongColumn();
+    // дедлайны неактивности; null — монитор не подключён
+    private volatile DeadlineWheel hamsterDeadlines;
+    private volatile DeadlineWheel sensorDeadlines;
+
+    public TrackerState(ReportProperties reportProps, HourlyProperties hourlyProps, DayStatsProperties dayStatsProps) {
+        this.leaderboardSize = reportProps.leaderboardSize();
+        this.bucketMinutes = hourlyProps.effectiveBucketMinutes();
+        this.dayStats = dayStatsProps.store() == DayStatsProperties.Store.OFF_HEAP
+                ? new OffHeapDayStatsStore(hamsters, leaderboardSize, bucketMinutes)
+                : new HeapDayStatsStore(hamsters, leaderboardSize, bucketMinutes);
+    }
+
+    int internWheel(String wheelId) {
+        return wheels.intern(wheelId);
+    }
+
+    int lookupWheel(String wheelId) {
+        return wheels.lookup(wheelId);
+    }
+
+    int internHamster(String hamsterId) {
+        return hamsters.intern(hamsterId);
+    }
+
+    int lookupHamster(String hamsterId) {
+        return hamsters.lookup(hamsterId);
+    }
+
+    int internSensor(String sensorId) {
+        return sensors.intern(sensorId);
+    }
+
+    String hamsterName(int hamster) {
+        return hamsters.name(hamster);
+    }
+
+    String sensorName(int sensor) {
+        return sensors.name(sensor);
+    }
 
     DayStats statsFor(LocalDate date, String hamsterId) {
-        return daily.computeIfAbsent(date, d -> new ConcurrentHashMap<>())
-                .computeIfAbsent(hamsterId, id -> new DayStats());
+        return dayStats.statsFor(date, hamsterId);
+    }
+
+    // путь шарда: ячейка создаётся при первом обращении, rounds == 0 — только создать
+    void addRounds(LocalDate date, int hamster, int rounds, int minuteOfDay) {
+        dayStats.addRounds(date, hamster, rounds, minuteOfDay);
+    }
+
+    // пусто, если дня нет в памяти
+    Optional<DayLeaderboard> leaderboardFor(LocalDate date) {
+        return dayStats.leaderboard(date);
+    }
+
+    int leaderboardSize() {
+        return leaderboardSize;
+    }
+
+    int bucketMinutes() {
+        return bucketMinutes;
     }
 
     Map<String, DayStats> getStatsForDate(LocalDate date) {
-        return daily.getOrDefault(date, Map.of());
+        return dayStats.statsForDate(date);
     }
 
-    void occupyWheel(String wheelId, String hamsterId) {
-        wheelWithHamster.put(wheelId, hamsterId);
+    long dayStatsOffHeapBytes() {
+        return dayStats.offHeapBytes();
     }
 
-    void releaseWheel(String wheelId, String hamsterId) {
-        wheelWithHamster.compute(wheelId, (w, h) -> (Objects.equals(h, hamsterId) ? null : h));
+    void occupyWheel(int wheel, int hamster) {
+        wheelHamster.set(wheel, hamster);
+    }
+
+    void releaseWheel(int wheel, int hamster) {
+        if (wheelHamster.get(wheel) == hamster) {
+            wheelHamster.set(wheel, NONE);
+        }
+    }
+
+    int wheelHamster(int wheel) {
+        return wheel == NONE ? NONE : wheelHamster.get(wheel);
     }
 
     Optional<String> getWheelHamster(String wheelId) {
-        return Optional.ofNullable(wheelWithHamster.get(wheelId));
+        int hamster = wheelHamster(wheels.lookup(wheelId));
+        return hamster == NONE ? Optional.empty() : Optional.of(hamsters.name(hamster));
+    }
+
+    void updateHamsterLastEvent(int hamster, long tsMs) {
+        hamsterLastEvent.accumulateMax(hamster, tsMs);
+        DeadlineWheel deadlines = hamsterDeadlines;
+        if (deadlines != null) {
+            deadlines.touch(hamster);
+        }
     }
 
     void updateHamsterLastEvent(String hamsterId, long tsMs) {
-        hamsterLastEvent.merge(hamsterId, tsMs, Math::max);
+        updateHamsterLastEvent(hamsters.intern(hamsterId), tsMs);
+    }
+
+    void updateSensorLastEvent(int sensor, long tsMs) {
+        sensorLastEvent.accumulateMax(sensor, tsMs);
+        DeadlineWheel deadlines = sensorDeadlines;
+        if (deadlines != null) {
+            deadlines.touch(sensor);
+        }
+    }
+
+    // подключает колёса дедлайнов и взводит всех, кто уже есть (например, восстановлен из снапшота)
+    void watchInactivity(DeadlineWheel hamsters, DeadlineWheel sensors) {
+        hamsterDeadlines = hamsters;
+        sensorDeadlines = sensors;
+        armExisting();
+    }
+
+    void armExisting() {
+        armExisting(hamsterDeadlines, hamsterLastEvent, hamsterCount());
+        armExisting(sensorDeadlines, sensorLastEvent, sensorCount());
     }
 
     void updateSensorLastEvent(String sensorId, long tsMs) {
-        sensorLastEvent.merge(sensorId, tsMs, Math::max);
+        updateSensorLastEvent(sensors.intern(sensorId), tsMs);
+    }
+
+    void forEachHamsterLastSeen(ObjLongConsumer<String> action) {
+        forEachLastSeen(hamsters, hamsterLastEvent, action);
+    }
+
+    void forEachSensorLastSeen(ObjLongConsumer<String> action) {
+        forEachLastSeen(sensors, sensorLastEvent, action);
+    }
+
+    int hamsterCount() {
+        return hamsters.size();
+    }
+
+    int sensorCount() {
+        return sensors.size();
+    }
+
+    int wheelCount() {
+        return wheels.size();
+    }
+
+    String[] wheelNames() {
+        return wheels.names();
+    }
+
+    String[] hamsterNames() {
+        return hamsters.names();
+    }
+
+    String[] sensorNames() {
+        return sensors.names();
+    }
+
+    long hamsterLastEvent(int hamster) {
+        return hamsterLastEvent.get(hamster);
+    }
+
+    long sensorLastEvent(int sensor) {
+        return sensorLastEvent.get(sensor);
+    }
+
+    // CAS, чтобы не стереть отметку, которую шард успел обновить во время уборки
+    boolean evictHamsterLastSeen(int hamster, long olderThanMs) {
+        return evictLastSeen(hamsterLastEvent, hamster, olderThanMs);
+    }
+
+    boolean evictSensorLastSeen(int sensor, long olderThanMs) {
+        return evictLastSeen(sensorLastEvent, sensor, olderThanMs);
     }
 
     Map<String, Long> hamstersLastSeen() {
-        return hamsterLastEvent;
+        Map<String, Long> snapshot = new HashMap<>();
+        forEachHamsterLastSeen(snapshot::put);
+        return snapshot;
     }
 
     Map<String, Long> sensorsLastSeen() {
-        return sensorLastEvent;
+        Map<String, Long> snapshot = new HashMap<>();
+        forEachSensorLastSeen(snapshot::put);
+        return snapshot;
+    }
+
+    boolean shouldAcceptSpin(int wheel, long durationMs, long tsMs, long windowMs) {
+        return spinDeduplicator.accept(wheel, durationMs, tsMs, windowMs);
     }
 
     boolean shouldAcceptSpin(String wheelId, long durationMs, long tsMs, long windowMs) {
-        var perWheel = wheelDeduplicationMap.computeIfAbsent(wheelId, k -> new ConcurrentHashMap<>());
-        return perWheel.compute(durationMs, (dur, lastTs) -> {
-            if (lastTs != null && Math.abs(tsMs - lastTs) <= windowMs) {
-                return lastTs;
-            }
-            return tsMs;
-        }) == tsMs;
+        return shouldAcceptSpin(wheels.intern(wheelId), durationMs, tsMs, windowMs);
+    }
+
+    SpinDeduplicator spinDeduplicator() {
+        return spinDeduplicator;
+    }
+
+    Set<LocalDate> days() {
+        return dayStats.days();
     }
 
     void removeDay(LocalDate day) {
-        daily.remove(day);
+        dayStats.removeDay(day);
     }
 
-    static final class DayStats {
-        private final LongAdder totalRounds = new LongAdder();
+    void restoreIds(String[] wheelNames, String[] hamsterNames, String[] sensorNames) {
+        wheels.restore(wheelNames);
+        hamsters.restore(hamsterNames);
+        sensors.restore(sensorNames);
+    }
+
+    // для восстановления из снапшота; восстановленные ячейки помечаются изменёнными — БД могла отстать от снапшота.
+    // buckets — почасовые корзины ячеек, null — без корзин
+    void restoreDay(LocalDate day, String[] hamsterIds, long[] rounds, char[][] buckets, int count) {
+        dayStats.restoreDay(day, hamsterIds, rounds, buckets, count);
+    }
 
-        void addRounds(int rounds) {
-            if (rounds > 0) {
-                totalRounds.add(rounds);
+    // следующая изменённая ячейка с уже снятым флагом; null — изменений нет
+    DayStats pollDirty() {
+        return dayStats.pollDirty();
+    }
+
+    void trackDirtyStats(boolean tracking) {
+        dayStats.trackDirty(tracking);
+    }
+
+    int dirtyCount() {
+        return dayStats.dirtyCount();
+    }
+
+    private static void armExisting(DeadlineWheel deadlines, LongColumn lastSeen, int size) {
+        if (deadlines == null) {
+            return;
+        }
+        for (int id = 0; id < size; id++) {
+            if (lastSeen.get(id) != 0L) {
+                deadlines.touch(id);
             }
         }
+    }
+
+    private static boolean evictLastSeen(LongColumn lastSeen, int id, long olderThanMs) {
+        long ts = lastSeen.get(id);
+        return ts != 0L && ts < olderThanMs && lastSeen.compareAndSet(id, ts, 0L);
+    }
+
+    private static void forEachLastSeen(IdDictionary ids, LongColumn lastSeen, ObjLongConsumer<String> action) {
+        int size = ids.size();
+        for (int id = 0; id < size; id++) {
+            long ts = lastSeen.get(id);
+            if (ts != 0L) {
+                action.accept(ids.name(id), ts);
+            }
+        }
+    }
+
+    /**
+     * Ячейка (день, хомяк). Итог дня только растёт; корзины активности — круги по минуте суток,
+     * null — вращений с известным временем ещё не было.
+     */
+    abstract static class DayStats {
+        private final LocalDate date;
+        private final String hamsterId;
+
+        DayStats(LocalDate date, String hamsterId) {
+            this.date = date;
+            this.hamsterId = hamsterId;
+        }
+
+        final void addRounds(int rounds) {
+            addRounds(rounds, -1);
+        }
+
+        // minuteOfDay — минута суток по местным часам, -1 — время неизвестно, корзины не трогаем
+        abstract void addRounds(int rounds, int minuteOfDay);
+
+        abstract int totalRounds();
+
+        // место в топе дня, -1 — не в топе; пишет только DayLeaderboard под своей блокировкой
+        abstract int rank();
+
+        abstract void setRank(int rank);
+
+        abstract void markDirty();
+
+        // копия корзин в int; null — корзин нет
+        abstract int[] buckets();
+
+        // для снапшота: корзины как есть; null — корзин нет
+        abstract char[] rawBuckets();
+
+        LocalDate date() {
+            return date;
+        }
 
-        int totalRounds() {
-            return totalRounds.intValue();
+        String hamsterId() {
+            return hamsterId;
         }
     }
 }
@@ -0,0 +1,41 @@
+package com.hamsterhub.tracker.engine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+@Component
+class TrackerStateMetrics implements MeterBinder {
+    private final TrackerState state;
+
+    TrackerStateMetrics(TrackerState state) {
+        this.state = state;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        SpinDeduplicator dedup = state.spinDeduplicator();
+        FunctionCounter.builder("tracker.dedup.hits", dedup, SpinDeduplicator::hitCount)
+                .description("WheelSpin events dropped as duplicates")
+                .register(registry);
+        FunctionCounter.builder("tracker.dedup.misses", dedup, SpinDeduplicator::missCount)
+                .description("WheelSpin events that passed deduplication")
+                .register(registry);
+        Gauge.builder("tracker.state.hamsters", state, TrackerState::hamsterCount)
+                .description("Hamster ids interned since start")
+                .register(registry);
+        Gauge.builder("tracker.state.sensors", state, TrackerState::sensorCount)
+                .register(registry);
+        Gauge.builder("tracker.state.wheels", state, TrackerState::wheelCount)
+                .register(registry);
+        Gauge.builder("tracker.state.days", state, s -> s.days().size())
+                .description("Days held in memory, not yet exported")
+                .register(registry);
+        Gauge.builder("tracker.state.day-stats.offheap", state, TrackerState::dayStatsOffHeapBytes)
+                .description("Direct memory held by the off-heap day stats store")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,11 @@
+package com.hamsterhub.tracker.model;
+
+import java.time.LocalDate;
+
+// строка отчёта за период: итог одного хомяка за один день
+public record HamsterDayStats(
+        LocalDate date,
+        String hamsterId,
+        int totalRounds,
+        boolean active
+) {}
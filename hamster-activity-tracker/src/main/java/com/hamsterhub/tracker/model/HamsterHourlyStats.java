@@ -0,0 +1,11 @@
+package com.hamsterhub.tracker.model;
+
+import java.time.LocalDate;
+
+// активность хомяка за день по корзинам: rounds[i] — круги с i * bucketMinutes минуты суток по местным часам
+public record HamsterHourlyStats(
+        LocalDate date,
+        String hamsterId,
+        int bucketMinutes,
+        int[] rounds
+) {}
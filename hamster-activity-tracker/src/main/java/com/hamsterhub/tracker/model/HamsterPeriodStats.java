@@ -0,0 +1,8 @@
+package com.hamsterhub.tracker.model;
+
+// итог хомяка за период: сумма кругов и число дней, когда он был активен
+public record HamsterPeriodStats(
+        String hamsterId,
+        long totalRounds,
+        int activeDays
+) {}
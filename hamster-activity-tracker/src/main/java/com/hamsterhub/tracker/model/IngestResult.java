@@ -0,0 +1,6 @@
+package com.hamsterhub.tracker.model;
+
+public record IngestResult(
+        int accepted,
+        int rejected
+) {}
@@ -1,12 +1,17 @@
 package com.hamsterhub.tracker.repository;
 
 import com.hamsterhub.tracker.model.DailyReport;
+import com.hamsterhub.tracker.model.HamsterDayStats;
+import com.hamsterhub.tracker.model.HamsterHourlyStats;
+import com.hamsterhub.tracker.model.HamsterPeriodStats;
 import com.hamsterhub.tracker.model.HamsterStats;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -32,13 +37,114 @@ public class DailyStatsRepository {
 
         if (rows.isEmpty()) return Optional.empty();
 
+        // отчёт прошлого дня кэшируется и отдаётся всем — делаем map неизменяемой
         Map<String, HamsterStats> map = rows.stream()
-                .collect(Collectors.toMap(
+                .collect(Collectors.toUnmodifiableMap(
                         r -> r.hamsterId,
                         r -> new HamsterStats(r.hamsterId, r.totalRounds, r.isActive)
                 ));
         return Optional.of(new DailyReport(day, map));
     }
 
+    // первые n хомяков дня по убыванию кругов; идёт по индексу (date, total_rounds DESC, hamster_id)
+    public List<HamsterDayStats> loadTop(LocalDate day, int n) {
+        return jdbc.query("""
+            SELECT hamster_id, total_rounds, is_active
+            FROM daily_stats
+            WHERE date = ?
+            ORDER BY total_rounds DESC, hamster_id
+            LIMIT ?
+        """, (rs, i) -> new HamsterDayStats(
+                day,
+                rs.getString("hamster_id"),
+                rs.getInt("total_rounds"),
+                rs.getBoolean("is_active")
+        ), Date.valueOf(day), n);
+    }
+
+    // корзины дня по возрастанию hamster_id; hamsterId == null — все хомяки
+    public List<HamsterHourlyStats> loadHourly(LocalDate day, String hamsterId) {
+        StringBuilder sql = new StringBuilder("""
+            SELECT hamster_id, bucket_minutes, rounds
+            FROM hourly_stats
+            WHERE date = ?
+        """);
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(day)));
+        if (hamsterId != null) {
+            sql.append(" AND hamster_id = ?");
+            args.add(hamsterId);
+        }
+        sql.append(" ORDER BY hamster_id");
+
+        return jdbc.query(sql.toString(), (rs, i) -> {
+            Integer[] rounds = (Integer[]) rs.getArray("rounds").getArray();
+            int[] buckets = new int[rounds.length];
+            for (int b = 0; b < buckets.length; b++) {
+                buckets[b] = rounds[b] == null ? 0 : rounds[b];
+            }
+            return new HamsterHourlyStats(day, rs.getString("hamster_id"), rs.getInt("bucket_minutes"), buckets);
+        }, args.toArray());
+    }
+
+    /**
+     * Суммы по хомякам за ключи rollup из [from, to]; для WEEK/MONTH границы — начала недель/месяцев.
+     * hamsterId == null — все хомяки.
+     */
+    public List<HamsterPeriodStats> sumRollup(Rollup rollup, LocalDate from, LocalDate to, String hamsterId) {
+        String activeDays = rollup == Rollup.DAY ? "count(*) FILTER (WHERE is_active)" : "sum(active_days)";
+        StringBuilder sql = new StringBuilder()
+                .append("SELECT hamster_id, sum(total_rounds) AS total_rounds, ")
+                .append(activeDays).append(" AS active_days FROM ").append(rollup.table)
+                .append(" WHERE ").append(rollup.key).append(" BETWEEN ? AND ?");
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(from), Date.valueOf(to)));
+        if (hamsterId != null) {
+            sql.append(" AND hamster_id = ?");
+            args.add(hamsterId);
+        }
+        sql.append(" GROUP BY hamster_id");
+
+        return jdbc.query(sql.toString(), (rs, i) -> new HamsterPeriodStats(
+                rs.getString("hamster_id"),
+                rs.getLong("total_rounds"),
+                rs.getInt("active_days")
+        ), args.toArray());
+    }
+
+    /**
+     * Страница периода по ключу (date, hamster_id): следующая начинается строго после последней строки предыдущей,
+     * поэтому каждая страница — короткий проход по первичному ключу, без OFFSET.
+     * after == null — первая страница.
+     */
+    public List<HamsterDayStats> loadRangePage(LocalDate from,
+                                               LocalDate to,
+                                               String hamsterId,
+                                               HamsterDayStats after,
+                                               int limit) {
+        StringBuilder sql = new StringBuilder("""
+            SELECT date, hamster_id, total_rounds, is_active
+            FROM daily_stats
+            WHERE date BETWEEN ? AND ?
+        """);
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(from), Date.valueOf(to)));
+        if (hamsterId != null) {
+            sql.append(" AND hamster_id = ?");
+            args.add(hamsterId);
+        }
+        if (after != null) {
+            sql.append(" AND (date, hamster_id) > (?, ?)");
+            args.add(Date.valueOf(after.date()));
+            args.add(after.hamsterId());
+        }
+        sql.append(" ORDER BY date, hamster_id LIMIT ?");
+        args.add(limit);
+
+        return jdbc.query(sql.toString(), (rs, i) -> new HamsterDayStats(
+                rs.getDate("date").toLocalDate(),
+                rs.getString("hamster_id"),
+                rs.getInt("total_rounds"),
+                rs.getBoolean("is_active")
+        ), args.toArray());
+    }
+
     private record DbRow(String hamsterId, int totalRounds, boolean isActive) {}
 }
\ No newline at end of file
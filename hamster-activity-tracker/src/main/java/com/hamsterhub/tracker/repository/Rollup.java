@@ -0,0 +1,16 @@
+package com.hamsterhub.tracker.repository;
+
+// гранулярность хранения итогов: таблица и её ключ-дата (день, понедельник недели, первое число месяца)
+public enum Rollup {
+    DAY("daily_stats", "date"),
+    WEEK("weekly_stats", "week_start"),
+    MONTH("monthly_stats", "month_start");
+
+    final String table;
+    final String key;
+
+    Rollup(String table, String key) {
+        this.table = table;
+        this.key = key;
+    }
+}
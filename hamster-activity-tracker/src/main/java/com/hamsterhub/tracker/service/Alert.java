@@ -0,0 +1,38 @@
+package com.hamsterhub.tracker.service;
+
+// алерт о сущности; одинаковые (type, subjectId) в очереди склеиваются в один
+public record Alert(Type type, String subjectId) {
+
+    public enum Type {
+        HAMSTER_INACTIVE("Hamster %s inactive", "hamsters"),
+        SENSOR_INACTIVE("Sensor %s inactive", "sensors");
+
+        private final String single;
+        private final String plural;
+
+        Type(String single, String plural) {
+            this.single = single;
+            this.plural = plural;
+        }
+
+        String message(String subjectId) {
+            return single.formatted(subjectId);
+        }
+
+        String digest(int count, String subjects) {
+            return "%d %s inactive: %s".formatted(count, plural, subjects);
+        }
+    }
+
+    public static Alert hamsterInactive(String hamsterId) {
+        return new Alert(Type.HAMSTER_INACTIVE, hamsterId);
+    }
+
+    public static Alert sensorInactive(String sensorId) {
+        return new Alert(Type.SENSOR_INACTIVE, sensorId);
+    }
+
+    public String message() {
+        return type.message(subjectId);
+    }
+}
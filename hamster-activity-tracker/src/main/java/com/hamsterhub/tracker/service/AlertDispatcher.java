@@ -0,0 +1,261 @@
+package com.hamsterhub.tracker.service;
+
+import com.hamsterhub.tracker.config.AlertProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Асинхронная доставка алертов через {@link AlertService}. submit не блокируется: алерт кладётся в ограниченную
+ * очередь, повтор уже ждущего алерта склеивается с ним, при переполнении алерт отбрасывается и считается.
+ * Отдельный поток собирает алерты за batchWindowMs и отправляет их по типам: меньше digestThreshold —
+ * по одному сообщению, больше — одним сводным («37 sensors inactive: sensor-12..48, ...»).
+ * Не больше maxMessagesPerMinute сообщений в минуту; что не влезло, уходит позже одной строкой с числом пропущенных.
+ */
+@Component
+public class AlertDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(AlertDispatcher.class);
+    private static final Pattern NUMBERED = Pattern.compile("(.*?)(\\d{1,9})");
+
+    private final AlertService delivery;
+    private final AlertProperties props;
+    private final BlockingQueue<Alert> queue;
+    private final Set<Alert> queued = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+
+    // token bucket на сообщения; трогает только поток доставки
+    private double tokens;
+    private long refilledAtNanos;
+    private int pendingSuppressed;
+
+    private volatile boolean running;
+    private volatile Thread worker;
+
+    public AlertDispatcher(AlertService delivery, AlertProperties props) {
+        this.delivery = delivery;
+        this.props = props;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, props.queueCapacity()));
+        this.tokens = Math.max(1, props.maxMessagesPerMinute());
+        this.refilledAtNanos = System.nanoTime();
+    }
+
+    @PostConstruct
+    void start() {
+        // флаг до старта потока: поле worker присваивается уже после того, как поток мог начать работу
+        running = true;
+        worker = Thread.ofPlatform().name("alert-dispatcher").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        Thread current = worker;
+        worker = null;
+        if (current != null) {
+            current.interrupt();
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Не блокируется. false — очередь полна, алерт потерян. */
+    public boolean submit(Alert alert) {
+        submitted.increment();
+        if (!queued.add(alert)) {
+            coalesced.increment();
+            return true;
+        }
+        if (!queue.offer(alert)) {
+            queued.remove(alert);
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void run() {
+        List<Alert> batch = new ArrayList<>();
+        while (running) {
+            try {
+                Alert first = queue.poll(props.batchWindowMs(), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    // окно пачки: шторм из сотен алертов уйдёт несколькими сводками
+                    Thread.sleep(props.batchWindowMs());
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            }
+            queue.drainTo(batch);
+            dispatch(batch, System.nanoTime());
+            batch.clear();
+        }
+        // остаток при остановке — без окна и лимита не ждём
+        queue.drainTo(batch);
+        dispatch(batch, System.nanoTime());
+    }
+
+    /** Отправляет пачку; возвращает число отправленных сообщений. */
+    int dispatch(List<Alert> batch, long nowNanos) {
+        batch.forEach(queued::remove);
+        refill(nowNanos);
+        int sent = 0;
+        if (pendingSuppressed > 0 && tokens >= 1) {
+            if (send("%d alerts suppressed by rate limit".formatted(pendingSuppressed), 0)) {
+                sent++;
+            }
+            pendingSuppressed = 0;
+        }
+        Map<Alert.Type, List<String>> byType = new EnumMap<>(Alert.Type.class);
+        for (Alert alert : batch) {
+            byType.computeIfAbsent(alert.type(), t -> new ArrayList<>()).add(alert.subjectId());
+        }
+        for (Map.Entry<Alert.Type, List<String>> entry : byType.entrySet()) {
+            Alert.Type type = entry.getKey();
+            List<String> ids = entry.getValue();
+            if (ids.size() >= Math.max(2, props.digestThreshold())) {
+                sent += send(type.digest(ids.size(), compact(ids, props.digestMaxIds())), ids.size()) ? 1 : 0;
+            } else {
+                for (String id : ids) {
+                    sent += send(type.message(id), 1) ? 1 : 0;
+                }
+            }
+        }
+        return sent;
+    }
+
+    long submitted() {
+        return submitted.sum();
+    }
+
+    long coalesced() {
+        return coalesced.sum();
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    long delivered() {
+        return delivered.sum();
+    }
+
+    long failed() {
+        return failed.sum();
+    }
+
+    long suppressed() {
+        return suppressed.sum();
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Сжимает id в список диапазонов: sensor-12, sensor-13, sensor-14 → sensor-12..14.
+     * Номер сворачивается только с номерами той же ширины и печатается с теми же ведущими нулями:
+     * sensor-007, sensor-008 → sensor-007..008, а sensor-9 и sensor-10 остаются порознь.
+     * Не больше maxItems элементов, остальное — «+N more».
+     */
+    static String compact(List<String> ids, int maxItems) {
+        Map<Series, List<Integer>> numbered = new TreeMap<>(
+                Comparator.comparing(Series::prefix).thenComparingInt(Series::width));
+        List<String> items = new ArrayList<>();
+        for (String id : ids) {
+            Matcher m = NUMBERED.matcher(id);
+            if (m.matches()) {
+                numbered.computeIfAbsent(new Series(m.group(1), m.group(2).length()), s -> new ArrayList<>())
+                        .add(Integer.parseInt(m.group(2)));
+            } else {
+                items.add(id);
+            }
+        }
+        for (Map.Entry<Series, List<Integer>> entry : numbered.entrySet()) {
+            Series series = entry.getKey();
+            List<Integer> numbers = entry.getValue();
+            numbers.sort(null);
+            int start = numbers.get(0);
+            int prev = start;
+            for (int i = 1; i <= numbers.size(); i++) {
+                int next = i < numbers.size() ? numbers.get(i) : Integer.MIN_VALUE;
+                if (next == prev || next == prev + 1) {
+                    prev = next;
+                    continue;
+                }
+                items.add(start == prev ? series.id(start) : series.id(start) + ".." + series.digits(prev));
+                start = next;
+                prev = next;
+            }
+        }
+        if (items.size() <= maxItems) {
+            return String.join(", ", items);
+        }
+        return String.join(", ", items.subList(0, maxItems)) + " +" + (items.size() - maxItems) + " more";
+    }
+
+    // префикс и ширина номера: при равной ширине строка цифр однозначно восстанавливается по числу
+    private record Series(String prefix, int width) {
+        String digits(int number) {
+            String digits = Integer.toString(number);
+            return digits.length() < width ? "0".repeat(width - digits.length()) + digits : digits;
+        }
+
+        String id(int number) {
+            return prefix + digits(number);
+        }
+    }
+
+    private boolean send(String message, int alerts) {
+        if (tokens < 1) {
+            pendingSuppressed += Math.max(1, alerts);
+            suppressed.add(Math.max(1, alerts));
+            return false;
+        }
+        tokens -= 1;
+        try {
+            delivery.sendAlert(message);
+            delivered.increment();
+            return true;
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("Alert not delivered: {}", e.toString());
+            return false;
+        }
+    }
+
+    private void refill(long nowNanos) {
+        int perMinute = Math.max(1, props.maxMessagesPerMinute());
+        double elapsedMinutes = (nowNanos - refilledAtNanos) / (double) TimeUnit.MINUTES.toNanos(1);
+        tokens = Math.min(perMinute, tokens + elapsedMinutes * perMinute);
+        refilledAtNanos = nowNanos;
+    }
+}
@@ -0,0 +1,39 @@
+package com.hamsterhub.tracker.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+@Component
+class AlertMetrics implements MeterBinder {
+    private final AlertDispatcher dispatcher;
+
+    AlertMetrics(AlertDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tracker.alerts.queued", dispatcher, AlertDispatcher::queued)
+                .description("Alerts waiting for delivery")
+                .register(registry);
+        FunctionCounter.builder("tracker.alerts.submitted", dispatcher, AlertDispatcher::submitted)
+                .register(registry);
+        FunctionCounter.builder("tracker.alerts.coalesced", dispatcher, AlertDispatcher::coalesced)
+                .description("Alerts merged into one already waiting in the queue")
+                .register(registry);
+        FunctionCounter.builder("tracker.alerts.dropped", dispatcher, AlertDispatcher::dropped)
+                .description("Alerts lost because the queue was full")
+                .register(registry);
+        FunctionCounter.builder("tracker.alerts.delivered", dispatcher, AlertDispatcher::delivered)
+                .description("Messages sent, a digest counts once")
+                .register(registry);
+        FunctionCounter.builder("tracker.alerts.failed", dispatcher, AlertDispatcher::failed)
+                .register(registry);
+        FunctionCounter.builder("tracker.alerts.suppressed", dispatcher, AlertDispatcher::suppressed)
+                .description("Alerts held back by the rate limit")
+                .register(registry);
+    }
+}
@@ -0,0 +1,158 @@
+package com.hamsterhub.tracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hamsterhub.tracker.config.ClusterProperties;
+import com.hamsterhub.tracker.engine.ClusterRing;
+import com.hamsterhub.tracker.model.DailyReport;
+import com.hamsterhub.tracker.model.HamsterDayStats;
+import com.hamsterhub.tracker.model.HamsterHourlyStats;
+import com.hamsterhub.tracker.model.HamsterStats;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * Отчёты кластера: колёса хомяка могут принадлежать разным узлам, поэтому у каждого узла лишь часть его кругов.
+ * Запрос расходится по всем узлам с {@code X-Tracker-Scope: local}, части складываются по хомякам.
+ * Узел не ответил — отчёт не собирается: неполный итог неотличим от настоящего.
+ */
+@Service
+public class ClusterReportService {
+    public static final String SCOPE_HEADER = "X-Tracker-Scope";
+    public static final String SCOPE_LOCAL = "local";
+
+    private static final ParameterizedTypeReference<List<HamsterHourlyStats>> HOURLY_ROWS =
+            new ParameterizedTypeReference<>() {};
+
+    private final ClusterRing ring;
+    private final ClusterProperties props;
+    private final DailyReportService local;
+    private final ObjectMapper mapper;
+    private final WebClient client;
+
+    public ClusterReportService(ClusterRing ring,
+                                ClusterProperties props,
+                                DailyReportService local,
+                                ObjectMapper mapper,
+                                WebClient.Builder clientBuilder) {
+        this.ring = ring;
+        this.props = props;
+        this.local = local;
+        this.mapper = mapper;
+        // отчёт дня растёт с числом хомяков, лимит буфера по умолчанию (256 КБ) ему мал
+        this.client = clientBuilder
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(-1))
+                .build();
+    }
+
+    public boolean enabled() {
+        return ring.size() > 1;
+    }
+
+    // собранный отчёт меняется, пока узлы принимают события, поэтому кодируется на каждый запрос и без gzip
+    public Mono<EncodedReport> findDailyEncoded(LocalDate date) {
+        return findDaily(date).map(report -> EncodedReport.encode(mapper, report, false));
+    }
+
+    public Mono<DailyReport> findDaily(LocalDate date) {
+        Flux<Map<String, Integer>> remote = remotes(node -> client.get()
+                .uri(ring.node(node) + "/report/daily?date={date}", date)
+                .header(SCOPE_HEADER, SCOPE_LOCAL)
+                .retrieve()
+                .bodyToMono(PartialReport.class)
+                .map(PartialReport::totals));
+        Mono<Map<String, Integer>> own = local.findDaily(date).map(ClusterReportService::totals);
+        return Flux.concat(own, remote)
+                .reduceWith(HashMap<String, HamsterStats>::new, (merged, totals) -> {
+                    totals.forEach((id, rounds) -> merged.computeIfAbsent(id, HamsterStats::new).addRounds(rounds));
+                    return merged;
+                })
+                .map(merged -> new DailyReport(date, merged));
+    }
+
+    // топ узла не годится: хомяк, разделённый между узлами, может не попасть ни в один из них.
+    // Поэтому топ считается по сложенному отчёту дня
+    public Mono<List<HamsterDayStats>> leaderboard(LocalDate date, int n) {
+        return findDaily(date).map(report -> report.getHamsterStats().values().stream()
+                .sorted(Comparator.comparingInt(HamsterStats::getTotalRounds).reversed()
+                        .thenComparing(HamsterStats::getHamsterId))
+                .limit(n)
+                .map(stats -> new HamsterDayStats(date, stats.getHamsterId(), stats.getTotalRounds(), stats.isActive()))
+                .toList());
+    }
+
+    // корзины складываются поэлементно; ширина корзин на узлах должна совпадать
+    public Mono<List<HamsterHourlyStats>> hourly(LocalDate date, String hamsterId) {
+        Flux<List<HamsterHourlyStats>> remote = remotes(node -> client.get()
+                .uri(ring.node(node) + "/report/hourly?date={date}" + (hamsterId != null ? "&hamsterId={id}" : ""),
+                        date, hamsterId)
+                .header(SCOPE_HEADER, SCOPE_LOCAL)
+                .retrieve()
+                .bodyToMono(HOURLY_ROWS));
+        return Flux.concat(local.hourly(date, hamsterId), remote)
+                .reduceWith(TreeMap<String, HamsterHourlyStats>::new, (merged, rows) -> {
+                    for (HamsterHourlyStats row : rows) {
+                        merged.merge(row.hamsterId(), row, ClusterReportService::sum);
+                    }
+                    return merged;
+                })
+                .map(merged -> (List<HamsterHourlyStats>) new ArrayList<>(merged.values()));
+    }
+
+    private <T> Flux<T> remotes(IntFunction<Mono<T>> call) {
+        List<Mono<T>> calls = new ArrayList<>();
+        for (int node = 0; node < ring.size(); node++) {
+            if (!ring.isLocal(node)) {
+                String peer = ring.node(node);
+                calls.add(call.apply(node)
+                        .timeout(Duration.ofMillis(props.requestTimeoutMs()))
+                        .onErrorMap(e -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                                "cluster node " + peer + " did not answer", e)));
+            }
+        }
+        return Flux.merge(calls);
+    }
+
+    private static Map<String, Integer> totals(DailyReport report) {
+        Map<String, Integer> totals = new HashMap<>(Math.max(16, report.getHamsterStats().size() * 4 / 3 + 1));
+        report.getHamsterStats().forEach((id, stats) -> totals.put(id, stats.getTotalRounds()));
+        return totals;
+    }
+
+    private static HamsterHourlyStats sum(HamsterHourlyStats a, HamsterHourlyStats b) {
+        if (a.bucketMinutes() != b.bucketMinutes() || a.rounds().length != b.rounds().length) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "cluster nodes use different tracker.hourly.bucket-minutes");
+        }
+        int[] rounds = a.rounds().clone();
+        for (int i = 0; i < rounds.length; i++) {
+            rounds[i] += b.rounds()[i];
+        }
+        return new HamsterHourlyStats(a.date(), a.hamsterId(), a.bucketMinutes(), rounds);
+    }
+
+    // из ответа узла нужны только итоги, active пересчитывается по сумме
+    record PartialReport(Map<String, PartialStats> hamsterStats) {
+        Map<String, Integer> totals() {
+            Map<String, Integer> totals = new HashMap<>(Math.max(16, hamsterStats.size() * 4 / 3 + 1));
+            hamsterStats.forEach((id, stats) -> totals.put(id, stats.totalRounds()));
+            return totals;
+        }
+    }
+
+    record PartialStats(int totalRounds) {}
+}
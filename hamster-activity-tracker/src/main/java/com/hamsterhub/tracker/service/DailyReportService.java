@@ -1,35 +1,127 @@
 package com.hamsterhub.tracker.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hamsterhub.tracker.config.ReportProperties;
+import com.hamsterhub.tracker.engine.DailyStatsExported;
 import com.hamsterhub.tracker.engine.ReportGenerator;
 import com.hamsterhub.tracker.model.DailyReport;
+import com.hamsterhub.tracker.model.HamsterDayStats;
+import com.hamsterhub.tracker.model.HamsterHourlyStats;
 import com.hamsterhub.tracker.repository.DailyStatsRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.List;
 
 @Service
 public class DailyReportService {
     private final ReportGenerator inMemoryGenerator;
     private final DailyStatsRepository repo;
     private final ZoneId zone;
+    private final ObjectMapper mapper;
 
-    public DailyReportService(ReportGenerator gen, DailyStatsRepository repo, ZoneId zone) {
+    // выгруженные прошлые дни не меняются, пока экспорт их не перепишет; вес — число хомяков в отчёте.
+    // Вместе с отчётом лежит уже закодированное тело ответа
+    private final Cache<LocalDate, EncodedReport> pastReports;
+
+    public DailyReportService(ReportGenerator gen,
+                              DailyStatsRepository repo,
+                              ZoneId zone,
+                              ReportProperties props,
+                              ObjectMapper mapper) {
         this.inMemoryGenerator = gen;
         this.repo = repo;
         this.zone = zone;
+        this.mapper = mapper;
+        this.pastReports = Caffeine.newBuilder()
+                .maximumWeight(props.cacheMaxRows())
+                .weigher((LocalDate date, EncodedReport report) -> report.weight())
+                .recordStats()
+                .build();
     }
 
     public Mono<DailyReport> findDaily(LocalDate date) {
         LocalDate today = LocalDate.now(zone);
         if (date.isBefore(today)) {
-            return Mono.fromCallable(() -> repo.loadReport(date))
-                    .subscribeOn(Schedulers.boundedElastic())
-                    .flatMap(opt -> opt.map(Mono::just)
-                            .orElseGet(() -> Mono.fromSupplier(() -> inMemoryGenerator.generate(date))));
+            return findPast(date)
+                    .map(EncodedReport::report)
+                    .switchIfEmpty(Mono.fromSupplier(() -> inMemoryGenerator.generate(date)));
         }
         return Mono.fromSupplier(() -> inMemoryGenerator.generate(date));
     }
-}
\ No newline at end of file
+
+    // то же, но сразу телом ответа; текущий день меняется, поэтому кодируется на каждый запрос и без gzip
+    public Mono<EncodedReport> findDailyEncoded(LocalDate date) {
+        Mono<EncodedReport> current = Mono.fromSupplier(
+                () -> EncodedReport.encode(mapper, inMemoryGenerator.generate(date), false));
+        if (date.isBefore(LocalDate.now(zone))) {
+            return findPast(date).switchIfEmpty(current);
+        }
+        return current;
+    }
+
+    // прошлый день — из БД (если его там ещё нет — из памяти), текущий — из топа дня в памяти
+    public Mono<List<HamsterDayStats>> leaderboard(LocalDate date, int n) {
+        Mono<List<HamsterDayStats>> current = Mono.fromSupplier(() -> inMemoryGenerator.leaderboard(date, n));
+        if (date.isBefore(LocalDate.now(zone))) {
+            return Mono.fromCallable(() -> repo.loadTop(date, n))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .filter(top -> !top.isEmpty())
+                    .switchIfEmpty(current);
+        }
+        return current;
+    }
+
+    // корзины активности: прошлый день — из hourly_stats (если его там ещё нет — из памяти), текущий — из памяти
+    public Mono<List<HamsterHourlyStats>> hourly(LocalDate date, String hamsterId) {
+        Mono<List<HamsterHourlyStats>> current = Mono.fromSupplier(() -> inMemoryGenerator.hourly(date, hamsterId));
+        if (date.isBefore(LocalDate.now(zone))) {
+            return Mono.fromCallable(() -> repo.loadHourly(date, hamsterId))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .filter(rows -> !rows.isEmpty())
+                    .switchIfEmpty(current);
+        }
+        return current;
+    }
+
+    public int leaderboardSize() {
+        return inMemoryGenerator.leaderboardSize();
+    }
+
+    // экспорт переписал даты — после коммита выкидываем их из кэша
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExported(DailyStatsExported event) {
+        pastReports.invalidateAll(event.dates());
+    }
+
+    Cache<LocalDate, EncodedReport> pastReports() {
+        return pastReports;
+    }
+
+    // пусто, если дня нет в БД
+    private Mono<EncodedReport> findPast(LocalDate date) {
+        // тихая проверка, чтобы промах не попал в статистику дважды: его посчитает get() в loadPast
+        if (pastReports.policy().getIfPresentQuietly(date) != null) {
+            EncodedReport cached = pastReports.getIfPresent(date);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+        }
+        return Mono.fromCallable(() -> loadPast(date))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // загрузка внутри get: параллельные запросы одной даты ждут один запрос в БД, а инвалидация дожидается
+    // загрузки и не даёт закэшировать прочитанное до экспорта. Дня нет в БД — ничего не кэшируем
+    private EncodedReport loadPast(LocalDate date) {
+        return pastReports.get(date, d -> repo.loadReport(d)
+                .map(report -> EncodedReport.encode(mapper, report, true))
+                .orElse(null));
+    }
+}
@@ -0,0 +1,86 @@
+package com.hamsterhub.tracker.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hamsterhub.tracker.model.DailyReport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Отчёт вместе с готовым телом ответа: JSON, при необходимости его gzip, и сильные ETag обоих представлений.
+ * Для прошлых дней кодируется один раз при загрузке в кэш, дальше байты отдаются как есть.
+ */
+public final class EncodedReport {
+    // меньше этого gzip почти ничего не выигрывает
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    private final DailyReport report;
+    private final byte[] json;
+    private final byte[] gzip;
+    private final String etag;
+
+    private EncodedReport(DailyReport report, byte[] json, byte[] gzip, String etag) {
+        this.report = report;
+        this.json = json;
+        this.gzip = gzip;
+        this.etag = etag;
+    }
+
+    static EncodedReport encode(ObjectMapper mapper, DailyReport report, boolean compress) {
+        byte[] json;
+        try {
+            json = mapper.writeValueAsBytes(report);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Report for " + report.getDate() + " is not serializable", e);
+        }
+        byte[] gzip = compress && json.length >= GZIP_MIN_BYTES ? gzip(json) : null;
+        return new EncodedReport(report, json, gzip, digest(json));
+    }
+
+    public DailyReport report() {
+        return report;
+    }
+
+    public byte[] json() {
+        return json;
+    }
+
+    // null, если сжатой версии нет
+    public byte[] gzip() {
+        return gzip;
+    }
+
+    // у сжатого тела другие байты, значит и сильный ETag другой
+    public String etag(boolean gzipped) {
+        return gzipped ? "\"" + etag + "-gz\"" : "\"" + etag + "\"";
+    }
+
+    int weight() {
+        return Math.max(1, report.getHamsterStats().size());
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out, 8192)) {
+            gz.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String digest(byte[] json) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
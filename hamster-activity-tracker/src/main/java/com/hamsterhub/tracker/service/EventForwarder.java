@@ -0,0 +1,193 @@
+package com.hamsterhub.tracker.service;
+
+import com.hamsterhub.tracker.config.ClusterProperties;
+import com.hamsterhub.tracker.engine.ClusterRing;
+import com.hamsterhub.tracker.model.EventWrapper;
+import com.hamsterhub.tracker.model.IngestResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пересылает чужие события узлу-владельцу колеса пачками в {@code POST /cluster/events}.
+ * На каждый узел — своя ограниченная очередь и один поток-отправитель: события одного колеса уходят
+ * строго по порядку, а переполненная очередь отказывает клиенту так же, как переполненный {@code EventBus}.
+ * Недоставленный остаток пачки повторяется, пока владелец его не примет. Запрос несёт номер пачки
+ * и смещение остатка в ней ({@link #BATCH_HEADER}): если владелец применил запрос, а ответ не дошёл
+ * до таймаута, повтор он не применит второй раз, а ответит тем, что уже принял.
+ */
+@Service
+public class EventForwarder {
+    // адрес отправителя из peers
+    public static final String SENDER_HEADER = "X-Tracker-Sender";
+    // "<запуск отправителя>:<номер пачки>:<смещение остатка>"; номера пачек у каждого узла-получателя свои
+    public static final String BATCH_HEADER = "X-Tracker-Batch";
+
+    private static final Logger log = LoggerFactory.getLogger(EventForwarder.class);
+
+    private final ClusterProperties props;
+    private final WebClient client;
+    // после рестарта нумерация пачек начинается заново — владелец отличит её по запуску
+    private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    // по номеру узла кольца; у своего узла очереди нет
+    private final Peer[] peers;
+    private volatile boolean running;
+
+    public EventForwarder(ClusterRing ring, ClusterProperties props, WebClient.Builder clientBuilder,
+                          MeterRegistry registry) {
+        this.props = props;
+        this.client = clientBuilder.build();
+        this.peers = new Peer[ring.size()];
+        for (int node = 0; node < ring.size(); node++) {
+            if (!ring.isLocal(node)) {
+                peers[node] = new Peer(ring.node(node), Math.max(1, props.forwardQueueCapacity()), registry);
+            }
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        for (Peer peer : peers) {
+            if (peer != null) {
+                peer.sender = Thread.ofPlatform()
+                        .name("forward-" + peer.url)
+                        .daemon()
+                        .start(() -> sendLoop(peer));
+            }
+        }
+    }
+
+    // неотправленное при остановке теряется, как и события в очередях EventBus
+    @PreDestroy
+    void stop() {
+        running = false;
+        for (Peer peer : peers) {
+            if (peer != null && peer.sender != null) {
+                peer.sender.interrupt();
+                try {
+                    peer.sender.join(props.requestTimeoutMs());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (!peer.queue.isEmpty()) {
+                    log.warn("{} events for {} were not forwarded before shutdown", peer.queue.size(), peer.url);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false, если очередь узла заполнена: клиент получит отказ и дошлёт событие сам
+     */
+    public boolean offer(int node, EventWrapper event) {
+        return peers[node].queue.offer(event);
+    }
+
+    private void sendLoop(Peer peer) {
+        int batchSize = Math.max(1, props.forwardBatchSize());
+        List<EventWrapper> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                EventWrapper first = peer.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                peer.queue.drainTo(batch, batchSize - 1);
+                deliver(peer, batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // владелец принимает префикс пачки, как /events/batch; следующую пачку не шлём, пока эта не ушла целиком
+    // пока узел лежит, повтор идёт каждые retryBackoffMs: в лог — начало и конец сбоя, а не каждая попытка
+    private void deliver(Peer peer, List<EventWrapper> batch) throws InterruptedException {
+        long seq = ++peer.batches;
+        int from = 0;
+        int failures = 0;
+        while (from < batch.size()) {
+            List<EventWrapper> rest = batch.subList(from, batch.size());
+            try {
+                IngestResult result = client.post()
+                        .uri(peer.url + "/cluster/events")
+                        .header(SENDER_HEADER, props.self())
+                        .header(BATCH_HEADER, epoch + ":" + seq + ":" + from)
+                        .bodyValue(rest)
+                        .retrieve()
+                        .bodyToMono(IngestResult.class)
+                        .block(Duration.ofMillis(props.requestTimeoutMs()));
+                int accepted = result == null ? 0 : result.accepted();
+                from += accepted;
+                peer.forwarded.increment(accepted);
+                if (failures > 0) {
+                    log.info("Forwarding to {} recovered after {} failed attempts", peer.url, failures);
+                    failures = 0;
+                }
+                if (from < batch.size()) {
+                    peer.retries.increment();
+                    backoff();
+                }
+            } catch (RuntimeException e) {
+                peer.retries.increment();
+                if (failures++ == 0) {
+                    log.warn("Forwarding {} events to {} failed, retrying: {}", rest.size(), peer.url, e.toString());
+                }
+                backoff();
+            }
+        }
+    }
+
+    private void backoff() throws InterruptedException {
+        if (!running) {
+            throw new InterruptedException("forwarder stopped");
+        }
+        Thread.sleep(props.retryBackoffMs());
+    }
+
+    private static final class Peer {
+        private final String url;
+        private final ArrayBlockingQueue<EventWrapper> queue;
+        private final Counter forwarded;
+        private final Counter retries;
+        private volatile Thread sender;
+        // только поток-отправитель
+        private long batches;
+
+        Peer(String url, int capacity, MeterRegistry registry) {
+            this.url = url;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.forwarded = Counter.builder("tracker.cluster.forwarded")
+                    .description("Events delivered to the owning node")
+                    .tag("peer", url)
+                    .register(registry);
+            this.retries = Counter.builder("tracker.cluster.forward.retries")
+                    .description("Forwarded batches resent after a failure or a partial accept")
+                    .tag("peer", url)
+                    .register(registry);
+            Gauge.builder("tracker.cluster.forward.queue", queue, ArrayBlockingQueue::size)
+                    .description("Events waiting to be forwarded to the owning node")
+                    .tag("peer", url)
+                    .register(registry);
+        }
+    }
+}
@@ -1,23 +1,193 @@
 package com.hamsterhub.tracker.service;
 
 
+import com.hamsterhub.tracker.config.IngestProperties;
+import com.hamsterhub.tracker.engine.ClusterRing;
 import com.hamsterhub.tracker.engine.EventBus;
 import com.hamsterhub.tracker.model.EventWrapper;
+import com.hamsterhub.tracker.model.IngestResult;
+import hamsterhub.common.events.HamsterEnter;
 import hamsterhub.common.events.HamsterEvent;
+import hamsterhub.common.events.HamsterExit;
+import hamsterhub.common.events.SensorFailure;
+import hamsterhub.common.events.WheelSpin;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class EventService {
     private final EventBus bus;
+    private final ClusterRing ring;
+    private final EventForwarder forwarder;
+    private final IngestProperties props;
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter duplicates;
+    private final ForwardedBatches forwarded = new ForwardedBatches();
 
-    public EventService(EventBus bus) {
+    public EventService(EventBus bus, ClusterRing ring, EventForwarder forwarder, IngestProperties props,
+                        MeterRegistry registry) {
         this.bus = bus;
+        this.ring = ring;
+        this.forwarder = forwarder;
+        this.props = props;
+        this.accepted = ingestCounter(registry, "accepted");
+        this.rejected = ingestCounter(registry, "rejected");
+        this.duplicates = Counter.builder("tracker.cluster.forward.duplicates")
+                .description("Forwarded events dropped as a resend of what was already accepted")
+                .register(registry);
+    }
+
+    private static Counter ingestCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("tracker.ingest.events")
+                .description("Events received over HTTP")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    public Mono<IngestResult> processEvent(HamsterEvent event, String sensorId) {
+        return onEmitThread(Mono.fromSupplier(() -> {
+            checkIds(event, sensorId);
+            boolean ok = route(new EventWrapper(event, sensorId, System.currentTimeMillis()));
+            count(ok ? 1 : 0, 1);
+            return ok ? new IngestResult(1, 0) : new IngestResult(0, 1);
+        }));
+    }
+
+    // принимаем префикс пачки: после первого отказа остаток не кладём, клиент дошлёт его сам
+    public Mono<IngestResult> processBatch(List<HamsterEvent> events, String sensorId) {
+        return onEmitThread(Mono.fromSupplier(() -> {
+            for (HamsterEvent event : events) {
+                checkIds(event, sensorId);
+            }
+            int accepted = 0;
+            for (int from = 0; from < events.size(); from += chunkSize()) {
+                List<HamsterEvent> chunk = events.subList(from, Math.min(events.size(), from + chunkSize()));
+                int n = emitChunk(chunk, sensorId);
+                accepted += n;
+                if (n < chunk.size()) {
+                    break;
+                }
+            }
+            count(accepted, events.size());
+            return new IngestResult(accepted, events.size() - accepted);
+        }));
+    }
+
+    // NDJSON: события декодируются по мере поступления, ответ — счётчик на каждый чанк.
+    // Чанк закрывается по размеру или по времени: редкие события долгого потока не ждут заполнения неподтверждёнными
+    public Flux<IngestResult> processStream(Flux<HamsterEvent> events, String sensorId) {
+        Flux<List<HamsterEvent>> chunks = events.bufferTimeout(chunkSize(),
+                Duration.ofMillis(props.chunkMaxDelayMs()), true);
+        if (bus.isBlocking()) {
+            chunks = chunks.publishOn(Schedulers.boundedElastic());
+        }
+        return chunks.map(chunk -> {
+            for (HamsterEvent event : chunk) {
+                checkIds(event, sensorId);
+            }
+            int accepted = emitChunk(chunk, sensorId);
+            count(accepted, chunk.size());
+            return new IngestResult(accepted, chunk.size() - accepted);
+        });
+    }
+
+    /**
+     * События, пересланные другим узлом кластера: уже посчитаны в tracker.ingest.events на узле приёма.
+     * batch — заголовок {@link EventForwarder#BATCH_HEADER}; без него пачка применяется как есть.
+     */
+    public Mono<IngestResult> processForwarded(String sender, String batch, List<EventWrapper> events) {
+        return onEmitThread(Mono.fromSupplier(() -> {
+            String[] parts = batch == null ? new String[0] : batch.split(":");
+            if (sender == null || parts.length != 3) {
+                int n = bus.emitAll(events);
+                return new IngestResult(n, events.size() - n);
+            }
+            ForwardedBatches.Accepted accepted;
+            try {
+                accepted = forwarded.accept(sender, Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                        Integer.parseInt(parts[2]), events, bus::emitAll);
+            } catch (NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "malformed " + EventForwarder.BATCH_HEADER);
+            }
+            if (accepted.skipped() > 0) {
+                duplicates.increment(accepted.skipped());
+            }
+            return accepted.result();
+        }));
+    }
+
+    // слишком длинный id не запишется в журнал и снапшот — отвечаем 400 здесь, а не падаем на потоке шарда
+    private void checkIds(HamsterEvent event, String sensorId) {
+        boolean tooLong = tooLong(sensorId) || switch (event) {
+            case HamsterEnter e -> tooLong(e.hamsterId()) || tooLong(e.wheelId());
+            case HamsterExit e -> tooLong(e.hamsterId()) || tooLong(e.wheelId());
+            case WheelSpin e -> tooLong(e.wheelId());
+            case SensorFailure e -> tooLong(e.sensorId());
+        };
+        if (tooLong) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "id longer than " + props.maxIdLength() + " characters");
+        }
+    }
+
+    private boolean tooLong(String id) {
+        return id != null && id.length() > props.maxIdLength();
+    }
+
+    private int emitChunk(List<HamsterEvent> chunk, String sensorId) {
+        long receivedAt = System.currentTimeMillis();
+        List<EventWrapper> wrapped = new ArrayList<>(chunk.size());
+        for (HamsterEvent event : chunk) {
+            wrapped.add(new EventWrapper(event, sensorId, receivedAt));
+        }
+        if (ring.size() == 1) {
+            return bus.emitAll(wrapped);
+        }
+        // тот же префикс, что и без кластера: до первого отказа своей очереди или очереди пересылки
+        int accepted = 0;
+        for (EventWrapper event : wrapped) {
+            if (!route(event)) {
+                break;
+            }
+            accepted++;
+        }
+        return accepted;
+    }
+
+    // событие чужого колеса уходит владельцу; receivedAt остаётся временем приёма на этом узле
+    private boolean route(EventWrapper event) {
+        int owner = ring.owner(event);
+        return ring.isLocal(owner) ? bus.emit(event) : forwarder.offer(owner, event);
+    }
+
+    // один инкремент на пачку, а не на событие
+    private void count(int acceptedEvents, int total) {
+        if (acceptedEvents > 0) {
+            accepted.increment(acceptedEvents);
+        }
+        if (total > acceptedEvents) {
+            rejected.increment(total - acceptedEvents);
+        }
+    }
+
+    // политика BLOCK держит поток, поэтому уходим с event loop
+    private <T> Mono<T> onEmitThread(Mono<T> emit) {
+        return bus.isBlocking() ? emit.subscribeOn(Schedulers.boundedElastic()) : emit;
     }
 
-    public Mono<Void> processEvent(HamsterEvent event, String sensorId) {
-        bus.emit(new EventWrapper(event, sensorId, System.currentTimeMillis()));
-        return Mono.empty();
+    private int chunkSize() {
+        return Math.max(1, props.chunkSize());
     }
 }
 
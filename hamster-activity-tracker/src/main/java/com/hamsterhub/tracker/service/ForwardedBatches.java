@@ -0,0 +1,56 @@
+package com.hamsterhub.tracker.service;
+
+import com.hamsterhub.tracker.model.EventWrapper;
+import com.hamsterhub.tracker.model.IngestResult;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Сколько событий пересланных пачек владелец уже принял: по каждому отправителю — его запуск, номер текущей
+ * пачки и принятый префикс. Отправитель шлёт узлу пачки строго по одной, поэтому хватает последней.
+ * Повтор уже применённого запроса (ответ не дошёл до таймаута) получает тот же ответ без повторного применения.
+ */
+final class ForwardedBatches {
+    private final ConcurrentHashMap<String, Sender> senders = new ConcurrentHashMap<>();
+
+    /**
+     * @param offset смещение events в пачке отправителя
+     * @param emit   кладёт события в шину и возвращает, сколько принято
+     * @return принятое с учётом уже применённого раньше; skipped — сколько событий запроса отброшено как повтор
+     */
+    Accepted accept(String sender, long epoch, long seq, int offset, List<EventWrapper> events,
+                    ToIntFunction<List<EventWrapper>> emit) {
+        Sender state = senders.computeIfAbsent(sender, key -> new Sender());
+        // запрос, брошенный отправителем по таймауту, может ещё применяться — повтор ждёт его здесь
+        synchronized (state) {
+            if (state.epoch != epoch) {
+                state.epoch = epoch;
+                state.seq = 0;
+                state.applied = 0;
+            }
+            if (seq < state.seq) {
+                return new Accepted(new IngestResult(events.size(), 0), events.size());
+            }
+            if (seq > state.seq) {
+                state.seq = seq;
+                state.applied = 0;
+            }
+            int skipped = Math.min(events.size(), Math.max(0, state.applied - offset));
+            int emitted = skipped < events.size() ? emit.applyAsInt(events.subList(skipped, events.size())) : 0;
+            state.applied = Math.max(state.applied, offset + skipped + emitted);
+            int accepted = skipped + emitted;
+            return new Accepted(new IngestResult(accepted, events.size() - accepted), skipped);
+        }
+    }
+
+    record Accepted(IngestResult result, int skipped) {
+    }
+
+    private static final class Sender {
+        private long epoch;
+        private long seq;
+        private int applied;
+    }
+}
@@ -0,0 +1,62 @@
+package com.hamsterhub.tracker.service;
+
+import com.hamsterhub.tracker.config.ReportProperties;
+import com.hamsterhub.tracker.engine.ReportGenerator;
+import com.hamsterhub.tracker.model.HamsterDayStats;
+import com.hamsterhub.tracker.repository.DailyStatsRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Отчёт за период строками (день, хомяк): прошлые дни страницами из daily_stats, сегодняшний — из памяти.
+ * Следующая страница запрашивается, только когда клиент дочитал предыдущую, так что в памяти не больше двух страниц.
+ */
+@Service
+public class RangeReportService {
+    private final ReportGenerator inMemoryGenerator;
+    private final DailyStatsRepository repo;
+    private final ZoneId zone;
+    private final int pageSize;
+
+    public RangeReportService(ReportGenerator gen,
+                              DailyStatsRepository repo,
+                              ZoneId zone,
+                              ReportProperties props) {
+        this.inMemoryGenerator = gen;
+        this.repo = repo;
+        this.zone = zone;
+        this.pageSize = Math.max(1, props.rangePageSize());
+    }
+
+    // hamsterId == null — все хомяки; строки идут по возрастанию (date, hamsterId)
+    public Flux<HamsterDayStats> stream(LocalDate from, LocalDate to, String hamsterId) {
+        LocalDate today = LocalDate.now(zone);
+        Flux<HamsterDayStats> past = from.isBefore(today)
+                ? pages(from, to.isBefore(today) ? to : today.minusDays(1), hamsterId)
+                : Flux.empty();
+        Flux<HamsterDayStats> current = !today.isBefore(from) && !today.isAfter(to)
+                ? Flux.defer(() -> Flux.fromIterable(inMemoryGenerator.rows(today, hamsterId)))
+                : Flux.empty();
+        return past.concatWith(current);
+    }
+
+    private Flux<HamsterDayStats> pages(LocalDate from, LocalDate to, String hamsterId) {
+        return page(from, to, hamsterId, null)
+                .expand(rows -> rows.size() < pageSize
+                        ? Mono.empty()
+                        : page(from, to, hamsterId, rows.get(rows.size() - 1)))
+                // по одной странице за раз: иначе concatMapIterable заранее запросит десятки страниц
+                .concatMapIterable(rows -> rows, 1);
+    }
+
+    private Mono<List<HamsterDayStats>> page(LocalDate from, LocalDate to, String hamsterId, HamsterDayStats after) {
+        return Mono.fromCallable(() -> repo.loadRangePage(from, to, hamsterId, after, pageSize))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
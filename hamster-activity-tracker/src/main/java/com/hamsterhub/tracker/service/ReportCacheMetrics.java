@@ -0,0 +1,21 @@
+package com.hamsterhub.tracker.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+@Component
+class ReportCacheMetrics implements MeterBinder {
+    private final DailyReportService reports;
+
+    ReportCacheMetrics(DailyReportService reports) {
+        this.reports = reports;
+    }
+
+    // cache.gets{result=hit|miss}, cache.evictions, cache.size с тегом cache=report.daily
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, reports.pastReports(), "report.daily");
+    }
+}
@@ -0,0 +1,56 @@
+package com.hamsterhub.tracker.service;
+
+import com.hamsterhub.tracker.repository.Rollup;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбивает период на куски самой крупной свёртки, которая его покрывает: полные месяцы — из monthly_stats,
+ * полные недели внутри неполных месяцев — из weekly_stats, остаток — дни из daily_stats.
+ * Куски не пересекаются, поэтому суммы по ним просто складываются.
+ */
+final class RollupPlanner {
+
+    // для WEEK/MONTH from и to — начала первой и последней недели/месяца
+    record Segment(Rollup rollup, LocalDate from, LocalDate to) {}
+
+    private RollupPlanner() {
+    }
+
+    static List<Segment> plan(LocalDate from, LocalDate to) {
+        List<Segment> segments = new ArrayList<>();
+        LocalDate firstMonth = from.getDayOfMonth() == 1 ? from : from.withDayOfMonth(1).plusMonths(1);
+        LocalDate lastMonth = to.plusDays(1).withDayOfMonth(1).minusMonths(1);
+        if (!firstMonth.isAfter(lastMonth)) {
+            weeksAndDays(from, firstMonth.minusDays(1), segments);
+            segments.add(new Segment(Rollup.MONTH, firstMonth, lastMonth));
+            weeksAndDays(lastMonth.plusMonths(1), to, segments);
+        } else {
+            weeksAndDays(from, to, segments);
+        }
+        return segments;
+    }
+
+    private static void weeksAndDays(LocalDate from, LocalDate to, List<Segment> segments) {
+        if (from.isAfter(to)) {
+            return;
+        }
+        LocalDate firstWeek = from.with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        LocalDate lastWeek = to.plusDays(1).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).minusWeeks(1);
+        if (firstWeek.isAfter(lastWeek)) {
+            segments.add(new Segment(Rollup.DAY, from, to));
+            return;
+        }
+        if (from.isBefore(firstWeek)) {
+            segments.add(new Segment(Rollup.DAY, from, firstWeek.minusDays(1)));
+        }
+        segments.add(new Segment(Rollup.WEEK, firstWeek, lastWeek));
+        if (lastWeek.plusWeeks(1).isBefore(to.plusDays(1))) {
+            segments.add(new Segment(Rollup.DAY, lastWeek.plusWeeks(1), to));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.hamsterhub.tracker.service;
+
+import com.hamsterhub.tracker.engine.ReportGenerator;
+import com.hamsterhub.tracker.model.HamsterDayStats;
+import com.hamsterhub.tracker.model.HamsterPeriodStats;
+import com.hamsterhub.tracker.repository.DailyStatsRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Итоги за период по хомякам: прошлые дни — из самых крупных свёрток (см. {@link RollupPlanner}),
+ * сегодняшний — из памяти. Свёртки текущих недели и месяца уже содержат часть сегодняшних кругов,
+ * поэтому из БД берётся только период до вчера включительно.
+ */
+@Service
+public class SummaryReportService {
+    private final ReportGenerator inMemoryGenerator;
+    private final DailyStatsRepository repo;
+    private final ZoneId zone;
+
+    public SummaryReportService(ReportGenerator gen, DailyStatsRepository repo, ZoneId zone) {
+        this.inMemoryGenerator = gen;
+        this.repo = repo;
+        this.zone = zone;
+    }
+
+    // hamsterId == null — все хомяки; результат по возрастанию hamsterId
+    public Mono<List<HamsterPeriodStats>> summary(LocalDate from, LocalDate to, String hamsterId) {
+        return Mono.fromCallable(() -> load(from, to, hamsterId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private List<HamsterPeriodStats> load(LocalDate from, LocalDate to, String hamsterId) {
+        LocalDate today = LocalDate.now(zone);
+        Map<String, long[]> totals = new TreeMap<>();
+        LocalDate lastPast = to.isBefore(today) ? to : today.minusDays(1);
+        if (!from.isAfter(lastPast)) {
+            for (RollupPlanner.Segment segment : RollupPlanner.plan(from, lastPast)) {
+                for (HamsterPeriodStats stats : repo.sumRollup(segment.rollup(), segment.from(), segment.to(), hamsterId)) {
+                    add(totals, stats.hamsterId(), stats.totalRounds(), stats.activeDays());
+                }
+            }
+        }
+        if (!today.isBefore(from) && !today.isAfter(to)) {
+            for (HamsterDayStats row : inMemoryGenerator.rows(today, hamsterId)) {
+                add(totals, row.hamsterId(), row.totalRounds(), row.active() ? 1 : 0);
+            }
+        }
+        List<HamsterPeriodStats> result = new ArrayList<>(totals.size());
+        totals.forEach((id, t) -> result.add(new HamsterPeriodStats(id, t[0], (int) t[1])));
+        return result;
+    }
+
+    private static void add(Map<String, long[]> totals, String hamsterId, long rounds, int activeDays) {
+        long[] t = totals.computeIfAbsent(hamsterId, id -> new long[2]);
+        t[0] += rounds;
+        t[1] += activeDays;
+    }
+}
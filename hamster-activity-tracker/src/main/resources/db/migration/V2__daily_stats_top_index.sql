@@ -0,0 +1,3 @@
+-- топ дня (/report/leaderboard) читается по индексу без сортировки всего дня
+CREATE INDEX IF NOT EXISTS ix_daily_stats_date_rounds
+  ON daily_stats (date, total_rounds DESC, hamster_id);
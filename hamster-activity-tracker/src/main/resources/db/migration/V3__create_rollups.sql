@@ -0,0 +1,29 @@
+-- недельные (с понедельника) и месячные свёртки daily_stats; экспорт добавляет к ним разницу итогов дня
+CREATE TABLE IF NOT EXISTS weekly_stats (
+  week_start   date    NOT NULL,
+  hamster_id   text    NOT NULL,
+  total_rounds bigint  NOT NULL,
+  active_days  integer NOT NULL,
+  CONSTRAINT pk_weekly_stats PRIMARY KEY (week_start, hamster_id)
+);
+
+CREATE TABLE IF NOT EXISTS monthly_stats (
+  month_start  date    NOT NULL,
+  hamster_id   text    NOT NULL,
+  total_rounds bigint  NOT NULL,
+  active_days  integer NOT NULL,
+  CONSTRAINT pk_monthly_stats PRIMARY KEY (month_start, hamster_id)
+);
+
+-- уже выгруженная история
+INSERT INTO weekly_stats(week_start, hamster_id, total_rounds, active_days)
+SELECT date_trunc('week', date)::date, hamster_id, sum(total_rounds), count(*) FILTER (WHERE is_active)
+FROM daily_stats
+GROUP BY 1, 2
+ON CONFLICT DO NOTHING;
+
+INSERT INTO monthly_stats(month_start, hamster_id, total_rounds, active_days)
+SELECT date_trunc('month', date)::date, hamster_id, sum(total_rounds), count(*) FILTER (WHERE is_active)
+FROM daily_stats
+GROUP BY 1, 2
+ON CONFLICT DO NOTHING;
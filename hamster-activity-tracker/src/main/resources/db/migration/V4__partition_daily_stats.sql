@@ -0,0 +1,37 @@
+-- daily_stats секционируется по месяцам: запросы по дате читают только нужные секции,
+-- а старые месяцы отсоединяются и уходят в архив целиком, без DELETE и долгого vacuum
+ALTER TABLE daily_stats RENAME TO daily_stats_legacy;
+ALTER TABLE daily_stats_legacy RENAME CONSTRAINT pk_daily_stats TO pk_daily_stats_legacy;
+DROP INDEX IF EXISTS ix_daily_stats_date_rounds;
+
+CREATE TABLE daily_stats (
+  date         date        NOT NULL,
+  hamster_id   text        NOT NULL,
+  total_rounds integer     NOT NULL,
+  is_active    boolean     NOT NULL,
+  updated_at   timestamptz NOT NULL DEFAULT now(),
+  CONSTRAINT pk_daily_stats PRIMARY KEY (date, hamster_id)
+) PARTITION BY RANGE (date);
+
+CREATE INDEX ix_daily_stats_date_rounds ON daily_stats (date, total_rounds DESC, hamster_id);
+
+-- страховка: строки месяца, секцию которого ещё не создали, не теряются
+CREATE TABLE daily_stats_default PARTITION OF daily_stats DEFAULT;
+
+-- секции daily_stats_YYYY_MM под имеющуюся историю, текущий и следующий месяц
+DO $$
+DECLARE
+  m date;
+BEGIN
+  FOR m IN
+    SELECT DISTINCT date_trunc('month', date)::date FROM daily_stats_legacy
+    UNION SELECT date_trunc('month', current_date)::date
+    UNION SELECT (date_trunc('month', current_date) + interval '1 month')::date
+  LOOP
+    EXECUTE format('CREATE TABLE %I PARTITION OF daily_stats FOR VALUES FROM (%L) TO (%L)',
+                   'daily_stats_' || to_char(m, 'YYYY_MM'), m, (m + interval '1 month')::date);
+  END LOOP;
+END $$;
+
+INSERT INTO daily_stats SELECT date, hamster_id, total_rounds, is_active, updated_at FROM daily_stats_legacy;
+DROP TABLE daily_stats_legacy;
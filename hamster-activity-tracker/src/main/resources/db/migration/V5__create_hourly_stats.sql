@@ -0,0 +1,26 @@
+-- почасовая активность хомяка за день: одна строка на (день, хомяк), корзины — массивом.
+-- bucket_minutes — ширина корзины на момент выгрузки: rounds[1] — круги с 00:00 до 00:00 + bucket_minutes.
+-- Секции по месяцам, как у daily_stats: их создаёт и архивирует то же обслуживание
+CREATE TABLE hourly_stats (
+  date           date        NOT NULL,
+  hamster_id     text        NOT NULL,
+  bucket_minutes smallint    NOT NULL,
+  rounds         integer[]   NOT NULL,
+  updated_at     timestamptz NOT NULL DEFAULT now(),
+  CONSTRAINT pk_hourly_stats PRIMARY KEY (date, hamster_id)
+) PARTITION BY RANGE (date);
+
+CREATE TABLE hourly_stats_default PARTITION OF hourly_stats DEFAULT;
+
+DO $$
+DECLARE
+  m date;
+BEGIN
+  FOR m IN
+    SELECT date_trunc('month', current_date)::date
+    UNION SELECT (date_trunc('month', current_date) + interval '1 month')::date
+  LOOP
+    EXECUTE format('CREATE TABLE %I PARTITION OF hourly_stats FOR VALUES FROM (%L) TO (%L)',
+                   'hourly_stats_' || to_char(m, 'YYYY_MM'), m, (m + interval '1 month')::date);
+  END LOOP;
+END $$;
@@ -0,0 +1,172 @@
+package com.hamsterhub.tracker.controller;
+
+import com.hamsterhub.tracker.config.ClusterProperties;
+import com.hamsterhub.tracker.config.EventBusProperties;
+import com.hamsterhub.tracker.config.IngestProperties;
+import com.hamsterhub.tracker.engine.ClusterRing;
+import com.hamsterhub.tracker.engine.EventBus;
+import com.hamsterhub.tracker.model.EventWrapper;
+import com.hamsterhub.tracker.model.IngestResult;
+import com.hamsterhub.tracker.service.EventForwarder;
+import com.hamsterhub.tracker.service.EventService;
+import hamsterhub.common.events.WheelSpin;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventControllerTest {
+
+    private static final int CHUNK = 2;
+    private static final long MAX_DELAY_MS = 100L;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final EventBus bus = mock(EventBus.class);
+    // что и какими пачками дошло до шины
+    private final List<String> emitted = new CopyOnWriteArrayList<>();
+    private final List<Integer> emitCalls = new CopyOnWriteArrayList<>();
+    private int room;
+
+    private final WebTestClient client;
+
+    EventControllerTest() {
+        ClusterProperties single = new ClusterProperties(false, null, List.of(), 128, 1, 1, 1_000L, 10L);
+        ClusterRing ring = new ClusterRing(single);
+        EventService service = new EventService(bus, ring,
+                new EventForwarder(ring, single, WebClient.builder(), registry),
+                new IngestProperties(CHUNK, MAX_DELAY_MS, 16), registry);
+        client = WebTestClient.bindToController(new EventController(service,
+                        new EventBusProperties(16, EventBusProperties.OverloadPolicy.REJECT, 429, 3, 0L)))
+                .build();
+        // шина принимает префикс, пока есть место, как настоящая при REJECT
+        when(bus.emitAll(anyList())).thenAnswer(invocation -> {
+            List<EventWrapper> events = invocation.getArgument(0);
+            emitCalls.add(events.size());
+            int accepted = 0;
+            for (EventWrapper event : events) {
+                if (room == 0) {
+                    break;
+                }
+                room--;
+                emitted.add(((WheelSpin) event.event()).wheelId());
+                accepted++;
+            }
+            return accepted;
+        });
+    }
+
+    @Test
+    void batch_isSplitIntoChunks_andAcceptedWhole() {
+        room = 10;
+
+        client.post().uri("/events/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-Sensor-Id", "s-1")
+                .bodyValue(spins(5))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(IngestResult.class).isEqualTo(new IngestResult(5, 0));
+
+        assertThat(emitCalls).containsExactly(CHUNK, CHUNK, 1);
+        assertThat(emitted).containsExactly("wheel-0", "wheel-1", "wheel-2", "wheel-3", "wheel-4");
+        assertThat(registry.get("tracker.ingest.events").tag("outcome", "accepted").counter().count()).isEqualTo(5);
+    }
+
+    // после первого отказа остаток пачки не кладётся: клиент дошлёт его с события accepted
+    @Test
+    void batch_acceptsPrefix_andRejectsRestWithRetryAfter() {
+        room = 3;
+
+        client.post().uri("/events/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(spins(7))
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "3")
+                .expectBody(IngestResult.class).isEqualTo(new IngestResult(3, 4));
+
+        assertThat(emitted).containsExactly("wheel-0", "wheel-1", "wheel-2");
+        assertThat(emitCalls).containsExactly(CHUNK, CHUNK);
+        assertThat(registry.get("tracker.ingest.events").tag("outcome", "rejected").counter().count()).isEqualTo(4);
+    }
+
+    @Test
+    void ndjson_answersEveryChunk() {
+        room = 3;
+        String body = spins(5, "\n", "", "\n");
+
+        List<IngestResult> results = client.post().uri("/events/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(IngestResult.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertThat(results).containsExactly(new IngestResult(2, 0), new IngestResult(1, 1), new IngestResult(0, 1));
+        assertThat(emitted).containsExactly("wheel-0", "wheel-1", "wheel-2");
+    }
+
+    // датчик прислал одно событие и держит поток открытым: чанк не дожидается второго события
+    @Test
+    void slowNdjsonStream_acknowledgesPartialChunkWithinMaxDelay() {
+        room = 10;
+        Flux<String> body = Flux.concat(Flux.just(spins(1, "", "", "\n")), Flux.never());
+
+        IngestResult first = client.post().uri("/events/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .body(body, String.class)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(IngestResult.class)
+                .getResponseBody()
+                .blockFirst(Duration.ofSeconds(5));
+
+        assertThat(first).isEqualTo(new IngestResult(1, 0));
+        assertThat(emitted).containsExactly("wheel-0");
+    }
+
+    // длинный id отвергается целиком до шины: в журнал и снапшот он бы не влез
+    @Test
+    void batch_withTooLongId_isRejectedBeforeTheBus() {
+        room = 10;
+
+        client.post().uri("/events/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"type\":\"WheelSpin\",\"wheelId\":\"wheel-1\",\"durationMs\":5000},"
+                        + "{\"type\":\"WheelSpin\",\"wheelId\":\"" + "w".repeat(17) + "\",\"durationMs\":5000}]")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        assertThat(emitted).isEmpty();
+    }
+
+    // JSON-массив: тип события пишется полем type, как его шлют датчики
+    private static String spins(int n) {
+        return spins(n, ",", "[", "]");
+    }
+
+    private static String spins(int n, String delimiter, String prefix, String suffix) {
+        return IntStream.range(0, n)
+                .mapToObj(i -> "{\"type\":\"WheelSpin\",\"wheelId\":\"wheel-" + i + "\",\"durationMs\":5000}")
+                .collect(Collectors.joining(delimiter, prefix, suffix));
+    }
+}
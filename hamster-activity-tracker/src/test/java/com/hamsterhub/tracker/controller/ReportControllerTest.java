@@ -0,0 +1,110 @@
+package com.hamsterhub.tracker.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hamsterhub.tracker.config.ClusterProperties;
+import com.hamsterhub.tracker.config.ReportProperties;
+import com.hamsterhub.tracker.engine.ClusterRing;
+import com.hamsterhub.tracker.engine.ReportGenerator;
+import com.hamsterhub.tracker.model.DailyReport;
+import com.hamsterhub.tracker.model.HamsterStats;
+import com.hamsterhub.tracker.repository.DailyStatsRepository;
+import com.hamsterhub.tracker.service.ClusterReportService;
+import com.hamsterhub.tracker.service.DailyReportService;
+import com.hamsterhub.tracker.service.RangeReportService;
+import com.hamsterhub.tracker.service.SummaryReportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReportControllerTest {
+
+    private final ZoneId zone = ZoneId.of("Europe/Moscow");
+    private final LocalDate yesterday = LocalDate.now(zone).minusDays(1);
+    private final DailyStatsRepository repo = mock(DailyStatsRepository.class);
+    // как у Spring Boot: даты строками ISO
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final DailyReportService daily = new DailyReportService(mock(ReportGenerator.class), repo, zone,
+            new ReportProperties(1_000_000, 1_000, 100), mapper);
+    // кластер выключен: узел один, отчёты только из своего состояния
+    private final ClusterProperties single = new ClusterProperties(false, null, List.of(), 128, 1, 1, 1_000L, 10L);
+    private final WebTestClient client = WebTestClient.bindToController(new ReportController(
+            daily,
+            mock(RangeReportService.class),
+            mock(SummaryReportService.class),
+            new ClusterReportService(new ClusterRing(single), single, daily, mapper, WebClient.builder())))
+            .build();
+
+    @Test
+    void pastDay_isServedGzippedWithEtag_andRevalidatesTo304() throws IOException {
+        when(repo.loadReport(yesterday)).thenReturn(Optional.of(report(yesterday, 200)));
+
+        var first = client.get().uri("/report/daily?date={date}", yesterday)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .expectBody(byte[].class).returnResult();
+        String etag = first.getResponseHeaders().getETag();
+        String json = gunzip(first.getResponseBody());
+        assertThat(etag).endsWith("-gz\"");
+        assertThat(json).contains("\"date\":\"" + yesterday + "\"").contains("\"ham-199\"");
+
+        client.get().uri("/report/daily?date={date}", yesterday)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_MODIFIED)
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void clientWithoutGzip_getsPlainJsonWithOwnEtag() {
+        when(repo.loadReport(yesterday)).thenReturn(Optional.of(report(yesterday, 200)));
+
+        var result = client.get().uri("/report/daily?date={date}", yesterday)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+                .expectBody(String.class).returnResult();
+
+        assertThat(result.getResponseHeaders().getETag()).doesNotEndWith("-gz\"");
+        assertThat(result.getResponseBody()).startsWith("{").contains("\"ham-0\"");
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static DailyReport report(LocalDate date, int hamsters) {
+        Map<String, HamsterStats> stats = new HashMap<>();
+        for (int i = 0; i < hamsters; i++) {
+            stats.put("ham-" + i, new HamsterStats("ham-" + i, i, i > 10));
+        }
+        return new DailyReport(date, stats);
+    }
+}
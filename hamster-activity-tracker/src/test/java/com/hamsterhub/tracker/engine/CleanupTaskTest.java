@@ -0,0 +1,84 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.CleanupProperties;
+import com.hamsterhub.tracker.config.TrackerProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CleanupTaskTest {
+
+    private final ZoneId zone = ZoneId.of("Europe/Moscow");
+    private final TrackerProperties props = new TrackerProperties(
+            10, 60_000L, 250L, "0 5 0 * * *", 1, 60_000L, 60_000L, 1, "Europe/Moscow");
+
+    @Test
+    void lastSeenEviction_resumesFromCursorWithinBudget() {
+        TrackerState state = TrackerStates.defaults();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            state.updateHamsterLastEvent("ham-" + i, i < 6 ? now - 10_000_000L : now);
+        }
+        CleanupTask cleanup = new CleanupTask(state, mock(DailyStatsExporter.class), props,
+                new CleanupProperties(1_000_000L, 4, 1_000L), zone);
+
+        cleanup.cleanup();
+        assertThat(cleanup.evictedHamsters()).isEqualTo(4);
+
+        cleanup.cleanup();
+        assertThat(cleanup.evictedHamsters()).isEqualTo(6);
+        assertThat(state.hamstersLastSeen()).containsOnlyKeys("ham-6", "ham-7", "ham-8", "ham-9");
+    }
+
+    @Test
+    void forgottenDays_areExported_recentDaysAreKept() {
+        TrackerState state = TrackerStates.defaults();
+        DailyStatsExporter exporter = mock(DailyStatsExporter.class);
+        LocalDate today = LocalDate.now(zone);
+        state.statsFor(today, "ham-1").addRounds(1);
+        state.statsFor(today.minusDays(1), "ham-1").addRounds(1);
+        state.statsFor(today.minusDays(5), "ham-1").addRounds(1);
+        CleanupTask cleanup = new CleanupTask(state, exporter, props,
+                new CleanupProperties(1_000_000L, 100, 1_000L), zone);
+
+        cleanup.cleanup();
+
+        verify(exporter).exportForgottenDay(today.minusDays(5));
+        verify(exporter, never()).exportForgottenDay(today.minusDays(1));
+        verify(exporter, never()).exportForgottenDay(today);
+        verify(exporter, never()).exportDay(any());
+        assertThat(cleanup.evictedDays()).isEqualTo(1);
+    }
+
+    // три забытых дня по три ячейки при бюджете в 4 записи: второй день исчерпывает бюджет,
+    // третий и проход по отметкам ждут следующего запуска
+    @Test
+    void forgottenDayExports_spendTheRunBudget() {
+        TrackerState state = TrackerStates.defaults();
+        DailyStatsExporter exporter = mock(DailyStatsExporter.class);
+        when(exporter.exportForgottenDay(any())).thenReturn(3);
+        LocalDate today = LocalDate.now(zone);
+        for (int d = 5; d <= 7; d++) {
+            state.statsFor(today.minusDays(d), "ham-1").addRounds(1);
+        }
+        state.updateHamsterLastEvent("ham-1", System.currentTimeMillis() - 10_000_000L);
+        CleanupTask cleanup = new CleanupTask(state, exporter, props,
+                new CleanupProperties(1_000_000L, 4, 1_000L), zone);
+
+        cleanup.cleanup();
+
+        verify(exporter).exportForgottenDay(today.minusDays(7));
+        verify(exporter).exportForgottenDay(today.minusDays(6));
+        verify(exporter, never()).exportForgottenDay(today.minusDays(5));
+        assertThat(cleanup.evictedDays()).isEqualTo(2);
+        assertThat(cleanup.evictedHamsters()).isZero();
+    }
+}
@@ -0,0 +1,88 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.ClusterProperties;
+import com.hamsterhub.tracker.model.EventWrapper;
+import hamsterhub.common.events.SensorFailure;
+import hamsterhub.common.events.WheelSpin;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClusterRingTest {
+
+    private static final String A = "http://localhost:8081";
+    private static final String B = "http://localhost:8082";
+    private static final String C = "http://localhost:8083";
+
+    @Test
+    void disabled_ownsEverythingLocally() {
+        ClusterRing ring = new ClusterRing(cluster(false, null, List.of()));
+
+        assertThat(ring.size()).isEqualTo(1);
+        assertThat(ring.isLocal(ring.owner("wheel-1"))).isTrue();
+        assertThat(ring.isLocal(ring.owner((String) null))).isTrue();
+    }
+
+    @Test
+    void nodesAgreeOnOwners_whateverTheirPeerOrder() {
+        ClusterRing onA = new ClusterRing(cluster(true, A, List.of(A, B, C)));
+        ClusterRing onC = new ClusterRing(cluster(true, C, List.of(C, B, A)));
+
+        for (int i = 0; i < 1_000; i++) {
+            String wheel = "wheel-" + i;
+            assertThat(onA.node(onA.owner(wheel))).isEqualTo(onC.node(onC.owner(wheel)));
+        }
+        assertThat(onA.isLocal(onA.owner("wheel-1"))).isEqualTo(onA.node(onA.owner("wheel-1")).equals(A));
+    }
+
+    @Test
+    void wheelsSpreadEvenly_andAddingANodeMovesOnlyItsShare() {
+        ClusterRing two = new ClusterRing(cluster(true, A, List.of(A, B)));
+        ClusterRing three = new ClusterRing(cluster(true, A, List.of(A, B, C)));
+        int wheels = 30_000;
+        int[] perNode = new int[3];
+        int moved = 0;
+        for (int i = 0; i < wheels; i++) {
+            String wheel = "wheel-" + i;
+            String before = two.node(two.owner(wheel));
+            String after = three.node(three.owner(wheel));
+            perNode[three.owner(wheel)]++;
+            if (!before.equals(after)) {
+                assertThat(after).isEqualTo(C);
+                moved++;
+            }
+        }
+
+        for (int count : perNode) {
+            assertThat(count).isBetween(wheels / 3 * 8 / 10, wheels / 3 * 12 / 10);
+        }
+        assertThat(moved).isEqualTo(perNode[three.nodes().indexOf(C)]);
+    }
+
+    @Test
+    void eventsOfOneWheelShareAnOwner_failuresGoBySensor() {
+        ClusterRing ring = new ClusterRing(cluster(true, A, List.of(A, B, C)));
+        List<Integer> owners = new ArrayList<>();
+        for (long duration = 5_000; duration < 50_000; duration += 5_000) {
+            owners.add(ring.owner(new EventWrapper(new WheelSpin("wheel-7", duration), "s-1", 0L)));
+        }
+
+        assertThat(owners).containsOnly(ring.owner("wheel-7"));
+        assertThat(ring.owner(new EventWrapper(new SensorFailure(null, 3), "s-9", 0L))).isEqualTo(ring.owner("s-9"));
+    }
+
+    @Test
+    void selfMustBeAPeer() {
+        assertThatThrownBy(() -> cluster(true, C, List.of(A, B)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("tracker.cluster.self");
+    }
+
+    private static ClusterProperties cluster(boolean enabled, String self, List<String> peers) {
+        return new ClusterProperties(enabled, self, peers, 128, 1_000, 100, 1_000L, 10L);
+    }
+}
@@ -0,0 +1,97 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.ExportProperties;
+import com.hamsterhub.tracker.config.TrackerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Array;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// бинарный COPY через PgCopyEncoder на настоящем PostgreSQL: строки, корзины и свёртки доходят до таблиц как есть
+@Testcontainers(disabledWithoutDocker = true)
+class DailyStatsExporterPostgresTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static SingleConnectionDataSource dataSource;
+
+    private final TrackerProperties props = new TrackerProperties(
+            10, 60_000L, 250L, "0 5 0 * * *", 1, 60_000L, 60_000L, 1, "Europe/Moscow");
+    private final LocalDate day = LocalDate.of(2024, 6, 5);
+    private final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+    @BeforeAll
+    static void migrate() {
+        // одно соединение на всё: временная таблица staging живёт в сессии, как у выгрузки в проде
+        dataSource = new SingleConnectionDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(),
+                POSTGRES.getPassword(), true);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+    }
+
+    @Test
+    void copyExport_writesCellsBucketsAndRollups_thenUpdatesThem() throws Exception {
+        TrackerState state = TrackerStates.defaults();
+        state.statsFor(day, "хомяк-1").addRounds(30, 2 * 60 + 5);
+        state.statsFor(day, "хомяк-1").addRounds(5, 23 * 60 + 59);
+        state.statsFor(day, "ham-idle");
+
+        exporter(state).exportDay(day);
+
+        assertThat(jdbc.queryForList("SELECT hamster_id, total_rounds, is_active FROM daily_stats WHERE date = ? "
+                + "ORDER BY hamster_id", day)).containsExactly(
+                Map.of("hamster_id", "ham-idle", "total_rounds", 0, "is_active", false),
+                Map.of("hamster_id", "хомяк-1", "total_rounds", 35, "is_active", true));
+        List<Integer> buckets = buckets("хомяк-1");
+        assertThat(buckets).hasSize(24);
+        assertThat(buckets.get(2)).isEqualTo(30);
+        assertThat(buckets.get(23)).isEqualTo(5);
+        assertThat(buckets.stream().mapToInt(Integer::intValue).sum()).isEqualTo(35);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM hourly_stats WHERE date = ? AND hamster_id = 'ham-idle'",
+                Integer.class, day)).isZero();
+        assertThat(rollup("weekly_stats", "week_start", LocalDate.of(2024, 6, 3))).containsExactly(35, 1);
+
+        // ночная выгрузка того же дня ещё раз: свёртки получают только разницу
+        TrackerState grown = TrackerStates.defaults();
+        grown.statsFor(day, "хомяк-1").addRounds(50, 2 * 60 + 5);
+        exporter(grown).exportDay(day);
+
+        assertThat(jdbc.queryForObject("SELECT total_rounds FROM daily_stats WHERE date = ? AND hamster_id = ?",
+                Integer.class, day, "хомяк-1")).isEqualTo(50);
+        assertThat(buckets("хомяк-1").get(2)).isEqualTo(50);
+        assertThat(rollup("weekly_stats", "week_start", LocalDate.of(2024, 6, 3))).containsExactly(50, 1);
+        assertThat(rollup("monthly_stats", "month_start", LocalDate.of(2024, 6, 1))).containsExactly(50, 1);
+    }
+
+    private DailyStatsExporter exporter(TrackerState state) {
+        return new DailyStatsExporter(state, jdbc, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                props, new ExportProperties(false, 5_000L, 100, 10, ExportProperties.Mode.COPY),
+                EventJournal.disabled(), event -> { }, new SimpleMeterRegistry());
+    }
+
+    private List<Integer> buckets(String hamsterId) throws Exception {
+        Array rounds = jdbc.queryForObject("SELECT rounds FROM hourly_stats WHERE date = ? AND hamster_id = ?",
+                Array.class, day, hamsterId);
+        return List.of((Integer[]) rounds.getArray());
+    }
+
+    private List<Integer> rollup(String table, String column, LocalDate start) {
+        return jdbc.queryForObject("SELECT total_rounds, active_days FROM " + table + " WHERE " + column
+                        + " = ? AND hamster_id = ?",
+                (rs, i) -> List.of(rs.getInt(1), rs.getInt(2)), start, "хомяк-1");
+    }
+}
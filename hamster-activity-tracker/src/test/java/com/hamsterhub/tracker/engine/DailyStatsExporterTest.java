@@ -0,0 +1,174 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.ExportProperties;
+import com.hamsterhub.tracker.config.TrackerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DailyStatsExporterTest {
+
+    private final TrackerProperties props = new TrackerProperties(
+            10, 60_000L, 250L, "0 5 0 * * *", 1, 60_000L, 60_000L, 1, "Europe/Moscow");
+    private final LocalDate today = LocalDate.of(2024, 6, 1);
+    private final TrackerState state = TrackerStates.defaults();
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushDirty_writesOnlyCellsChangedSinceLastFlush() {
+        DailyStatsExporter exporter = exporter(new ExportProperties(true, 5_000L, 100, 10, ExportProperties.Mode.BATCH));
+        state.statsFor(today, "ham-1").addRounds(5);
+        state.statsFor(today, "ham-2").addRounds(20);
+
+        exporter.flushDirty();
+        exporter.flushDirty();
+        state.statsFor(today, "ham-2").addRounds(1);
+        exporter.flushDirty();
+
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbc, times(2)).batchUpdate(anyString(), batches.capture());
+        assertThat(batches.getAllValues().get(0)).hasSize(2);
+        assertThat(batches.getAllValues().get(1))
+                .containsExactly(new Object[]{today, "ham-2", 21, true, null});
+        assertThat(exporter.flushedCells()).isEqualTo(3);
+        assertThat(exporter.dirtyCells()).isZero();
+    }
+
+    @Test
+    void exportDay_stagesCellsThenMergesDailyAndRollupsInOneStatement() {
+        DailyStatsExporter exporter = exporter(new ExportProperties(false, 5_000L, 100, 10, ExportProperties.Mode.BATCH));
+        state.statsFor(today, "ham-1").addRounds(5);
+
+        exporter.exportDay(today);
+
+        InOrder order = inOrder(jdbc);
+        order.verify(jdbc).batchUpdate(contains("daily_stats_staging"), anyList());
+        order.verify(jdbc).execute(contains("pg_advisory_xact_lock"));
+        ArgumentCaptor<String> merge = ArgumentCaptor.forClass(String.class);
+        order.verify(jdbc).update(merge.capture());
+        assertThat(merge.getValue())
+                .contains("INSERT INTO daily_stats", "SET total_rounds = EXCLUDED.total_rounds")
+                .contains("INSERT INTO weekly_stats", "INSERT INTO monthly_stats")
+                .contains("INSERT INTO hourly_stats", "SELECT date, hamster_id, 60, hourly_rounds FROM src",
+                        "rounds         = EXCLUDED.rounds");
+        assertThat(state.getStatsForDate(today)).isEmpty();
+    }
+
+    // день уже выгружен ночью с 30 оборотами, повтор журнала вернул в память только 4
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportForgottenDay_neverLowersAlreadyExportedTotals() {
+        DailyStatsExporter exporter = exporter(new ExportProperties(false, 5_000L, 100, 10, ExportProperties.Mode.BATCH));
+        state.statsFor(today, "ham-1").addRounds(30, 60);
+        exporter.exportDay(today);
+        state.statsFor(today, "ham-1").addRounds(4, 60);
+
+        assertThat(exporter.exportForgottenDay(today)).isEqualTo(1);
+
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbc, times(2)).batchUpdate(anyString(), batches.capture());
+        assertThat(batches.getAllValues().get(1).get(0)).containsSubsequence(today, "ham-1", 4);
+        ArgumentCaptor<String> merges = ArgumentCaptor.forClass(String.class);
+        verify(jdbc, times(2)).update(merges.capture());
+        assertThat(merges.getAllValues().get(0)).contains("SET total_rounds = EXCLUDED.total_rounds");
+        assertThat(merges.getAllValues().get(1))
+                .contains("GREATEST(daily_stats.total_rounds, EXCLUDED.total_rounds)", "GREATEST(o, n)")
+                .doesNotContain("SET total_rounds = EXCLUDED.total_rounds", "rounds         = EXCLUDED.rounds");
+        assertThat(state.getStatsForDate(today)).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushDirty_stagesHourlyBucketsWithCell() {
+        DailyStatsExporter exporter = exporter(new ExportProperties(true, 5_000L, 100, 10, ExportProperties.Mode.BATCH));
+        state.statsFor(today, "ham-1").addRounds(5, 2 * 60 + 10);
+
+        exporter.flushDirty();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbc).batchUpdate(contains("hourly_rounds"), batch.capture());
+        int[] buckets = (int[]) batch.getValue().get(0)[4];
+        assertThat(buckets).hasSize(24);
+        assertThat(buckets[2]).isEqualTo(5);
+        ArgumentCaptor<String> merge = ArgumentCaptor.forClass(String.class);
+        verify(jdbc).update(merge.capture());
+        assertThat(merge.getValue()).contains("GREATEST(o, n)");
+    }
+
+    @Test
+    void flushDirty_isBoundedByBatchSizeAndBatchCount() {
+        DailyStatsExporter exporter = exporter(new ExportProperties(true, 5_000L, 2, 2, ExportProperties.Mode.BATCH));
+        for (int i = 0; i < 7; i++) {
+            state.statsFor(today, "ham-" + i).addRounds(1);
+        }
+
+        exporter.flushDirty();
+
+        verify(jdbc, times(2)).batchUpdate(anyString(), anyList());
+        assertThat(exporter.dirtyCells()).isEqualTo(3);
+    }
+
+    @Test
+    void flushDirty_requeuesCellsWhenDatabaseFails() {
+        DailyStatsExporter exporter = exporter(new ExportProperties(true, 5_000L, 100, 10, ExportProperties.Mode.BATCH));
+        state.statsFor(today, "ham-1").addRounds(5);
+        when(jdbc.batchUpdate(anyString(), anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        exporter.flushDirty();
+
+        assertThat(exporter.failedFlushes()).isEqualTo(1);
+        assertThat(exporter.dirtyCells()).isEqualTo(1);
+    }
+
+    @Test
+    void flushDirty_disabled_leavesDayToNightlyExport() {
+        DailyStatsExporter exporter = exporter(new ExportProperties(false, 5_000L, 100, 10, ExportProperties.Mode.BATCH));
+        state.statsFor(today, "ham-1").addRounds(5);
+
+        exporter.flushDirty();
+
+        verify(jdbc, never()).batchUpdate(anyString(), anyList());
+        assertThat(exporter.dirtyCells()).isZero();
+    }
+
+    // tracker.zone-id задаёт только время запуска; граница журнала — начало суток в зоне шардов
+    @Test
+    void dailyExport_truncatesJournalAtStartOfShardDay_whateverTheConfiguredZone() {
+        String farZone = TrackerState.ZONE.getRules().getOffset(Instant.now()).getTotalSeconds() > 0
+                ? "Pacific/Pago_Pago" : "Pacific/Kiritimati";
+        TrackerProperties far = new TrackerProperties(
+                10, 60_000L, 250L, "0 5 0 * * *", 1, 60_000L, 60_000L, 1, farZone);
+        EventJournal journal = mock(EventJournal.class);
+        new DailyStatsExporter(state, jdbc, TransactionOperations.withoutTransaction(), far,
+                new ExportProperties(false, 5_000L, 100, 10, ExportProperties.Mode.BATCH), journal, event -> { },
+                new SimpleMeterRegistry()).dailyExport();
+
+        LocalDate shardToday = LocalDate.now(TrackerState.ZONE);
+        verify(journal).truncateBefore(shardToday.atStartOfDay(TrackerState.ZONE).toInstant().toEpochMilli());
+    }
+
+    private DailyStatsExporter exporter(ExportProperties exportProps) {
+        return new DailyStatsExporter(state, jdbc, TransactionOperations.withoutTransaction(), props, exportProps, EventJournal.disabled(), event -> { },
+                new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,50 @@
+package com.hamsterhub.tracker.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DayClockTest {
+
+    private final ZoneId berlin = ZoneId.of("Europe/Berlin");
+
+    @Test
+    void dateOf_matchesZonedConversionAcrossMidnightAndDst() {
+        DayClock clock = new DayClock(berlin);
+        // 30.03–01.04.2024: переход на летнее время, сутки 31.03 длиной 23 часа
+        long from = LocalDate.of(2024, 3, 30).atStartOfDay(berlin).toInstant().toEpochMilli();
+        long to = LocalDate.of(2024, 4, 2).atStartOfDay(berlin).toInstant().toEpochMilli();
+        for (long ts = from - 1; ts <= to; ts += 7 * 60_000L + 1) {
+            assertThat(clock.dateOf(ts)).isEqualTo(Instant.ofEpochMilli(ts).atZone(berlin).toLocalDate());
+        }
+    }
+
+    @Test
+    void minuteOfDay_followsWallClockAcrossMidnightAndDst() {
+        DayClock clock = new DayClock(berlin);
+        long from = LocalDate.of(2024, 3, 30).atStartOfDay(berlin).toInstant().toEpochMilli();
+        long to = LocalDate.of(2024, 4, 2).atStartOfDay(berlin).toInstant().toEpochMilli();
+        for (long ts = from - 1; ts <= to; ts += 7 * 60_000L + 1) {
+            clock.dateOf(ts);
+            ZonedDateTime time = Instant.ofEpochMilli(ts).atZone(berlin);
+            assertThat(clock.minuteOfDay(ts)).isEqualTo(time.getHour() * 60 + time.getMinute());
+        }
+    }
+
+    @Test
+    void lateEventFromPreviousDay_doesNotRollCacheBack() {
+        DayClock clock = new DayClock(berlin);
+        LocalDate today = LocalDate.of(2024, 6, 1);
+        long midnight = today.atStartOfDay(berlin).toInstant().toEpochMilli();
+
+        assertThat(clock.dateOf(midnight + 1_000L)).isEqualTo(today);
+        assertThat(clock.dateOf(midnight - 1L)).isEqualTo(today.minusDays(1));
+        assertThat(clock.dateOf(midnight)).isEqualTo(today);
+        assertThat(clock.dateOf(midnight + 86_400_000L)).isEqualTo(today.plusDays(1));
+    }
+}
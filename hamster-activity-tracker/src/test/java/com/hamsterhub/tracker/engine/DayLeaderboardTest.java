@@ -0,0 +1,137 @@
+package com.hamsterhub.tracker.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DayLeaderboardTest {
+
+    private final LocalDate today = LocalDate.of(2024, 6, 1);
+
+    @Test
+    void top_evictsMinimumAndReadmitsHamsterThatOvertakesIt() {
+        TrackerState state = TrackerStates.withLeaderboard(2);
+        state.statsFor(today, "ham-a").addRounds(5);
+        state.statsFor(today, "ham-b").addRounds(3);
+        state.statsFor(today, "ham-c").addRounds(4);
+
+        assertThat(top(state, 10)).containsExactly(
+                new DayLeaderboard.Entry("ham-a", 5), new DayLeaderboard.Entry("ham-c", 4));
+
+        state.statsFor(today, "ham-b").addRounds(3);
+
+        assertThat(top(state, 10)).containsExactly(
+                new DayLeaderboard.Entry("ham-b", 6), new DayLeaderboard.Entry("ham-a", 5));
+        assertThat(top(state, 1)).containsExactly(new DayLeaderboard.Entry("ham-b", 6));
+    }
+
+    @Test
+    void top_matchesFullSortUnderConcurrentUpdates() throws InterruptedException {
+        TrackerState state = TrackerStates.withLeaderboard(10);
+        ExecutorService shards = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            shards.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20_000; i++) {
+                    state.statsFor(today, "ham-" + random.nextInt(500)).addRounds(random.nextInt(1, 5));
+                }
+            });
+        }
+        shards.shutdown();
+        assertThat(shards.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        List<DayLeaderboard.Entry> expected = state.getStatsForDate(today).entrySet().stream()
+                .map(e -> new DayLeaderboard.Entry(e.getKey(), e.getValue().totalRounds()))
+                .sorted(Comparator.comparingInt(DayLeaderboard.Entry::totalRounds).reversed()
+                        .thenComparing(DayLeaderboard.Entry::hamsterId))
+                .limit(10)
+                .toList();
+        assertThat(top(state, 10)).isEqualTo(expected);
+    }
+
+    @Test
+    void restoredDay_rebuildsLeaderboard() {
+        TrackerState state = TrackerStates.withLeaderboard(1);
+        state.restoreDay(today, new String[]{"ham-a", "ham-b"}, new long[]{2, 9}, null, 2);
+
+        assertThat(top(state, 5)).containsExactly(new DayLeaderboard.Entry("ham-b", 9));
+        assertThat(state.leaderboardFor(today.minusDays(1))).isEmpty();
+    }
+
+    // вытесняемый докрутил между снимком итогов и сбросом места: его прибавка не должна потеряться
+    @Test
+    void eviction_keepsHamsterThatSpunPastEntrantDuringEviction() {
+        DayLeaderboard board = new DayLeaderboard(1);
+        Cell incumbent = new Cell("ham-a", 5);
+        board.offer(incumbent);
+        // прибавка ham-a «параллельного шарда» приходит ровно в окне вытеснения; rank >= 0 — в топ он не пошёл
+        incumbent.onEvicted = () -> incumbent.total = 10;
+        Cell entrant = new Cell("ham-b", 6);
+
+        board.offer(entrant);
+
+        assertThat(board.top(1)).containsExactly(new DayLeaderboard.Entry("ham-a", 10));
+        assertThat(incumbent.rank()).isZero();
+        assertThat(entrant.rank()).isEqualTo(-1);
+    }
+
+    private List<DayLeaderboard.Entry> top(TrackerState state, int n) {
+        return state.leaderboardFor(today).orElseThrow().top(n);
+    }
+
+    private final class Cell extends TrackerState.DayStats {
+        volatile int total;
+        volatile int rank = -1;
+        Runnable onEvicted = () -> { };
+
+        Cell(String hamsterId, int total) {
+            super(today, hamsterId);
+            this.total = total;
+        }
+
+        @Override
+        void addRounds(int rounds, int minuteOfDay) {
+            total += rounds;
+        }
+
+        @Override
+        int totalRounds() {
+            return total;
+        }
+
+        @Override
+        int rank() {
+            return rank;
+        }
+
+        @Override
+        void setRank(int rank) {
+            this.rank = rank;
+            if (rank < 0) {
+                onEvicted.run();
+            }
+        }
+
+        @Override
+        void markDirty() {
+        }
+
+        @Override
+        int[] buckets() {
+            return null;
+        }
+
+        @Override
+        char[] rawBuckets() {
+            return null;
+        }
+    }
+}
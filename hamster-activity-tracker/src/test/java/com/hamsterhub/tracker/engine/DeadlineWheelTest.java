@@ -0,0 +1,90 @@
+package com.hamsterhub.tracker.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeadlineWheelTest {
+
+    private static final long TIMEOUT = 10_000L;
+    private static final long TICK = 1_000L;
+
+    private final LongColumn lastSeen = new LongColumn();
+    private final AtomicInteger reads = new AtomicInteger();
+    private final DeadlineWheel wheel = new DeadlineWheel(TIMEOUT, TICK, id -> {
+        reads.incrementAndGet();
+        return lastSeen.get(id);
+    });
+    private final List<Integer> expired = new ArrayList<>();
+
+    @Test
+    void expiresOnceAfterTimeout_andRearmsOnNextEvent() {
+        seen(1, 100_000L);
+        advance(100_000L);
+
+        advance(110_000L);
+        assertThat(expired).isEmpty();
+        advance(111_000L);
+        assertThat(expired).containsExactly(1);
+        advance(130_000L);
+        assertThat(expired).containsExactly(1);
+
+        seen(1, 130_000L);
+        advance(141_000L);
+        assertThat(expired).containsExactly(1, 1);
+    }
+
+    @Test
+    void eventBeforeDeadline_movesItWithoutTouchingTheWheel() {
+        seen(1, 100_000L);
+        advance(100_000L);
+        seen(1, 105_000L);
+        seen(1, 108_000L);
+
+        advance(111_000L);
+        assertThat(expired).isEmpty();
+        advance(119_000L);
+        assertThat(expired).containsExactly(1);
+    }
+
+    @Test
+    void advance_readsOnlyEntriesWhoseDeadlineCame() {
+        for (int id = 0; id < 1_000; id++) {
+            seen(id, 100_000L + id * 10L);
+        }
+        advance(100_000L);
+        reads.set(0);
+
+        for (long now = 101_000L; now <= 110_000L; now += TICK) {
+            advance(now);
+        }
+
+        assertThat(reads).hasValue(0);
+        assertThat(wheel.scheduled()).isEqualTo(1_000);
+    }
+
+    @Test
+    void evictedEntry_isDroppedWithoutAlert() {
+        seen(1, 100_000L);
+        advance(100_000L);
+        lastSeen.set(1, 0L);
+
+        advance(200_000L);
+
+        assertThat(expired).isEmpty();
+        assertThat(wheel.scheduled()).isZero();
+    }
+
+    private void seen(int id, long ts) {
+        lastSeen.accumulateMax(id, ts);
+        wheel.touch(id);
+    }
+
+    private void advance(long now) {
+        wheel.advance(now, expired::add);
+    }
+}
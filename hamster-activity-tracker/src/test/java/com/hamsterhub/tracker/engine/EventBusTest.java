@@ -0,0 +1,77 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.EventBusProperties;
+import com.hamsterhub.tracker.config.EventBusProperties.OverloadPolicy;
+import com.hamsterhub.tracker.config.TrackerProperties;
+import com.hamsterhub.tracker.model.EventWrapper;
+import hamsterhub.common.events.HamsterEnter;
+import hamsterhub.common.events.HamsterExit;
+import hamsterhub.common.events.WheelSpin;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventBusTest {
+
+    @Test
+    void reject_whenFull() {
+        EventBus bus = new EventBus(new EventBusProperties(2, OverloadPolicy.REJECT, 503, 1, 0L), trackerProps(1));
+
+        assertThat(bus.emit(spin(1))).isTrue();
+        assertThat(bus.emit(spin(2))).isTrue();
+        assertThat(bus.emit(spin(3))).isFalse();
+
+        assertThat(bus.depth()).isEqualTo(2);
+        assertThat(bus.rejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void dropOldestSpin_keepsEnterAndNewestSpin() {
+        EventBus bus = new EventBus(new EventBusProperties(2, OverloadPolicy.DROP_OLDEST_SPIN, 503, 1, 0L), trackerProps(1));
+        EventWrapper enter = new EventWrapper(new HamsterEnter("ham-1", "wheel-1"), "sensor-1", 0L);
+
+        bus.emit(enter);
+        bus.emit(spin(1));
+        assertThat(bus.emit(spin(2))).isTrue();
+
+        List<EventWrapper> drained = new ArrayList<>();
+        bus.drainTo(0, drained, 10);
+        assertThat(drained).extracting(EventWrapper::receivedAt).containsExactly(0L, 2L);
+        assertThat(bus.shedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void emitAll_acceptsPrefixUntilFirstRejection() {
+        EventBus bus = new EventBus(new EventBusProperties(3, OverloadPolicy.BLOCK, 429, 1, 10L), trackerProps(1));
+
+        int accepted = bus.emitAll(List.of(spin(1), spin(2), spin(3), spin(4), spin(5)));
+
+        assertThat(accepted).isEqualTo(3);
+        assertThat(bus.rejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void eventsOfOneWheel_landOnOneShard() {
+        EventBus bus = new EventBus(new EventBusProperties(64, OverloadPolicy.REJECT, 503, 1, 0L), trackerProps(4));
+
+        int enterShard = bus.shardOf(new EventWrapper(new HamsterEnter("ham-1", "wheel-7"), "sensor-1", 0L));
+        int spinShard = bus.shardOf(new EventWrapper(new WheelSpin("wheel-7", 5_000L), "sensor-2", 1L));
+        int exitShard = bus.shardOf(new EventWrapper(new HamsterExit("ham-1", "wheel-7"), "sensor-3", 2L));
+
+        assertThat(spinShard).isEqualTo(enterShard);
+        assertThat(exitShard).isEqualTo(enterShard);
+        assertThat(bus.shardCount()).isEqualTo(4);
+        assertThat(bus.capacity()).isEqualTo(64);
+    }
+
+    private static EventWrapper spin(long ts) {
+        return new EventWrapper(new WheelSpin("wheel-1", 5_000L), "sensor-1", ts);
+    }
+
+    private static TrackerProperties trackerProps(int workers) {
+        return new TrackerProperties(10, 60_000L, 250L, "0 5 0 * * *", 1, 60_000L, 60_000L, workers, "Europe/Moscow");
+    }
+}
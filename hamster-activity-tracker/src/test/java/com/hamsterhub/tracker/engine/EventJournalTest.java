@@ -0,0 +1,165 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.JournalProperties;
+import com.hamsterhub.tracker.model.EventWrapper;
+import hamsterhub.common.events.HamsterEnter;
+import hamsterhub.common.events.HamsterExit;
+import hamsterhub.common.events.SensorFailure;
+import hamsterhub.common.events.WheelSpin;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replay_returnsEveryCommittedEventPerShard() {
+        long now = System.currentTimeMillis();
+        List<EventWrapper> written = List.of(
+                new EventWrapper(new HamsterEnter("хомяк-1", "wheel-1"), "sensor-1", now),
+                new EventWrapper(new WheelSpin("wheel-1", 1500), "sensor-1", now + 1),
+                new EventWrapper(new HamsterExit("хомяк-1", "wheel-1"), "sensor-1", now + 2),
+                new EventWrapper(new SensorFailure("sensor-2", 42), "sensor-2", now + 3));
+
+        EventJournal journal = journal();
+        journal.open(2);
+        for (int i = 0; i < written.size(); i++) {
+            journal.append(i % 2, written.get(i));
+        }
+        journal.commit(0);
+        journal.commit(1);
+        journal.close();
+
+        List<EventWrapper> replayed = new ArrayList<>();
+        assertThat(journal().replay(replayed::add)).isEqualTo(4);
+        assertThat(replayed).containsExactlyInAnyOrderElementsOf(written);
+    }
+
+    @Test
+    void replay_stopsAtCorruptedRecord() throws Exception {
+        long now = System.currentTimeMillis();
+        EventJournal journal = journal();
+        journal.open(1);
+        journal.append(0, new EventWrapper(new WheelSpin("wheel-1", 100), "sensor-1", now));
+        journal.append(0, new EventWrapper(new WheelSpin("wheel-1", 200), "sensor-1", now));
+        journal.close();
+
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // портим последний байт второй записи: тип(1) + ts(8) + sensorId(2+8) + wheelId(2+7) + duration(8)
+            int record = 8 + 1 + 8 + 2 + 8 + 2 + 7 + 8;
+            file.seek(JournalSegment.HEADER_SIZE + 2L * record - 1);
+            file.write(0x7F);
+        }
+
+        List<EventWrapper> replayed = new ArrayList<>();
+        journal().replay(replayed::add);
+        assertThat(replayed).extracting(EventWrapper::event).containsExactly(new WheelSpin("wheel-1", 100));
+    }
+
+    // id, не влезающий в поле длины, пропускается с ошибкой в логе, а не роняет поток шарда
+    @Test
+    void append_skipsRecordWithIdTooLongForJournal() {
+        long now = System.currentTimeMillis();
+        EventJournal journal = journal();
+        journal.open(1);
+        journal.append(0, new EventWrapper(new WheelSpin("w".repeat(40_000), 100), "sensor-1", now));
+        journal.append(0, new EventWrapper(new HamsterEnter("ж".repeat(20_000), "wheel-1"), "sensor-1", now));
+        journal.append(0, new EventWrapper(new WheelSpin("wheel-1", 200), "sensor-1", now));
+        journal.commit(0);
+        journal.close();
+
+        List<EventWrapper> replayed = new ArrayList<>();
+        journal().replay(replayed::add);
+        assertThat(replayed).extracting(EventWrapper::event).containsExactly(new WheelSpin("wheel-1", 200));
+    }
+
+    @Test
+    void replay_fromSnapshotPosition_skipsAppliedRecords() {
+        long now = System.currentTimeMillis();
+        EventJournal journal = journal();
+        journal.open(1);
+        journal.append(0, new EventWrapper(new WheelSpin("wheel-1", 100), "sensor-1", now));
+        journal.commit(0);
+        List<EventJournal.Position> positions = journal.positions();
+        journal.append(0, new EventWrapper(new WheelSpin("wheel-1", 200), "sensor-1", now));
+        journal.close();
+
+        List<EventWrapper> replayed = new ArrayList<>();
+        journal().replay(positions, replayed::add);
+        assertThat(replayed).extracting(EventWrapper::event).containsExactly(new WheelSpin("wheel-1", 200));
+    }
+
+    @Test
+    void truncateBefore_dropsOnlyClosedSegmentsOfPastDays() throws Exception {
+        long yesterday = LocalDate.now(TrackerState.ZONE).minusDays(1)
+                .atStartOfDay(TrackerState.ZONE).toInstant().toEpochMilli();
+        long today = yesterday + 86_400_000L;
+        EventJournal journal = journal();
+        journal.open(1);
+        journal.append(0, new EventWrapper(new WheelSpin("wheel-1", 100), "sensor-1", yesterday + 1));
+        journal.append(0, new EventWrapper(new WheelSpin("wheel-1", 200), "sensor-1", today + 1));
+        journal.close();
+        assertThat(segments()).hasSize(2);
+
+        journal().truncateBefore(today);
+
+        List<EventWrapper> replayed = new ArrayList<>();
+        journal().replay(replayed::add);
+        assertThat(segments()).hasSize(1);
+        assertThat(replayed).extracting(EventWrapper::event).containsExactly(new WheelSpin("wheel-1", 200));
+    }
+
+    @Test
+    void truncateBefore_keepsOpenSegment_butDropsItOnceClosed_andRecordsWatermark() throws Exception {
+        long today = LocalDate.now(TrackerState.ZONE).atStartOfDay(TrackerState.ZONE).toInstant().toEpochMilli();
+        EventJournal journal = journal();
+        journal.open(1);
+        journal.append(0, new EventWrapper(new WheelSpin("wheel-1", 100), "sensor-1", today - 1));
+        journal.commit(0);
+
+        journal.truncateBefore(today);
+        assertThat(segments()).hasSize(1);
+        journal.close();
+        journal().truncateBefore(today);
+
+        assertThat(segments()).isEmpty();
+        assertThat(journal().exportedBefore()).isEqualTo(today);
+    }
+
+    @Test
+    void checkShards_rejectsChangedWorkerCount_whileSegmentsRemain() {
+        EventJournal journal = journal();
+        journal.open(2);
+        journal.append(1, new EventWrapper(new WheelSpin("wheel-1", 100), "sensor-1", System.currentTimeMillis()));
+        journal.close();
+
+        journal().checkShards(2);
+        assertThatThrownBy(() -> journal().checkShards(4))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("tracker.workers=2");
+    }
+
+    private EventJournal journal() {
+        return new EventJournal(new JournalProperties(true, dir.toString(), 1, 10_000L));
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(JournalSegment::isSegment).sorted().toList();
+        }
+    }
+}
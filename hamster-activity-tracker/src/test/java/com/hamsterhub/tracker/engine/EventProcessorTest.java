@@ -5,21 +5,26 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.read.ListAppender;
+import com.hamsterhub.tracker.config.EventBusProperties;
+import com.hamsterhub.tracker.config.JournalProperties;
 import com.hamsterhub.tracker.config.TrackerProperties;
 import com.hamsterhub.tracker.model.EventWrapper;
 import hamsterhub.common.events.HamsterEnter;
 import hamsterhub.common.events.HamsterExit;
 import hamsterhub.common.events.WheelSpin;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.test.system.CapturedOutput;
 import org.springframework.boot.test.system.OutputCaptureExtension;
 
+import java.nio.file.Path;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Optional;
@@ -33,11 +38,11 @@ class EventProcessorTest {
     private TrackerState state;
     private EventProcessor processor;
     private TrackerProperties props;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
 
     @BeforeEach
     void setUp() {
-        bus = new EventBus();
-        state = new TrackerState();
+        state = TrackerStates.defaults();
         props = new TrackerProperties(
                 10,                     // activeThreshold
                 60 * 60 * 1000L,        // cleanupIntervalMs
@@ -49,7 +54,15 @@ class EventProcessorTest {
                 1,                      // workers
                 "Europe/Moscow"         // zoneId
         );
-        processor = new EventProcessor(bus, state, props);
+        bus = new EventBus(new EventBusProperties(
+                1024,                                       // capacity
+                EventBusProperties.OverloadPolicy.REJECT,   // overloadPolicy
+                503,                                        // rejectStatus
+                1,                                          // retryAfterSeconds
+                0L                                          // blockTimeoutMs
+        ), props);
+        processor = new EventProcessor(bus, state, props, EventJournal.disabled(), SnapshotStore.disabled(),
+                registry);
         processor.start();
     }
 
@@ -79,6 +92,24 @@ class EventProcessorTest {
 
         assertThat(state.getStatsForDate(d1).get(hamster).totalRounds()).isEqualTo(3);
         assertThat(state.getStatsForDate(d2).get(hamster).totalRounds()).isEqualTo(2);
+        // круги легли в корзину часа, когда пришло вращение
+        int hour = Instant.ofEpochMilli(tSpin1).atZone(TrackerState.ZONE).getHour();
+        assertThat(state.getStatsForDate(d1).get(hamster).buckets()[hour]).isEqualTo(3);
+    }
+
+    @Test
+    void appliedEvents_areTimedByTypeAndUnknownSpinsCounted() throws Exception {
+        long now = System.currentTimeMillis();
+        bus.emit(new EventWrapper(new HamsterEnter("ham-m", "wheel-m"), "sensor-1", now));
+        bus.emit(new EventWrapper(new WheelSpin("wheel-m", 5_000L), "sensor-1", now + 1_000L));
+        bus.emit(new EventWrapper(new WheelSpin("wheel-empty", 5_000L), "sensor-1", now + 2_000L));
+
+        Thread.sleep(200);
+
+        assertThat(registry.get("tracker.event.latency").tag("type", "enter").timer().count()).isEqualTo(1);
+        assertThat(registry.get("tracker.event.latency").tag("type", "spin").timer().count()).isEqualTo(2);
+        assertThat(registry.get("tracker.event.spin.unknown-hamster").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("tracker.event.batch").summary().totalAmount()).isEqualTo(3.0);
     }
 
     @Test
@@ -147,4 +178,29 @@ class EventProcessorTest {
                 });
         logger.detachAppender(appender);
     }
+
+    // вчерашний день уже выгружен ночью, его сегмент ещё открыт: после рестарта день не возвращается
+    // в память частичным, а занятость колеса журнал восстанавливает
+    @Test
+    void restart_dropsDaysExportedBeforeJournalWatermark(@TempDir Path dir) {
+        long today = LocalDate.now(TrackerState.ZONE).atStartOfDay(TrackerState.ZONE).toInstant().toEpochMilli();
+        JournalProperties journalProps = new JournalProperties(true, dir.toString(), 1, 10_000L);
+        EventJournal written = new EventJournal(journalProps);
+        written.open(1);
+        written.append(0, new EventWrapper(new HamsterEnter("ham-j", "wheel-j"), "sensor-1", today - 60_000L));
+        written.append(0, new EventWrapper(new WheelSpin("wheel-j", 15_000L), "sensor-1", today - 30_000L));
+        written.commit(0);
+        written.truncateBefore(today);
+        written.close();
+
+        TrackerState restored = TrackerStates.defaults();
+        EventProcessor restarted = new EventProcessor(new EventBus(new EventBusProperties(
+                16, EventBusProperties.OverloadPolicy.REJECT, 503, 1, 0L), props), restored, props,
+                new EventJournal(journalProps), SnapshotStore.disabled(), new SimpleMeterRegistry());
+        restarted.start();
+        restarted.stop();
+
+        assertThat(restored.days()).isEmpty();
+        assertThat(restored.getWheelHamster("wheel-j")).contains("ham-j");
+    }
 }
@@ -0,0 +1,49 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.InactivityProperties;
+import com.hamsterhub.tracker.config.TrackerProperties;
+import com.hamsterhub.tracker.service.Alert;
+import com.hamsterhub.tracker.service.AlertDispatcher;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+class InactivityMonitorTest {
+
+    private final TrackerProperties props = new TrackerProperties(
+            10, 60_000L, 250L, "0 5 0 * * *", 1, 60_000L, 5_000L, 1, "Europe/Moscow");
+    private final TrackerState state = TrackerStates.defaults();
+    private final AlertDispatcher alerts = mock(AlertDispatcher.class);
+    private final InactivityMonitor monitor =
+            new InactivityMonitor(state, alerts, props, new InactivityProperties(1_000L));
+
+    @Test
+    void alertsOncePerInactivityWithSecondsLatency() {
+        state.updateSensorLastEvent("sensor-1", 1_000_000L);
+        state.updateHamsterLastEvent("ham-1", 1_000_000L);
+
+        monitor.check(1_000_000L);
+        monitor.check(1_006_000L);
+        monitor.check(1_007_000L);
+        verify(alerts, times(1)).submit(Alert.sensorInactive("sensor-1"));
+
+        monitor.check(1_061_000L);
+        verify(alerts, times(1)).submit(Alert.hamsterInactive("ham-1"));
+        verifyNoMoreInteractions(alerts);
+    }
+
+    @Test
+    void restoredEntities_areArmedWhenWatchingStarts() {
+        TrackerState restored = TrackerStates.defaults();
+        restored.updateSensorLastEvent("sensor-1", 1_000_000L);
+        InactivityMonitor late = new InactivityMonitor(restored, alerts, props, new InactivityProperties(1_000L));
+
+        late.check(1_000_000L);
+        late.check(1_006_000L);
+
+        verify(alerts).submit(Alert.sensorInactive("sensor-1"));
+    }
+}
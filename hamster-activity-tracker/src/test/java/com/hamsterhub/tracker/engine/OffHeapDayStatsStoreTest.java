@@ -0,0 +1,200 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.DayStatsProperties;
+import com.hamsterhub.tracker.config.HourlyProperties;
+import com.hamsterhub.tracker.config.ReportProperties;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapDayStatsStoreTest {
+
+    private final LocalDate today = LocalDate.of(2024, 6, 1);
+
+    @Test
+    void addRounds_byIdAndThroughView_landInTheSameSlot() {
+        TrackerState state = offHeap(10);
+        int hamster = state.internHamster("ham-1");
+
+        state.addRounds(today, hamster, 3, 9 * 60 + 15);
+        state.statsFor(today, "ham-1").addRounds(4, 9 * 60 + 50);
+        state.addRounds(today, state.internHamster("ham-2"), 0, -1);
+
+        Map<String, TrackerState.DayStats> day = state.getStatsForDate(today);
+        assertThat(day).hasSize(2).containsOnlyKeys("ham-1", "ham-2");
+        assertThat(day.get("ham-1").totalRounds()).isEqualTo(7);
+        assertThat(day.get("ham-1").buckets()).hasSize(24);
+        assertThat(day.get("ham-1").buckets()[9]).isEqualTo(7);
+        assertThat(day.get("ham-2").totalRounds()).isZero();
+        assertThat(day.get("ham-2").buckets()).isNull();
+        assertThat(day.get("ham-unknown")).isNull();
+        assertThat(state.getStatsForDate(today.plusDays(1))).isEmpty();
+        assertThat(state.dayStatsOffHeapBytes()).isEqualTo((long) PagedArray.PAGE_SIZE * 64);
+    }
+
+    @Test
+    void neighbouringBuckets_inOneIntSaturateIndependently() {
+        TrackerState state = offHeap(10);
+        int hamster = state.internHamster("ham-1");
+
+        state.addRounds(today, hamster, 70_000, 0);
+        state.addRounds(today, hamster, 5, 60);
+        state.addRounds(today, hamster, 1, 0);
+
+        int[] buckets = state.getStatsForDate(today).get("ham-1").buckets();
+        assertThat(buckets[0]).isEqualTo(0xFFFF);
+        assertThat(buckets[1]).isEqualTo(5);
+        assertThat(state.getStatsForDate(today).get("ham-1").totalRounds()).isEqualTo(70_006);
+    }
+
+    @Test
+    void leaderboard_matchesHeapStore() {
+        TrackerState heap = TrackerStates.withLeaderboard(3);
+        TrackerState offHeap = offHeap(3);
+        int[] rounds = {5, 40, 7, 40, 1, 12, 3, 25};
+        for (int i = 0; i < rounds.length; i++) {
+            heap.addRounds(today, heap.internHamster("ham-" + i), rounds[i], -1);
+            offHeap.addRounds(today, offHeap.internHamster("ham-" + i), rounds[i], -1);
+        }
+        offHeap.addRounds(today, offHeap.internHamster("ham-0"), 30, -1);
+        heap.addRounds(today, heap.internHamster("ham-0"), 30, -1);
+
+        List<DayLeaderboard.Entry> expected = heap.leaderboardFor(today).orElseThrow().top(3);
+        assertThat(offHeap.leaderboardFor(today).orElseThrow().top(3))
+                .isEqualTo(expected)
+                .containsExactly(new DayLeaderboard.Entry("ham-1", 40), new DayLeaderboard.Entry("ham-3", 40),
+                        new DayLeaderboard.Entry("ham-0", 35));
+    }
+
+    // вращения хомяка из топа в топ не ходят: итог читается из слота, а обгон соседа виден при чтении
+    @Test
+    void rankedHamster_bypassesLeaderboard_andStillOvertakes() {
+        TrackerState state = offHeap(2);
+        int a = state.internHamster("ham-a");
+        int b = state.internHamster("ham-b");
+        state.addRounds(today, a, 5, -1);
+        state.addRounds(today, b, 3, -1);
+        state.addRounds(today, state.internHamster("ham-c"), 1, -1);
+        DayLeaderboard board = state.leaderboardFor(today).orElseThrow();
+
+        state.addRounds(today, b, 10, -1);
+
+        TrackerState.DayStats cell = state.getStatsForDate(today).get("ham-b");
+        assertThat(board.accepts(cell.rank(), cell.totalRounds())).isFalse();
+        assertThat(board.top(2)).containsExactly(
+                new DayLeaderboard.Entry("ham-b", 13), new DayLeaderboard.Entry("ham-a", 5));
+        assertThat(state.getStatsForDate(today).get("ham-b").rank()).isZero();
+        // минимум поднялся до итога ham-a: ham-c не дотягивает и блокировку не берёт
+        assertThat(board.accepts(-1, 4)).isFalse();
+    }
+
+    @Test
+    void pollDirty_returnsEachChangedCellOnceUntilChangedAgain() {
+        TrackerState state = offHeap(10);
+        for (int i = 0; i < 3; i++) {
+            state.addRounds(today, state.internHamster("ham-" + i), 1, -1);
+        }
+        state.addRounds(today.minusDays(1), state.internHamster("ham-0"), 2, -1);
+
+        assertThat(drain(state)).containsExactlyInAnyOrder(
+                today + "/ham-0", today + "/ham-1", today + "/ham-2", today.minusDays(1) + "/ham-0");
+        assertThat(state.dirtyCount()).isZero();
+
+        state.statsFor(today, "ham-1").addRounds(1);
+        assertThat(drain(state)).containsExactly(today + "/ham-1");
+    }
+
+    @Test
+    void removeDay_dropsItsDirtyCellsAndMemory() {
+        TrackerState state = offHeap(10);
+        state.addRounds(today, state.internHamster("ham-0"), 1, -1);
+        state.addRounds(today.minusDays(1), state.internHamster("ham-0"), 1, -1);
+
+        state.removeDay(today.minusDays(1));
+
+        assertThat(state.dirtyCount()).isEqualTo(1);
+        assertThat(state.days()).containsExactly(today);
+        assertThat(state.dayStatsOffHeapBytes()).isEqualTo((long) PagedArray.PAGE_SIZE * 64);
+        assertThat(drain(state)).containsExactly(today + "/ham-0");
+    }
+
+    @Test
+    void snapshot_roundTripsBetweenStores() throws IOException {
+        TrackerState source = TrackerStates.defaults();
+        source.statsFor(today, "ham-1").addRounds(7, 9 * 60 + 30);
+        source.statsFor(today, "ham-2").addRounds(0);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StateSnapshot.capture(source, List.of()).writeTo(out);
+        TrackerState target = offHeap(10);
+        StateSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray())).restoreInto(target);
+
+        Map<String, TrackerState.DayStats> day = target.getStatsForDate(today);
+        assertThat(day).containsOnlyKeys("ham-1", "ham-2");
+        assertThat(day.get("ham-1").totalRounds()).isEqualTo(7);
+        assertThat(day.get("ham-1").buckets()[9]).isEqualTo(7);
+        assertThat(day.get("ham-2").buckets()).isNull();
+        assertThat(target.leaderboardFor(today).orElseThrow().top(1))
+                .containsExactly(new DayLeaderboard.Entry("ham-1", 7));
+    }
+
+    @Test
+    void concurrentShards_loseNoRounds() throws InterruptedException {
+        TrackerState state = offHeap(10);
+        int hamsters = 3_000;
+        for (int i = 0; i < hamsters; i++) {
+            state.internHamster("ham-" + i);
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int round = 0; round < 10; round++) {
+                    for (int i = 0; i < hamsters; i++) {
+                        state.addRounds(today, i, 1, i % (24 * 60));
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<String, TrackerState.DayStats> day = state.getStatsForDate(today);
+        assertThat(day).hasSize(hamsters);
+        Map<Integer, Integer> totals = new HashMap<>();
+        day.values().forEach(stats -> totals.merge(stats.totalRounds(), 1, Integer::sum));
+        assertThat(totals).containsExactly(Map.entry(40, hamsters));
+        assertThat(day.get("ham-61").buckets()[1]).isEqualTo(40);
+    }
+
+    private static List<String> drain(TrackerState state) {
+        List<String> cells = new ArrayList<>();
+        TrackerState.DayStats stats;
+        while ((stats = state.pollDirty()) != null) {
+            cells.add(stats.date() + "/" + stats.hamsterId());
+        }
+        return cells;
+    }
+
+    private static TrackerState offHeap(int leaderboardSize) {
+        return new TrackerState(new ReportProperties(1_000, 1_000, leaderboardSize), new HourlyProperties(true, 60),
+                new DayStatsProperties(DayStatsProperties.Store.OFF_HEAP));
+    }
+}
@@ -0,0 +1,141 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.PartitionProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PartitionMaintenanceTaskTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Moscow");
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+
+    @Test
+    void createAhead_createsCurrentAndFollowingMonths() {
+        task(new PartitionProperties(true, "-", 2, 24, "unused")).createAhead(YearMonth.of(2024, 11));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbc, times(6)).execute(sql.capture());
+        assertThat(sql.getAllValues()).containsExactly(
+                "CREATE TABLE IF NOT EXISTS daily_stats_2024_11 PARTITION OF daily_stats"
+                        + " FOR VALUES FROM ('2024-11-01') TO ('2024-12-01')",
+                "CREATE TABLE IF NOT EXISTS daily_stats_2024_12 PARTITION OF daily_stats"
+                        + " FOR VALUES FROM ('2024-12-01') TO ('2025-01-01')",
+                "CREATE TABLE IF NOT EXISTS daily_stats_2025_01 PARTITION OF daily_stats"
+                        + " FOR VALUES FROM ('2025-01-01') TO ('2025-02-01')",
+                "CREATE TABLE IF NOT EXISTS hourly_stats_2024_11 PARTITION OF hourly_stats"
+                        + " FOR VALUES FROM ('2024-11-01') TO ('2024-12-01')",
+                "CREATE TABLE IF NOT EXISTS hourly_stats_2024_12 PARTITION OF hourly_stats"
+                        + " FOR VALUES FROM ('2024-12-01') TO ('2025-01-01')",
+                "CREATE TABLE IF NOT EXISTS hourly_stats_2025_01 PARTITION OF hourly_stats"
+                        + " FOR VALUES FROM ('2025-01-01') TO ('2025-02-01')");
+    }
+
+    @Test
+    void createAhead_continuesAfterFailedMonth() {
+        doThrow(new DataAccessResourceFailureException("overlaps default"))
+                .when(jdbc).execute(contains("daily_stats_2024_11 "));
+
+        task(new PartitionProperties(true, "-", 1, 24, "unused")).createAhead(YearMonth.of(2024, 11));
+
+        // обе таблицы, два месяца на каждую: упал только один запрос
+        verify(jdbc, times(4)).execute(anyString());
+    }
+
+    @Test
+    void expired_picksOnlyMonthlyPartitionsBeforeCutoff() {
+        List<String> partitions = List.of(
+                "daily_stats_2024_03", "daily_stats_default", "daily_stats_2023_12", "daily_stats_2024_01");
+
+        assertThat(PartitionMaintenanceTask.expired("daily_stats", partitions, YearMonth.of(2024, 2)))
+                .containsExactly(YearMonth.of(2023, 12), YearMonth.of(2024, 1));
+        assertThat(PartitionMaintenanceTask.expired("hourly_stats", partitions, YearMonth.of(2024, 2))).isEmpty();
+    }
+
+    // копируется уже отсоединённая таблица: строки, пришедшие после DETACH, лягут в _default, а не пропадут
+    @Test
+    void maintain_detachesBeforeCopy_andDropsAfterIt(@TempDir Path archive) throws Exception {
+        YearMonth expired = YearMonth.now(ZONE).minusMonths(3);
+        String name = PartitionMaintenanceTask.partitionName("daily_stats", expired);
+        when(jdbc.queryForList(contains("JOIN pg_class p"), eq(String.class), eq("daily_stats")))
+                .thenReturn(List.of(name));
+        CopyManager copy = copyApi();
+
+        task(new PartitionProperties(true, "-", 0, 2, archive.toString())).maintain();
+
+        InOrder order = inOrder(jdbc, copy);
+        order.verify(jdbc).execute("ALTER TABLE daily_stats DETACH PARTITION " + name);
+        order.verify(copy).copyOut(eq("COPY " + name + " TO STDOUT (FORMAT binary)"), any(OutputStream.class));
+        order.verify(jdbc).execute("DROP TABLE " + name);
+        assertThat(archive.resolve(name + ".copy.gz")).exists();
+    }
+
+    // прошлый запуск успел отсоединить секцию, но не удалить: повторно не отсоединяем, а доархивируем
+    @Test
+    void maintain_finishesLeftoverDetachedTable(@TempDir Path archive) throws Exception {
+        YearMonth expired = YearMonth.now(ZONE).minusMonths(3);
+        String name = PartitionMaintenanceTask.partitionName("hourly_stats", expired);
+        when(jdbc.queryForList(contains("NOT EXISTS"), eq(String.class), eq("hourly\\_stats\\_%")))
+                .thenReturn(List.of(name, "hourly_stats_staging"));
+        CopyManager copy = copyApi();
+
+        task(new PartitionProperties(true, "-", 0, 2, archive.toString())).maintain();
+
+        verify(jdbc, never()).execute(contains("DETACH"));
+        verify(copy).copyOut(eq("COPY " + name + " TO STDOUT (FORMAT binary)"), any(OutputStream.class));
+        verify(jdbc).execute("DROP TABLE " + name);
+        verify(jdbc, never()).execute(contains("hourly_stats_staging"));
+    }
+
+    @Test
+    void maintain_disabled_touchesNothing() {
+        task(new PartitionProperties(false, "-", 2, 24, "unused")).maintain();
+
+        verifyNoInteractions(jdbc);
+    }
+
+    // ConnectionCallback выполняется на подставном соединении с подставным COPY API
+    @SuppressWarnings("unchecked")
+    private CopyManager copyApi() throws Exception {
+        CopyManager copy = mock(CopyManager.class);
+        PGConnection pg = mock(PGConnection.class);
+        when(pg.getCopyAPI()).thenReturn(copy);
+        Connection con = mock(Connection.class);
+        when(con.unwrap(PGConnection.class)).thenReturn(pg);
+        when(jdbc.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> ((ConnectionCallback<?>) invocation.getArgument(0)).doInConnection(con));
+        return copy;
+    }
+
+    private PartitionMaintenanceTask task(PartitionProperties props) {
+        return new PartitionMaintenanceTask(jdbc, props, ZONE);
+    }
+}
@@ -0,0 +1,75 @@
+package com.hamsterhub.tracker.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PgCopyEncoderTest {
+
+    @Test
+    void encodesRowsInPostgresBinaryCopyFormat() throws SQLException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // маленький буфер, чтобы строки шли в sink несколькими кусками
+        PgCopyEncoder encoder = new PgCopyEncoder(out::write, 16);
+        encoder.startRow(4);
+        encoder.date(LocalDate.of(2000, 1, 3));
+        encoder.text("хомяк-1");
+        encoder.int4(42);
+        encoder.bool(true);
+        encoder.finish();
+
+        byte[] name = "хомяк-1".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer expected = ByteBuffer.allocate(11 + 8 + 2 + 8 + 4 + name.length + 8 + 5 + 2);
+        expected.put(new byte[]{'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0}).putInt(0).putInt(0);
+        expected.putShort((short) 4);
+        expected.putInt(4).putInt(2);
+        expected.putInt(name.length).put(name);
+        expected.putInt(4).putInt(42);
+        expected.putInt(1).put((byte) 1);
+        expected.putShort((short) -1);
+
+        assertThat(out.toByteArray()).isEqualTo(expected.array());
+    }
+
+    @Test
+    void encodesInt4ArrayAndNull() throws SQLException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PgCopyEncoder encoder = new PgCopyEncoder(out::write, 16);
+        encoder.startRow(2);
+        encoder.int4Array(new int[]{7, 0, 65_535});
+        encoder.nullValue();
+        encoder.finish();
+
+        ByteBuffer expected = ByteBuffer.allocate(11 + 8 + 2 + 4 + 20 + 3 * 8 + 4 + 2);
+        expected.put(new byte[]{'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0}).putInt(0).putInt(0);
+        expected.putShort((short) 2);
+        expected.putInt(20 + 3 * 8).putInt(1).putInt(0).putInt(23).putInt(3).putInt(1);
+        expected.putInt(4).putInt(7).putInt(4).putInt(0).putInt(4).putInt(65_535);
+        expected.putInt(-1);
+        expected.putShort((short) -1);
+
+        assertThat(out.toByteArray()).isEqualTo(expected.array());
+    }
+
+    @Test
+    void textLongerThanBuffer_isWrittenThrough() throws SQLException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PgCopyEncoder encoder = new PgCopyEncoder(out::write, 64);
+        String id = "ham-".repeat(100);
+        encoder.startRow(1);
+        encoder.text(id);
+        encoder.finish();
+
+        ByteBuffer bytes = ByteBuffer.wrap(out.toByteArray());
+        assertThat(bytes.getShort(19)).isEqualTo((short) 1);
+        assertThat(bytes.getInt(21)).isEqualTo(id.length());
+        assertThat(new String(out.toByteArray(), 25, id.length(), StandardCharsets.US_ASCII)).isEqualTo(id);
+        assertThat(bytes.getShort(25 + id.length())).isEqualTo((short) -1);
+    }
+}
@@ -2,6 +2,7 @@
 package com.hamsterhub.tracker.engine;
 
 import com.hamsterhub.tracker.model.DailyReport;
+import com.hamsterhub.tracker.model.HamsterDayStats;
 import com.hamsterhub.tracker.model.HamsterStats;
 import org.junit.jupiter.api.Test;
 
@@ -14,7 +15,7 @@ class ReportGeneratorImplTest {
 
     @Test
     void dailyReportAggregatesRoundsAndSetsActive() {
-        TrackerState state = new TrackerState();
+        TrackerState state = TrackerStates.defaults();
         ReportGeneratorImpl generator = new ReportGeneratorImpl(state);
 
         long ts = System.currentTimeMillis();
@@ -36,4 +37,20 @@ class ReportGeneratorImplTest {
         assertThat(hamsterStatsNotActive.getTotalRounds()).isEqualTo(9);
         assertThat(hamsterStatsNotActive.isActive()).isFalse();
     }
+
+    @Test
+    void rowsAreSortedByHamsterAndFilteredById() {
+        TrackerState state = TrackerStates.defaults();
+        ReportGeneratorImpl generator = new ReportGeneratorImpl(state);
+        LocalDate date = LocalDate.of(2024, 6, 1);
+
+        state.statsFor(date, "ham-2").addRounds(11);
+        state.statsFor(date, "ham-1").addRounds(3);
+
+        assertThat(generator.rows(date, null)).containsExactly(
+                new HamsterDayStats(date, "ham-1", 3, false),
+                new HamsterDayStats(date, "ham-2", 11, true));
+        assertThat(generator.rows(date, "ham-2")).containsExactly(new HamsterDayStats(date, "ham-2", 11, true));
+        assertThat(generator.rows(date, "ham-3")).isEmpty();
+    }
 }
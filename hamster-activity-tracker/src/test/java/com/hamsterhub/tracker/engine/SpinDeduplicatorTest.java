@@ -0,0 +1,47 @@
+package com.hamsterhub.tracker.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpinDeduplicatorTest {
+
+    @Test
+    void duplicateWithinWindow_isCountedAsHit() {
+        SpinDeduplicator dedup = new SpinDeduplicator();
+        long t0 = 1_000_000L;
+
+        assertThat(dedup.accept(0, 5_000L, t0, 250L)).isTrue();
+        assertThat(dedup.accept(0, 5_000L, t0, 250L)).isFalse();
+        assertThat(dedup.accept(0, 5_000L, t0 + 250L, 250L)).isFalse();
+        assertThat(dedup.accept(0, 5_000L, t0 + 251L, 250L)).isTrue();
+        assertThat(dedup.accept(1, 5_000L, t0 + 251L, 250L)).isTrue();
+
+        assertThat(dedup.hitCount()).isEqualTo(2);
+        assertThat(dedup.missCount()).isEqualTo(3);
+    }
+
+    @Test
+    void ringKeepsOnlyLastSlotsFingerprints() {
+        SpinDeduplicator dedup = new SpinDeduplicator();
+        long t0 = 1_000_000L;
+
+        for (int i = 0; i <= SpinDeduplicator.SLOTS; i++) {
+            assertThat(dedup.accept(3, 1_000L * (i + 1), t0, 250L)).isTrue();
+        }
+
+        // самый первый отпечаток вытеснен, последние SLOTS ещё в кольце
+        assertThat(dedup.accept(3, 1_000L, t0 + 10L, 250L)).isTrue();
+        assertThat(dedup.accept(3, 1_000L * (SpinDeduplicator.SLOTS + 1), t0 + 10L, 250L)).isFalse();
+    }
+
+    @Test
+    void wheelsOnDifferentPages_doNotInterfere() {
+        SpinDeduplicator dedup = new SpinDeduplicator();
+        int far = PagedArray.PAGE_SIZE * 3 + 7;
+
+        assertThat(dedup.accept(far, 5_000L, 10_000L, 250L)).isTrue();
+        assertThat(dedup.accept(7, 5_000L, 10_000L, 250L)).isTrue();
+        assertThat(dedup.accept(far, 5_000L, 10_100L, 250L)).isFalse();
+    }
+}
@@ -0,0 +1,85 @@
+package com.hamsterhub.tracker.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StateSnapshotTest {
+
+    private final LocalDate today = LocalDate.of(2024, 6, 1);
+
+    @Test
+    void roundTrip_restoresStatsWheelsLastSeenAndDedup() throws IOException {
+        TrackerState source = TrackerStates.defaults();
+        int wheel = source.internWheel("wheel-1");
+        source.internWheel("wheel-2");
+        int hamster = source.internHamster("ham-1");
+        source.occupyWheel(wheel, hamster);
+        source.updateHamsterLastEvent(hamster, 1_000L);
+        source.updateSensorLastEvent("sensor-1", 2_000L);
+        source.shouldAcceptSpin(wheel, 5_000L, 1_000L, 250L);
+        source.statsFor(today, "ham-1").addRounds(7, 9 * 60 + 30);
+        source.statsFor(today.minusDays(1), "ham-1").addRounds(0);
+        source.statsFor(today, "ham-without-id").addRounds(3);
+        List<EventJournal.Position> positions = List.of(new EventJournal.Position("shard-0", "seg.journal", 128));
+
+        StateSnapshot restored = roundTrip(StateSnapshot.capture(source, positions));
+        TrackerState target = TrackerStates.defaults();
+        restored.restoreInto(target);
+
+        assertThat(restored.journalPositions()).isEqualTo(positions);
+        assertThat(restored.dayEntries()).isEqualTo(3);
+        assertThat(target.getWheelHamster("wheel-1")).contains("ham-1");
+        assertThat(target.getWheelHamster("wheel-2")).isEmpty();
+        assertThat(target.hamstersLastSeen()).containsEntry("ham-1", 1_000L);
+        assertThat(target.sensorsLastSeen()).containsEntry("sensor-1", 2_000L);
+        assertThat(target.getStatsForDate(today).get("ham-1").totalRounds()).isEqualTo(7);
+        assertThat(target.getStatsForDate(today).get("ham-1").buckets()[9]).isEqualTo(7);
+        assertThat(target.getStatsForDate(today).get("ham-without-id").buckets()).isNull();
+        assertThat(target.getStatsForDate(today).get("ham-without-id").totalRounds()).isEqualTo(3);
+        assertThat(target.getStatsForDate(today.minusDays(1))).containsOnlyKeys("ham-1");
+        // окно дедупликации пережило рестарт: повтор того же вращения отбрасывается
+        assertThat(target.shouldAcceptSpin("wheel-1", 5_000L, 1_100L, 250L)).isFalse();
+    }
+
+    // writeUTF упирается в 65535 байт; имя длиннее не должно ломать каждый следующий снапшот
+    @Test
+    void roundTrip_keepsIdsLongerThanWriteUtfAllows() throws IOException {
+        String longId = "ж".repeat(40_000);
+        TrackerState source = TrackerStates.defaults();
+        source.updateSensorLastEvent(longId, 2_000L);
+        source.statsFor(today, longId).addRounds(5);
+
+        TrackerState target = TrackerStates.defaults();
+        roundTrip(StateSnapshot.capture(source, List.of())).restoreInto(target);
+
+        assertThat(target.sensorsLastSeen()).containsEntry(longId, 2_000L);
+        assertThat(target.getStatsForDate(today).get(longId).totalRounds()).isEqualTo(5);
+    }
+
+    @Test
+    void readFrom_rejectsCorruptedFile() throws IOException {
+        TrackerState source = TrackerStates.defaults();
+        source.statsFor(today, "ham-1").addRounds(7);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StateSnapshot.capture(source, List.of()).writeTo(out);
+        byte[] bytes = out.toByteArray();
+        bytes[bytes.length / 2] ^= 0x01;
+
+        assertThatThrownBy(() -> StateSnapshot.readFrom(new ByteArrayInputStream(bytes)))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static StateSnapshot roundTrip(StateSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        return StateSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
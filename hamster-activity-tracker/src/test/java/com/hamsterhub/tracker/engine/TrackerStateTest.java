@@ -1,15 +1,20 @@
 
 package com.hamsterhub.tracker.engine;
 
+import com.hamsterhub.tracker.config.DayStatsProperties;
+import com.hamsterhub.tracker.config.HourlyProperties;
+import com.hamsterhub.tracker.config.ReportProperties;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 class TrackerStateTest {
 
     @Test
     void shouldAcceptSpin_deduplicationWithinWindow() {
-        TrackerState state = new TrackerState();
+        TrackerState state = TrackerStates.defaults();
         long t0 = 1_000_000L;
 
         boolean a = state.shouldAcceptSpin("wheel-1", 5000L, t0, 250L);
@@ -23,7 +28,7 @@ class TrackerStateTest {
 
     @Test
     void hamsterLastEvent_shouldBeMonotonic() {
-        TrackerState state = new TrackerState();
+        TrackerState state = TrackerStates.defaults();
         state.updateHamsterLastEvent("h1", 2000L);
         state.updateHamsterLastEvent("h1", 1000L);
 
@@ -33,11 +38,61 @@ class TrackerStateTest {
 
     @Test
     void sensorLastEvent_shouldBeMonotonic() {
-        TrackerState state = new TrackerState();
+        TrackerState state = TrackerStates.defaults();
         state.updateSensorLastEvent("s1", 3000L);
         state.updateSensorLastEvent("s1", 1000L);
 
         Long seen = state.sensorsLastSeen().get("s1");
         assertThat(seen).isEqualTo(3000L);
     }
+
+    @Test
+    void hourlyBuckets_areAllocatedOnFirstSpinAndSaturate() {
+        TrackerState state = new TrackerState(new ReportProperties(1_000, 1_000, 10), new HourlyProperties(true, 15),
+                new DayStatsProperties(DayStatsProperties.Store.HEAP));
+        TrackerState.DayStats stats = state.statsFor(LocalDate.of(2024, 6, 1), "h1");
+
+        stats.addRounds(5);
+        assertThat(stats.buckets()).isNull();
+
+        stats.addRounds(3, 0);
+        stats.addRounds(4, 14);
+        stats.addRounds(2, 23 * 60 + 59);
+        stats.addRounds(70_000, 60);
+
+        int[] buckets = stats.buckets();
+        assertThat(buckets).hasSize(96);
+        assertThat(buckets[0]).isEqualTo(7);
+        assertThat(buckets[4]).isEqualTo(Character.MAX_VALUE);
+        assertThat(buckets[95]).isEqualTo(2);
+        assertThat(stats.totalRounds()).isEqualTo(70_014);
+    }
+
+    @Test
+    void hourlyBuckets_disabled_areNeverAllocated() {
+        TrackerState state = new TrackerState(new ReportProperties(1_000, 1_000, 10), new HourlyProperties(false, 60),
+                new DayStatsProperties(DayStatsProperties.Store.HEAP));
+        TrackerState.DayStats stats = state.statsFor(LocalDate.of(2024, 6, 1), "h1");
+
+        stats.addRounds(3, 600);
+
+        assertThat(stats.buckets()).isNull();
+        assertThat(stats.totalRounds()).isEqualTo(3);
+    }
+
+    @Test
+    void wheelOccupancy_isTrackedByInternedIds() {
+        TrackerState state = TrackerStates.defaults();
+        int wheel = state.internWheel("wheel-1");
+        int h1 = state.internHamster("h1");
+        int h2 = state.internHamster("h2");
+
+        state.occupyWheel(wheel, h1);
+        state.releaseWheel(wheel, h2);
+        assertThat(state.getWheelHamster("wheel-1")).contains("h1");
+
+        state.releaseWheel(wheel, h1);
+        assertThat(state.wheelHamster(wheel)).isEqualTo(TrackerState.NONE);
+        assertThat(state.getWheelHamster("wheel-unknown")).isEmpty();
+    }
 }
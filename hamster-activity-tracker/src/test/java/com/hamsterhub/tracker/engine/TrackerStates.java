@@ -0,0 +1,21 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.DayStatsProperties;
+import com.hamsterhub.tracker.config.HourlyProperties;
+import com.hamsterhub.tracker.config.ReportProperties;
+
+// TrackerState с настройками по умолчанию из application.yml: топ из 100 хомяков, часовые корзины, ячейки в куче
+final class TrackerStates {
+
+    private TrackerStates() {
+    }
+
+    static TrackerState defaults() {
+        return withLeaderboard(100);
+    }
+
+    static TrackerState withLeaderboard(int leaderboardSize) {
+        return new TrackerState(new ReportProperties(2_000_000, 1_000, leaderboardSize), new HourlyProperties(true, 60),
+                new DayStatsProperties(DayStatsProperties.Store.HEAP));
+    }
+}
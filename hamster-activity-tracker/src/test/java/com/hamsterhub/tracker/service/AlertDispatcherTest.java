@@ -0,0 +1,103 @@
+package com.hamsterhub.tracker.service;
+
+import com.hamsterhub.tracker.config.AlertProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlertDispatcherTest {
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+
+    @Test
+    void submit_coalescesQueuedDuplicatesAndDropsWhenFull() {
+        AlertDispatcher dispatcher = new AlertDispatcher(sent::add, new AlertProperties(2, 10L, 5, 20, 30));
+
+        assertThat(dispatcher.submit(Alert.sensorInactive("sensor-1"))).isTrue();
+        assertThat(dispatcher.submit(Alert.sensorInactive("sensor-1"))).isTrue();
+        assertThat(dispatcher.submit(Alert.sensorInactive("sensor-2"))).isTrue();
+        assertThat(dispatcher.submit(Alert.sensorInactive("sensor-3"))).isFalse();
+
+        assertThat(dispatcher.queued()).isEqualTo(2);
+        assertThat(dispatcher.coalesced()).isEqualTo(1);
+        assertThat(dispatcher.dropped()).isEqualTo(1);
+    }
+
+    @Test
+    void dispatch_sendsSingleMessagesBelowThresholdAndDigestAbove() {
+        AlertDispatcher dispatcher = new AlertDispatcher(sent::add, new AlertProperties(100, 10L, 3, 20, 30));
+        List<Alert> batch = new ArrayList<>(List.of(Alert.hamsterInactive("ham-1")));
+        IntStream.rangeClosed(12, 20).forEach(i -> batch.add(Alert.sensorInactive("wheel-" + i)));
+        batch.add(Alert.sensorInactive("rack-a"));
+
+        assertThat(dispatcher.dispatch(batch, System.nanoTime())).isEqualTo(2);
+
+        assertThat(sent).containsExactly(
+                "Hamster ham-1 inactive",
+                "10 sensors inactive: rack-a, wheel-12..20");
+    }
+
+    @Test
+    void dispatch_rateLimitsAndReportsSuppressedLater() {
+        AlertDispatcher dispatcher = new AlertDispatcher(sent::add, new AlertProperties(100, 10L, 100, 20, 2));
+        long now = System.nanoTime();
+
+        dispatcher.dispatch(List.of(
+                Alert.hamsterInactive("ham-1"), Alert.hamsterInactive("ham-2"),
+                Alert.hamsterInactive("ham-3"), Alert.hamsterInactive("ham-4")), now);
+        dispatcher.dispatch(List.of(), now + TimeUnit.SECONDS.toNanos(30));
+
+        assertThat(sent).containsExactly(
+                "Hamster ham-1 inactive", "Hamster ham-2 inactive", "2 alerts suppressed by rate limit");
+        assertThat(dispatcher.suppressed()).isEqualTo(2);
+    }
+
+    @Test
+    void compact_limitsListedItems() {
+        assertThat(AlertDispatcher.compact(List.of("s-1", "s-3", "s-2", "s-7", "x", "s-9"), 2))
+                .isEqualTo("x, s-1..3 +2 more");
+    }
+
+    @Test
+    void compact_keepsLeadingZeros_andCollapsesOnlySameWidth() {
+        assertThat(AlertDispatcher.compact(
+                List.of("sensor-007", "sensor-009", "sensor-008", "sensor-010", "sensor-9", "sensor-10", "sensor-0"), 10))
+                .isEqualTo("sensor-0, sensor-9, sensor-10, sensor-007..010");
+    }
+
+    @Test
+    void slowDelivery_doesNotBlockSubmit() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(1);
+        AlertDispatcher dispatcher = new AlertDispatcher(message -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sent.add(message);
+            delivered.countDown();
+        }, new AlertProperties(1_000, 10L, 5, 20, 1_000));
+        dispatcher.start();
+        try {
+            long started = System.nanoTime();
+            for (int i = 0; i < 500; i++) {
+                dispatcher.submit(Alert.sensorInactive("sensor-" + i));
+            }
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(1_000);
+
+            release.countDown();
+            assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            dispatcher.stop();
+        }
+        assertThat(sent).isNotEmpty().allMatch(message -> message.contains("sensors inactive"));
+    }
+}
@@ -0,0 +1,131 @@
+package com.hamsterhub.tracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hamsterhub.tracker.config.ClusterProperties;
+import com.hamsterhub.tracker.engine.ClusterRing;
+import com.hamsterhub.tracker.model.DailyReport;
+import com.hamsterhub.tracker.model.HamsterDayStats;
+import com.hamsterhub.tracker.model.HamsterHourlyStats;
+import com.hamsterhub.tracker.model.HamsterStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ClusterReportServiceTest {
+
+    private static final String A = "http://localhost:8081";
+    private static final String B = "http://localhost:8082";
+    private static final String C = "http://localhost:8083";
+
+    private final LocalDate date = LocalDate.of(2024, 6, 1);
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final DailyReportService local = mock(DailyReportService.class);
+    private final Map<String, Object> peerBodies = new HashMap<>();
+    private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+    private final ClusterProperties props = new ClusterProperties(true, A, List.of(A, B, C), 16, 100, 100, 1_000L, 10L);
+    private final ClusterReportService service = new ClusterReportService(new ClusterRing(props), props, local, mapper,
+            WebClient.builder().exchangeFunction(this::answer));
+
+    @Test
+    void daily_sumsPartsOfEachNode_andRecomputesActive() {
+        when(local.findDaily(date)).thenReturn(Mono.just(report(Map.of("ham-1", 6, "ham-2", 30))));
+        peerBodies.put(B, report(Map.of("ham-1", 7)));
+        peerBodies.put(C, report(Map.of("ham-3", 2)));
+
+        DailyReport merged = service.findDaily(date).block();
+
+        assertThat(merged.getDate()).isEqualTo(date);
+        assertThat(merged.getHamsterStats()).containsOnlyKeys("ham-1", "ham-2", "ham-3");
+        assertThat(merged.getHamsterStats().get("ham-1").getTotalRounds()).isEqualTo(13);
+        assertThat(merged.getHamsterStats().get("ham-1").isActive()).isTrue();
+        assertThat(merged.getHamsterStats().get("ham-3").isActive()).isFalse();
+        assertThat(requests).hasSize(2).allSatisfy(request -> assertThat(
+                request.headers().getFirst(ClusterReportService.SCOPE_HEADER)).isEqualTo(ClusterReportService.SCOPE_LOCAL));
+    }
+
+    @Test
+    void leaderboard_ranksMergedTotals() {
+        when(local.findDaily(date)).thenReturn(Mono.just(report(Map.of("ham-1", 20, "ham-2", 25))));
+        peerBodies.put(B, report(Map.of("ham-1", 20, "ham-3", 24)));
+        peerBodies.put(C, report(Map.of("ham-3", 16)));
+
+        assertThat(service.leaderboard(date, 2).block()).containsExactly(
+                new HamsterDayStats(date, "ham-1", 40, true),
+                new HamsterDayStats(date, "ham-3", 40, true));
+    }
+
+    @Test
+    void hourly_addsBucketsElementWise() {
+        when(local.hourly(date, null)).thenReturn(Mono.just(List.of(hourly("ham-1", 1, 2), hourly("ham-2", 5, 0))));
+        peerBodies.put(B, List.of(hourly("ham-1", 10, 20)));
+        peerBodies.put(C, List.of());
+
+        List<HamsterHourlyStats> rows = service.hourly(date, null).block();
+
+        assertThat(rows).extracting(HamsterHourlyStats::hamsterId).containsExactly("ham-1", "ham-2");
+        assertThat(rows.get(0).rounds()).containsExactly(11, 22);
+        assertThat(rows.get(1).rounds()).containsExactly(5, 0);
+    }
+
+    @Test
+    void silentNode_failsTheReportInsteadOfReturningPartialTotals() {
+        when(local.findDaily(date)).thenReturn(Mono.just(report(Map.of("ham-1", 6))));
+        peerBodies.put(B, report(Map.of("ham-1", 7)));
+
+        assertThatThrownBy(() -> service.findDaily(date).block())
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining(C);
+    }
+
+    private Mono<ClientResponse> answer(ClientRequest request) {
+        requests.add(request);
+        String peer = request.url().getScheme() + "://" + request.url().getAuthority();
+        Object body = peerBodies.get(peer);
+        if (body == null) {
+            return Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build());
+        }
+        try {
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(mapper.writeValueAsString(body))
+                    .build());
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+    }
+
+    private DailyReport report(Map<String, Integer> totals) {
+        Map<String, HamsterStats> stats = new HashMap<>();
+        totals.forEach((id, rounds) -> {
+            HamsterStats hs = new HamsterStats(id);
+            hs.addRounds(rounds);
+            stats.put(id, hs);
+        });
+        return new DailyReport(date, stats);
+    }
+
+    private HamsterHourlyStats hourly(String hamsterId, int... rounds) {
+        return new HamsterHourlyStats(date, hamsterId, 720, rounds);
+    }
+}
@@ -0,0 +1,124 @@
+package com.hamsterhub.tracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hamsterhub.tracker.config.ReportProperties;
+import com.hamsterhub.tracker.engine.DailyStatsExported;
+import com.hamsterhub.tracker.engine.ReportGenerator;
+import com.hamsterhub.tracker.model.DailyReport;
+import com.hamsterhub.tracker.model.HamsterDayStats;
+import com.hamsterhub.tracker.model.HamsterHourlyStats;
+import com.hamsterhub.tracker.model.HamsterStats;
+import com.hamsterhub.tracker.repository.DailyStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DailyReportServiceTest {
+
+    private final ZoneId zone = ZoneId.of("Europe/Moscow");
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private final LocalDate yesterday = LocalDate.now(zone).minusDays(1);
+    private final DailyStatsRepository repo = mock(DailyStatsRepository.class);
+    private final ReportGenerator generator = mock(ReportGenerator.class);
+    private final DailyReportService service =
+            new DailyReportService(generator, repo, zone, new ReportProperties(1_000, 1_000, 100), mapper);
+
+    @Test
+    void pastDay_isLoadedOnceThenServedFromCache() {
+        DailyReport report = report(yesterday, 3);
+        when(repo.loadReport(yesterday)).thenReturn(Optional.of(report));
+
+        assertThat(service.findDaily(yesterday).block()).isSameAs(report);
+        assertThat(service.findDaily(yesterday).block()).isSameAs(report);
+
+        verify(repo, times(1)).loadReport(yesterday);
+        assertThat(service.pastReports().stats().hitCount()).isEqualTo(1);
+        assertThat(service.pastReports().stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void export_invalidatesRewrittenDate() {
+        when(repo.loadReport(yesterday)).thenReturn(Optional.of(report(yesterday, 1)));
+        service.findDaily(yesterday).block();
+
+        service.onExported(new DailyStatsExported(Set.of(yesterday)));
+        service.findDaily(yesterday).block();
+
+        verify(repo, times(2)).loadReport(yesterday);
+    }
+
+    @Test
+    void dayMissingInDatabase_isNotCached() {
+        DailyReport inMemory = report(yesterday, 1);
+        when(repo.loadReport(yesterday)).thenReturn(Optional.empty());
+        when(generator.generate(yesterday)).thenReturn(inMemory);
+
+        assertThat(service.findDaily(yesterday).block()).isSameAs(inMemory);
+        service.findDaily(yesterday).block();
+
+        verify(repo, times(2)).loadReport(yesterday);
+        assertThat(service.pastReports().estimatedSize()).isZero();
+    }
+
+    @Test
+    void cacheIsBoundedByHamsterRows() {
+        for (int i = 1; i <= 5; i++) {
+            LocalDate day = yesterday.minusDays(i);
+            when(repo.loadReport(day)).thenReturn(Optional.of(report(day, 400)));
+            service.findDaily(day).block();
+        }
+        service.pastReports().cleanUp();
+
+        assertThat(service.pastReports().policy().eviction().orElseThrow().weightedSize().orElseThrow())
+                .isLessThanOrEqualTo(1_000);
+    }
+
+    @Test
+    void leaderboard_pastDayFromDatabase_todayFromMemory() {
+        LocalDate today = yesterday.plusDays(1);
+        List<HamsterDayStats> pastTop = List.of(new HamsterDayStats(yesterday, "ham-1", 30, true));
+        List<HamsterDayStats> todayTop = List.of(new HamsterDayStats(today, "ham-2", 4, false));
+        when(repo.loadTop(yesterday, 1)).thenReturn(pastTop);
+        when(generator.leaderboard(today, 1)).thenReturn(todayTop);
+
+        assertThat(service.leaderboard(yesterday, 1).block()).isEqualTo(pastTop);
+        assertThat(service.leaderboard(today, 1).block()).isEqualTo(todayTop);
+        verify(repo, never()).loadTop(today, 1);
+    }
+
+    @Test
+    void hourly_pastDayFromDatabase_fallsBackToMemoryUntilExported() {
+        LocalDate today = yesterday.plusDays(1);
+        List<HamsterHourlyStats> todayRows = List.of(new HamsterHourlyStats(today, "ham-1", 60, new int[24]));
+        List<HamsterHourlyStats> notExported = List.of(new HamsterHourlyStats(yesterday, "ham-1", 60, new int[24]));
+        when(repo.loadHourly(yesterday, "ham-1")).thenReturn(List.of());
+        when(generator.hourly(yesterday, "ham-1")).thenReturn(notExported);
+        when(generator.hourly(today, null)).thenReturn(todayRows);
+
+        assertThat(service.hourly(yesterday, "ham-1").block()).isEqualTo(notExported);
+        assertThat(service.hourly(today, null).block()).isEqualTo(todayRows);
+        verify(repo, never()).loadHourly(today, null);
+    }
+
+    private static DailyReport report(LocalDate date, int hamsters) {
+        Map<String, HamsterStats> stats = new HashMap<>();
+        for (int i = 0; i < hamsters; i++) {
+            stats.put("ham-" + i, new HamsterStats("ham-" + i, i, i > 10));
+        }
+        return new DailyReport(date, stats);
+    }
+}
@@ -0,0 +1,121 @@
+package com.hamsterhub.tracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hamsterhub.tracker.config.ClusterProperties;
+import com.hamsterhub.tracker.engine.ClusterRing;
+import com.hamsterhub.tracker.model.EventWrapper;
+import com.hamsterhub.tracker.model.IngestResult;
+import hamsterhub.common.events.WheelSpin;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventForwarderTest {
+
+    private static final String A = "http://localhost:8081";
+    private static final String B = "http://localhost:8082";
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ClusterProperties props = new ClusterProperties(true, A, List.of(A, B), 16, 3, 10, 1_000L, 5L);
+    private final ClusterRing ring = new ClusterRing(props);
+    private final int peer = ring.nodes().indexOf(B);
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<String> batchHeaders = new CopyOnWriteArrayList<>();
+    private final List<Long> delivered = new CopyOnWriteArrayList<>();
+    private final CountDownLatch allDelivered = new CountDownLatch(3);
+    private final AtomicInteger calls = new AtomicInteger();
+    private EventForwarder forwarder;
+
+    @AfterEach
+    void tearDown() {
+        if (forwarder != null) {
+            forwarder.stop();
+        }
+    }
+
+    @Test
+    void offer_rejectsWhenPeerQueueIsFull() {
+        forwarder = new EventForwarder(ring, props, WebClient.builder(), registry);
+
+        assertThat(forwarder.offer(peer, spin(1))).isTrue();
+        assertThat(forwarder.offer(peer, spin(2))).isTrue();
+        assertThat(forwarder.offer(peer, spin(3))).isTrue();
+        assertThat(forwarder.offer(peer, spin(4))).isFalse();
+    }
+
+    // первый ответ принимает префикс, потом узел недоступен: остаток дошлётся по порядку и без повторов
+    @Test
+    void deliver_resendsOnlyTheUnacceptedTail_inOrder() throws InterruptedException {
+        forwarder = new EventForwarder(ring, props, WebClient.builder().exchangeFunction(request -> {
+            requests.add(request.url().toString());
+            batchHeaders.add(request.headers().getFirst(EventForwarder.BATCH_HEADER));
+            return switch (calls.incrementAndGet()) {
+                case 1 -> accept(request, 1);
+                case 2 -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+                default -> accept(request, Integer.MAX_VALUE);
+            };
+        }), registry);
+        for (long i = 1; i <= 3; i++) {
+            forwarder.offer(peer, spin(i));
+        }
+
+        forwarder.start();
+
+        assertThat(allDelivered.await(5, TimeUnit.SECONDS)).isTrue();
+        // дожидаемся отправителя: счётчики он пишет уже после ответа
+        forwarder.stop();
+        assertThat(delivered).containsExactly(5_000L, 10_000L, 15_000L);
+        assertThat(requests).hasSize(3).containsOnly(B + "/cluster/events");
+        // одна пачка: номер тот же, смещение — начало недоставленного остатка
+        assertThat(batchHeaders).extracting(header -> header.substring(header.indexOf(':') + 1))
+                .containsExactly("1:0", "1:1", "1:1");
+        assertThat(registry.get("tracker.cluster.forwarded").tag("peer", B).counter().count()).isEqualTo(3);
+        assertThat(registry.get("tracker.cluster.forward.retries").tag("peer", B).counter().count()).isEqualTo(2);
+    }
+
+    // тело запроса — те же EventWrapper; принимаем не больше limit событий
+    private Mono<ClientResponse> accept(ClientRequest request, int limit) {
+        return Mono.fromCallable(() -> {
+            List<EventWrapper> events = mapper.readValue(body(request),
+                    mapper.getTypeFactory().constructCollectionType(List.class, EventWrapper.class));
+            int accepted = Math.min(limit, events.size());
+            for (EventWrapper event : events.subList(0, accepted)) {
+                delivered.add(((WheelSpin) event.event()).durationMs());
+                allDelivered.countDown();
+            }
+            return ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(mapper.writeValueAsString(new IngestResult(accepted, events.size() - accepted)))
+                    .build();
+        });
+    }
+
+    private static String body(ClientRequest request) {
+        MockClientHttpRequest capture = new MockClientHttpRequest(request.method(), request.url());
+        request.writeTo(capture, ExchangeStrategies.withDefaults()).block();
+        return capture.getBodyAsString().block();
+    }
+
+    private static EventWrapper spin(long i) {
+        return new EventWrapper(new WheelSpin("wheel-" + i, i * 5_000L), "s-1", 1_000L + i);
+    }
+}
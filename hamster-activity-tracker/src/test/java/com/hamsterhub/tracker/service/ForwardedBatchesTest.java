@@ -0,0 +1,71 @@
+package com.hamsterhub.tracker.service;
+
+import com.hamsterhub.tracker.model.EventWrapper;
+import com.hamsterhub.tracker.model.IngestResult;
+import hamsterhub.common.events.WheelSpin;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ForwardedBatchesTest {
+
+    private static final String B = "http://localhost:8082";
+
+    private final ForwardedBatches batches = new ForwardedBatches();
+    private final List<Long> emitted = new ArrayList<>();
+    private final List<EventWrapper> batch = spins(3);
+
+    // владелец применил пачку, ответ не дошёл до таймаута — отправитель шлёт её снова целиком
+    @Test
+    void resendAfterTimeout_isAcknowledgedWithoutApplyingTwice() {
+        batches.accept(B, 7L, 1L, 0, batch, this::emitAll);
+
+        ForwardedBatches.Accepted resent = batches.accept(B, 7L, 1L, 0, batch, this::emitAll);
+
+        assertThat(resent.result()).isEqualTo(new IngestResult(3, 0));
+        assertThat(resent.skipped()).isEqualTo(3);
+        assertThat(emitted).containsExactly(1L, 2L, 3L);
+    }
+
+    // принят префикс из одного события, ответ потерян: из повтора применяется только хвост
+    @Test
+    void resendAfterLostPartialAccept_appliesOnlyTheTail() {
+        batches.accept(B, 7L, 1L, 0, batch, events -> emitAll(events.subList(0, 1)));
+
+        ForwardedBatches.Accepted resent = batches.accept(B, 7L, 1L, 0, batch, this::emitAll);
+        ForwardedBatches.Accepted tail = batches.accept(B, 7L, 1L, 1, batch.subList(1, 3), this::emitAll);
+
+        assertThat(resent.result()).isEqualTo(new IngestResult(3, 0));
+        assertThat(resent.skipped()).isEqualTo(1);
+        assertThat(tail.result()).isEqualTo(new IngestResult(2, 0));
+        assertThat(emitted).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void nextBatchAndRestartedSender_startFromScratch() {
+        batches.accept(B, 7L, 1L, 0, batch, this::emitAll);
+        batches.accept(B, 7L, 2L, 0, batch, this::emitAll);
+        // тот же номер пачки, но отправитель перезапущен
+        batches.accept(B, 8L, 1L, 0, batch, this::emitAll);
+        // запоздавший дубль уже принятой пачки
+        ForwardedBatches.Accepted stale = batches.accept(B, 8L, 0L, 0, batch, this::emitAll);
+
+        assertThat(stale.result()).isEqualTo(new IngestResult(3, 0));
+        assertThat(emitted).hasSize(9);
+    }
+
+    private int emitAll(List<EventWrapper> events) {
+        events.forEach(event -> emitted.add(((WheelSpin) event.event()).durationMs()));
+        return events.size();
+    }
+
+    private static List<EventWrapper> spins(int n) {
+        return LongStream.rangeClosed(1, n)
+                .mapToObj(i -> new EventWrapper(new WheelSpin("wheel-" + i, i), "s-1", 1_000L + i))
+                .toList();
+    }
+}
@@ -0,0 +1,73 @@
+package com.hamsterhub.tracker.service;
+
+import com.hamsterhub.tracker.config.ReportProperties;
+import com.hamsterhub.tracker.engine.ReportGenerator;
+import com.hamsterhub.tracker.model.HamsterDayStats;
+import com.hamsterhub.tracker.repository.DailyStatsRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RangeReportServiceTest {
+
+    private final ZoneId zone = ZoneId.of("Europe/Moscow");
+    private final LocalDate today = LocalDate.now(zone);
+    private final LocalDate yesterday = today.minusDays(1);
+    private final DailyStatsRepository repo = mock(DailyStatsRepository.class);
+    private final ReportGenerator generator = mock(ReportGenerator.class);
+    private final RangeReportService service =
+            new RangeReportService(generator, repo, zone, new ReportProperties(1_000, 2, 100));
+
+    @Test
+    void stream_pagesPastDaysByKeyAndAppendsToday() {
+        HamsterDayStats a = row(yesterday, "ham-a", 5);
+        HamsterDayStats b = row(yesterday, "ham-b", 20);
+        HamsterDayStats c = row(yesterday, "ham-c", 1);
+        when(repo.loadRangePage(yesterday, yesterday, null, null, 2)).thenReturn(List.of(a, b));
+        when(repo.loadRangePage(yesterday, yesterday, null, b, 2)).thenReturn(List.of(c));
+        when(generator.rows(today, null)).thenReturn(List.of(row(today, "ham-a", 3), row(today, "ham-b", 11)));
+
+        List<HamsterDayStats> rows = service.stream(yesterday, today, null).collectList().block();
+
+        assertThat(rows).containsExactly(a, b, c, row(today, "ham-a", 3), row(today, "ham-b", 11));
+        verify(repo, times(2)).loadRangePage(eq(yesterday), eq(yesterday), isNull(), any(), eq(2));
+    }
+
+    @Test
+    void stream_requestsNextPageOnlyOnDemand() {
+        when(repo.loadRangePage(yesterday, yesterday, null, null, 2))
+                .thenReturn(List.of(row(yesterday, "ham-a", 1), row(yesterday, "ham-b", 2)));
+
+        List<HamsterDayStats> first = service.stream(yesterday, yesterday, null).take(1).collectList().block();
+
+        assertThat(first).extracting(HamsterDayStats::hamsterId).containsExactly("ham-a");
+        verify(repo, times(1)).loadRangePage(eq(yesterday), eq(yesterday), isNull(), any(), eq(2));
+    }
+
+    @Test
+    void stream_todayOnly_readsMemoryWithoutDatabase() {
+        when(generator.rows(today, "ham-b")).thenReturn(List.of(row(today, "ham-b", 4)));
+
+        List<HamsterDayStats> rows = service.stream(today, today.plusDays(3), "ham-b").collectList().block();
+
+        assertThat(rows).containsExactly(row(today, "ham-b", 4));
+        verify(repo, never()).loadRangePage(any(), any(), any(), any(), anyInt());
+    }
+
+    private static HamsterDayStats row(LocalDate date, String hamsterId, int rounds) {
+        return new HamsterDayStats(date, hamsterId, rounds, rounds > 10);
+    }
+}
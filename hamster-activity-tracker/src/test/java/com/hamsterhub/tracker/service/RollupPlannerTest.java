@@ -0,0 +1,66 @@
+package com.hamsterhub.tracker.service;
+
+import com.hamsterhub.tracker.repository.Rollup;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollupPlannerTest {
+
+    @Test
+    void plan_usesMonthsThenWeeksThenDays() {
+        // 2024-01-29 — понедельник, 2024-04-01 — понедельник
+        List<RollupPlanner.Segment> plan = RollupPlanner.plan(LocalDate.of(2024, 1, 27), LocalDate.of(2024, 4, 10));
+
+        assertThat(plan).containsExactly(
+                new RollupPlanner.Segment(Rollup.DAY, LocalDate.of(2024, 1, 27), LocalDate.of(2024, 1, 31)),
+                new RollupPlanner.Segment(Rollup.MONTH, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 3, 1)),
+                new RollupPlanner.Segment(Rollup.WEEK, LocalDate.of(2024, 4, 1), LocalDate.of(2024, 4, 1)),
+                new RollupPlanner.Segment(Rollup.DAY, LocalDate.of(2024, 4, 8), LocalDate.of(2024, 4, 10)));
+    }
+
+    @Test
+    void plan_shortRangeReadsDays() {
+        assertThat(RollupPlanner.plan(LocalDate.of(2024, 6, 4), LocalDate.of(2024, 6, 6))).containsExactly(
+                new RollupPlanner.Segment(Rollup.DAY, LocalDate.of(2024, 6, 4), LocalDate.of(2024, 6, 6)));
+    }
+
+    @Test
+    void plan_coversEveryDayExactlyOnce() {
+        LocalDate base = LocalDate.of(2023, 12, 1);
+        for (int start = 0; start < 70; start += 3) {
+            for (int length = 0; length < 120; length += 7) {
+                LocalDate from = base.plusDays(start);
+                LocalDate to = from.plusDays(length);
+                List<LocalDate> covered = RollupPlanner.plan(from, to).stream()
+                        .flatMap(segment -> days(segment).stream())
+                        .toList();
+
+                assertThat(covered).doesNotHaveDuplicates();
+                assertThat(new HashSet<>(covered)).isEqualTo(Set.copyOf(from.datesUntil(to.plusDays(1)).toList()));
+            }
+        }
+    }
+
+    private static List<LocalDate> days(RollupPlanner.Segment segment) {
+        LocalDate end = switch (segment.rollup()) {
+            case DAY -> segment.to().plusDays(1);
+            case WEEK -> segment.to().plusWeeks(1);
+            case MONTH -> segment.to().plusMonths(1);
+        };
+        List<LocalDate> days = segment.from().datesUntil(end).toList();
+        if (segment.rollup() == Rollup.WEEK) {
+            assertThat(segment.from().getDayOfWeek()).isEqualTo(DayOfWeek.MONDAY);
+        }
+        if (segment.rollup() == Rollup.MONTH) {
+            assertThat(segment.from().getDayOfMonth()).isEqualTo(1);
+        }
+        return days;
+    }
+}
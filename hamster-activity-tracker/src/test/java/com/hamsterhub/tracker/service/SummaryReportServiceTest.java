@@ -0,0 +1,49 @@
+package com.hamsterhub.tracker.service;
+
+import com.hamsterhub.tracker.engine.ReportGenerator;
+import com.hamsterhub.tracker.model.HamsterDayStats;
+import com.hamsterhub.tracker.model.HamsterPeriodStats;
+import com.hamsterhub.tracker.repository.DailyStatsRepository;
+import com.hamsterhub.tracker.repository.Rollup;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SummaryReportServiceTest {
+
+    private final ZoneId zone = ZoneId.of("Europe/Moscow");
+    private final LocalDate today = LocalDate.now(zone);
+    private final DailyStatsRepository repo = mock(DailyStatsRepository.class);
+    private final ReportGenerator generator = mock(ReportGenerator.class);
+    private final SummaryReportService service = new SummaryReportService(generator, repo, zone);
+
+    @Test
+    void summary_addsRollupSegmentsAndTodayFromMemory() {
+        LocalDate from = today.minusMonths(3);
+        when(repo.sumRollup(eq(Rollup.MONTH), any(), any(), isNull()))
+                .thenReturn(List.of(new HamsterPeriodStats("ham-1", 100, 20)));
+        when(repo.sumRollup(eq(Rollup.DAY), any(), any(), isNull()))
+                .thenReturn(List.of(new HamsterPeriodStats("ham-2", 1, 0)));
+        when(generator.rows(today, null)).thenReturn(List.of(
+                new HamsterDayStats(today, "ham-1", 15, true)));
+
+        List<HamsterPeriodStats> summary = service.summary(from, today, null).block();
+
+        // полные месяцы идут одним куском, поэтому месячная сумма ham-1 учтена один раз
+        assertThat(summary).first().isEqualTo(new HamsterPeriodStats("ham-1", 115, 21));
+        assertThat(summary).extracting(HamsterPeriodStats::hamsterId).containsExactly("ham-1", "ham-2");
+        for (RollupPlanner.Segment segment : RollupPlanner.plan(from, today.minusDays(1))) {
+            verify(repo).sumRollup(segment.rollup(), segment.from(), segment.to(), null);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.DayStatsProperties;
+import com.hamsterhub.tracker.config.ExportProperties;
+import com.hamsterhub.tracker.config.HourlyProperties;
+import com.hamsterhub.tracker.config.ReportProperties;
+import com.hamsterhub.tracker.config.TrackerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ночная выгрузка дня в PostgreSQL: BATCH против COPY, на пустой день (INSERT) и поверх уже выгруженного (UPDATE).
+ * Замер — один вызов exportDay целиком: staging, MERGE в daily_stats/hourly_stats и свёртки.
+ * Нужна отдельная база: схема доводится миграциями Flyway, строки дня DAY и его свёрток удаляются.
+ * <pre>
+ * ./gradlew :hamster-benchmarks:jmh -Pjmh.includes=DailyStatsExportBenchmark \
+ *     -Pjmh.pgUrl='jdbc:postgresql://localhost:5432/bench?user=hamster&amp;password=hamster'
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class DailyStatsExportBenchmark {
+    private static final LocalDate DAY = LocalDate.of(1999, 1, 1);
+    private static final TrackerProperties PROPS = new TrackerProperties(
+            10, 60_000L, 250L, "0 5 0 * * *", 1, 60_000L, 60_000L, 1, "Europe/Moscow");
+
+    public enum Phase {
+        // строк дня в БД ещё нет
+        INSERT,
+        // все строки дня уже выгружены, итоги выросли
+        UPDATE
+    }
+
+    @Param({"BATCH", "COPY"})
+    ExportProperties.Mode mode;
+
+    @Param({"200000"})
+    int hamsters;
+
+    @Param({"INSERT", "UPDATE"})
+    Phase phase;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate tx;
+    private DailyStatsExporter exporter;
+    private int rounds;
+
+    @Setup(Level.Trial)
+    public void connect() {
+        String url = System.getProperty("tracker.bench.pg-url");
+        if (url == null) {
+            throw new IllegalStateException("PostgreSQL URL is not set: run with -Pjmh.pgUrl=jdbc:postgresql://...");
+        }
+        // одно соединение, как у выгрузки в проде: временная таблица staging живёт в сессии
+        dataSource = new SingleConnectionDataSource(url, true);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbc = new JdbcTemplate(dataSource);
+        tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        cleanUp();
+        if (phase == Phase.UPDATE) {
+            prepare();
+            exporter.exportDay(DAY);
+        }
+    }
+
+    // exportDay убирает день из памяти — перед каждым вызовом день наполняется заново, с большими итогами
+    @Setup(Level.Invocation)
+    public void prepare() {
+        if (phase == Phase.INSERT) {
+            cleanUp();
+        }
+        rounds++;
+        TrackerState state = new TrackerState(new ReportProperties(2_000_000, 1_000, 100),
+                new HourlyProperties(true, 60), new DayStatsProperties(DayStatsProperties.Store.HEAP));
+        for (int i = 0; i < hamsters; i++) {
+            state.statsFor(DAY, "ham-" + i).addRounds(rounds, i % (24 * 60));
+        }
+        exporter = new DailyStatsExporter(state, jdbc, tx, PROPS,
+                new ExportProperties(false, 5_000L, 1_000, 20, mode), EventJournal.disabled(), event -> { },
+                new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public void exportDay() {
+        exporter.exportDay(DAY);
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() {
+        cleanUp();
+        dataSource.destroy();
+    }
+
+    private void cleanUp() {
+        jdbc.update("DELETE FROM daily_stats WHERE date = ?", DAY);
+        jdbc.update("DELETE FROM hourly_stats WHERE date = ?", DAY);
+        jdbc.update("DELETE FROM weekly_stats WHERE week_start = date_trunc('week', ?::date)::date", DAY);
+        jdbc.update("DELETE FROM monthly_stats WHERE month_start = ?", DAY);
+    }
+}
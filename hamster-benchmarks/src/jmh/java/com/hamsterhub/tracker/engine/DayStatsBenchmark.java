@@ -0,0 +1,84 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.DayStatsProperties;
+import com.hamsterhub.tracker.config.HourlyProperties;
+import com.hamsterhub.tracker.config.ReportProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code statsFor(date, id).addRounds(n)} из нескольких шардов сразу: один хомяк — все потоки бьют в одну ячейку
+ * и в топ дня, 64 — умеренная конкуренция, 100k — ячейки почти не пересекаются, упираемся в поиск по карте дня.
+ * {@code addRounds} — путь шарда по номеру из словаря; в OFF_HEAP это прямой индекс слота без поиска.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@State(Scope.Benchmark)
+public class DayStatsBenchmark {
+    private static final LocalDate DAY = LocalDate.of(2024, 6, 1);
+
+    @Param({"1", "64", "100000"})
+    int hamsters;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    DayStatsProperties.Store store;
+
+    private TrackerState state;
+    private String[] hamsterIds;
+    private int[] hamsterNumbers;
+
+    @Setup
+    public void setUp() {
+        state = new TrackerState(new ReportProperties(1_000, 1_000, 100), new HourlyProperties(true, 60),
+                new DayStatsProperties(store));
+        hamsterIds = new String[hamsters];
+        hamsterNumbers = new int[hamsters];
+        for (int i = 0; i < hamsters; i++) {
+            hamsterIds[i] = "ham-" + i;
+            hamsterNumbers[i] = state.internHamster(hamsterIds[i]);
+            state.statsFor(DAY, hamsterIds[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        // xorshift: у каждого потока своя последовательность, без общего Random
+        private int seed = System.identityHashCode(this) | 1;
+
+        int next(int bound) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            return (seed & Integer.MAX_VALUE) % bound;
+        }
+    }
+
+    // по одному кругу: за прогон итог ячейки не переполнит int
+    @Benchmark
+    public void statsForAddRounds(Cursor cursor) {
+        state.statsFor(DAY, hamsterIds[cursor.next(hamsters)]).addRounds(1);
+    }
+
+    @Benchmark
+    public void addRounds(Cursor cursor) {
+        int i = cursor.next(hamsters);
+        state.addRounds(DAY, hamsterNumbers[i], 1, i % HourlyProperties.MINUTES_PER_DAY);
+    }
+}
@@ -0,0 +1,130 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.DayStatsProperties;
+import com.hamsterhub.tracker.config.EventBusProperties;
+import com.hamsterhub.tracker.config.HourlyProperties;
+import com.hamsterhub.tracker.config.ReportProperties;
+import com.hamsterhub.tracker.config.TrackerProperties;
+import com.hamsterhub.tracker.model.EventWrapper;
+import hamsterhub.common.events.HamsterEnter;
+import hamsterhub.common.events.HamsterExit;
+import hamsterhub.common.events.SensorFailure;
+import hamsterhub.common.events.WheelSpin;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code EventProcessor.handle} по типам событий, как его вызывает поток шарда: без очереди и журнала,
+ * но с интернированием id, обновлением «последней активности», статистикой дня и логированием.
+ * Все замеры в пределах одного дня, карта дня не растёт.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class EventProcessorBenchmark {
+    private static final int WHEELS = 1024;
+    // у колеса кольцо дедупликации на 8 последних вращений: 16 разных длительностей по кругу всегда проходят
+    private static final int SPINS_PER_WHEEL = 16;
+
+    private TrackerState state;
+    private EventProcessor processor;
+    private EventWrapper[] enters;
+    private EventWrapper[] exits;
+    private EventWrapper[] failures;
+    private EventWrapper[] spins;
+    private String[] wheelIds;
+    private String[] sensorIds;
+    private int[] wheels;
+    private int[] hamsters;
+    private long receivedAt;
+    private int next;
+    private int nextSpin;
+
+    @Setup
+    public void setUp() {
+        TrackerProperties props = new TrackerProperties(
+                10, 60_000L, 250L, "0 5 0 * * *", 1, 3_600_000L, 1_800_000L, 1, "UTC");
+        EventBus bus = new EventBus(new EventBusProperties(
+                1024, EventBusProperties.OverloadPolicy.REJECT, 503, 1, 0L), props);
+        state = new TrackerState(new ReportProperties(2_000_000, 1_000, 100), new HourlyProperties(true, 60),
+                new DayStatsProperties(DayStatsProperties.Store.HEAP));
+        processor = new EventProcessor(bus, state, props, EventJournal.disabled(), SnapshotStore.disabled(),
+                new SimpleMeterRegistry());
+        receivedAt = LocalDate.of(2024, 6, 1).atTime(LocalTime.NOON).atZone(TrackerState.ZONE)
+                .toInstant().toEpochMilli();
+
+        enters = new EventWrapper[WHEELS];
+        exits = new EventWrapper[WHEELS];
+        failures = new EventWrapper[WHEELS];
+        wheelIds = new String[WHEELS];
+        sensorIds = new String[WHEELS];
+        wheels = new int[WHEELS];
+        hamsters = new int[WHEELS];
+        spins = new EventWrapper[WHEELS * SPINS_PER_WHEEL];
+        for (int i = 0; i < WHEELS; i++) {
+            wheelIds[i] = "wheel-" + i;
+            sensorIds[i] = "sensor-" + i;
+            enters[i] = new EventWrapper(new HamsterEnter("ham-" + i, wheelIds[i]), sensorIds[i], receivedAt);
+            exits[i] = new EventWrapper(new HamsterExit("ham-" + i, wheelIds[i]), sensorIds[i], receivedAt);
+            failures[i] = new EventWrapper(new SensorFailure(sensorIds[i], 500), sensorIds[i], receivedAt);
+            processor.handle(enters[i]);
+            wheels[i] = state.lookupWheel(wheelIds[i]);
+            hamsters[i] = state.lookupHamster("ham-" + i);
+        }
+        // подряд идут разные колёса, поэтому одно колесо получает следующую длительность через WHEELS вызовов
+        for (int round = 0; round < SPINS_PER_WHEEL; round++) {
+            for (int i = 0; i < WHEELS; i++) {
+                spins[round * WHEELS + i] = new EventWrapper(
+                        new WheelSpin(wheelIds[i], 5_000L + round), sensorIds[i], receivedAt);
+            }
+        }
+    }
+
+    // хомяк уже на колесе: повторный Enter идемпотентен
+    @Benchmark
+    public void enter() {
+        processor.handle(enters[nextIndex()]);
+    }
+
+    // после Exit колесо занимается напрямую, чтобы следующий Exit по нему снова шёл по основной ветке
+    @Benchmark
+    public void exit() {
+        int i = nextIndex();
+        processor.handle(exits[i]);
+        state.occupyWheel(wheels[i], hamsters[i]);
+    }
+
+    // длительность не совпадает ни с одной из колец дедупликации, поэтому круги начисляются;
+    // события готовы заранее, чтобы -prof gc показывал аллокации самого handle
+    @Benchmark
+    public void spin() {
+        nextSpin = (nextSpin + 1) % spins.length;
+        processor.handle(spins[nextSpin]);
+    }
+
+    @Benchmark
+    public void failure() {
+        processor.handle(failures[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (WHEELS - 1);
+        return next;
+    }
+}
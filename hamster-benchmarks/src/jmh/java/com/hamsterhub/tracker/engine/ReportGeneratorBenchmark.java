@@ -0,0 +1,53 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.DayStatsProperties;
+import com.hamsterhub.tracker.config.HourlyProperties;
+import com.hamsterhub.tracker.config.ReportProperties;
+import com.hamsterhub.tracker.model.DailyReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ReportGeneratorImpl#generate(LocalDate)} — отчёт за день в памяти целиком.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class ReportGeneratorBenchmark {
+    private static final LocalDate DAY = LocalDate.of(2024, 6, 1);
+
+    @Param({"10000", "100000", "1000000"})
+    int hamsters;
+
+    private ReportGeneratorImpl generator;
+
+    @Setup
+    public void setUp() {
+        TrackerState state = new TrackerState(new ReportProperties(2_000_000, 1_000, 100), new HourlyProperties(true, 60),
+                new DayStatsProperties(DayStatsProperties.Store.HEAP));
+        for (int i = 0; i < hamsters; i++) {
+            state.statsFor(DAY, "ham-" + i).addRounds(i % 40);
+        }
+        generator = new ReportGeneratorImpl(state);
+    }
+
+    @Benchmark
+    public DailyReport generate() {
+        return generator.generate(DAY);
+    }
+}
@@ -0,0 +1,64 @@
+package com.hamsterhub.tracker.engine;
+
+import com.hamsterhub.tracker.config.DayStatsProperties;
+import com.hamsterhub.tracker.config.HourlyProperties;
+import com.hamsterhub.tracker.config.ReportProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TrackerState#shouldAcceptSpin(int, long, long, long)}: кольцо колеса пишет только его шард,
+ * поэтому замер однопоточный. Колёса перебираются по кругу, как при потоке событий с многих колёс.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class SpinDeduplicationBenchmark {
+    private static final int WHEELS = 1024;
+    private static final long WINDOW_MS = 250L;
+    private static final long TS = 1_717_236_000_000L;
+
+    private TrackerState state;
+    private int wheel;
+    private long duration = 5_000L;
+
+    @Setup
+    public void setUp() {
+        state = new TrackerState(new ReportProperties(2_000_000, 1_000, 100), new HourlyProperties(true, 60),
+                new DayStatsProperties(DayStatsProperties.Store.HEAP));
+        for (int i = 0; i < WHEELS; i++) {
+            state.internWheel("wheel-" + i);
+            state.shouldAcceptSpin(i, 5_000L, TS, WINDOW_MS);
+        }
+    }
+
+    // новое вращение: все слоты кольца не совпали, отпечаток записан
+    @Benchmark
+    public boolean acceptNew() {
+        return state.shouldAcceptSpin(nextWheel(), ++duration, TS, WINDOW_MS);
+    }
+
+    // то же вращение от соседнего датчика колеса
+    @Benchmark
+    public boolean rejectDuplicate() {
+        return state.shouldAcceptSpin(nextWheel(), 5_000L, TS + 100L, WINDOW_MS);
+    }
+
+    private int nextWheel() {
+        wheel = (wheel + 1) & (WHEELS - 1);
+        return wheel;
+    }
+}
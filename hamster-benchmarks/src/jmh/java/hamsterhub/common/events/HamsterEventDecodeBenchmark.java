@@ -0,0 +1,79 @@
+package hamsterhub.common.events;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор {@link HamsterEvent} из JSON по полю type, как на входе трекера. Маппер настроен как в Spring Boot:
+ * неизвестные поля не ошибка. Пачка — JSON-массив, как в {@code POST /events/batch}; время — на одно событие.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class HamsterEventDecodeBenchmark {
+    private static final int BATCH = 256;
+
+    @Param({"WheelSpin", "HamsterEnter", "HamsterExit", "SensorFailure"})
+    String type;
+
+    private ObjectReader single;
+    private ObjectReader array;
+    private byte[] event;
+    private byte[] batch;
+
+    @Setup
+    public void setUp() {
+        JsonMapper mapper = JsonMapper.builder()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        single = mapper.readerFor(HamsterEvent.class);
+        array = mapper.readerFor(HamsterEvent[].class);
+        event = json(type, 17).getBytes(StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < BATCH; i++) {
+            sb.append(i == 0 ? "" : ",").append(json(type, i));
+        }
+        batch = sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public HamsterEvent decode() throws IOException {
+        return single.readValue(event);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public HamsterEvent[] decodeBatch() throws IOException {
+        return array.readValue(batch);
+    }
+
+    private static String json(String type, int i) {
+        return switch (type) {
+            case "WheelSpin" -> "{\"type\":\"WheelSpin\",\"wheelId\":\"wheel-%d\",\"durationMs\":15000}".formatted(i);
+            case "HamsterEnter", "HamsterExit" ->
+                    "{\"type\":\"%s\",\"hamsterId\":\"ham-%d\",\"wheelId\":\"wheel-%d\"}".formatted(type, i, i);
+            case "SensorFailure" -> "{\"type\":\"SensorFailure\",\"sensorId\":\"sensor-%d\",\"errorCode\":500}".formatted(i);
+            default -> throw new IllegalArgumentException(type);
+        };
+    }
+}
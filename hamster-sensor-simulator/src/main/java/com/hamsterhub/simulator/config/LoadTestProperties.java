@@ -0,0 +1,36 @@
+package com.hamsterhub.simulator.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Нагрузочный режим: вместо тиков симуляции трекер засыпается событиями ступенями нарастающей нагрузки.
+ */
+@ConfigurationProperties(prefix = "simulator.load")
+public record LoadTestProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("OPEN") Mode mode,
+        // OPEN: событий в секунду на первой ступени, шаг и потолок
+        @DefaultValue("1000") int startRate,
+        @DefaultValue("1000") int rateStep,
+        @DefaultValue("50000") int maxRate,
+        // CLOSED: запросов в полёте
+        @DefaultValue("16") int startConcurrency,
+        @DefaultValue("16") int concurrencyStep,
+        @DefaultValue("1024") int maxConcurrency,
+        @DefaultValue("30") int stepSeconds,
+        // начало каждой ступени в статистику не идёт
+        @DefaultValue("5") int warmupSeconds,
+        // ступень провалена: p99 (с поправкой) выше, доля ошибок выше или достигнуто меньше 90% целевого темпа
+        @DefaultValue("500") long sloP99Ms,
+        @DefaultValue("0.01") double maxErrorRate,
+        @DefaultValue("2048") int maxConnections,
+        @DefaultValue("load-report.json") String reportFile
+) {
+    public enum Mode {
+        // темп задан: запрос уходит в назначенное время, сколько бы ни висело ответов
+        OPEN,
+        // задано число запросов в полёте: следующий уходит, когда пришёл ответ
+        CLOSED
+    }
+}
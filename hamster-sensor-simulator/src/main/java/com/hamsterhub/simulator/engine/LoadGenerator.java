@@ -0,0 +1,327 @@
+package com.hamsterhub.simulator.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hamsterhub.simulator.config.LoadTestProperties;
+import com.hamsterhub.simulator.config.SimulatorProperties;
+import com.hamsterhub.simulator.model.Sensor;
+import com.hamsterhub.simulator.model.Wheel;
+import com.hamsterhub.simulator.statuses.SensorStatus;
+import hamsterhub.common.events.HamsterEnter;
+import hamsterhub.common.events.HamsterEvent;
+import hamsterhub.common.events.WheelSpin;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Нагрузочный режим ({@code simulator.load.enabled}). Сажает по хомяку на каждое колесо, затем шлёт WheelSpin
+ * через датчики колёс по кругу тем же {@link Sensor#send}, что и симуляция, но без ограничения 1 событие/сек.
+ * Нагрузка растёт ступенями до первой ступени, не уложившейся в SLO; итог пишется в {@code reportFile}.
+ * <p>
+ * OPEN: у каждого запроса есть назначенное время, задержка считается от него — если генератор или пул соединений
+ * не успели отправить вовремя, ожидание входит в задержку (поправка на coordinated omission).
+ * CLOSED: задержки от фактической отправки, поправка — {@link Histogram#copyCorrectedForCoordinatedOmission}
+ * с ожидаемым интервалом, равным медиане ступени.
+ */
+@Component
+public class LoadGenerator {
+    private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final long MAX_LATENCY_US = TimeUnit.MINUTES.toMicros(1);
+    private static final long DRAIN_TIMEOUT_MS = 10_000L;
+
+    private final WorldState world;
+    private final SimulatorProperties simProps;
+    private final LoadTestProperties props;
+    private final WebClient trackerClient;
+    private final ObjectMapper mapper;
+
+    public LoadGenerator(WorldState world,
+                         SimulatorProperties simProps,
+                         LoadTestProperties props,
+                         WebClient trackerClient,
+                         ObjectMapper mapper) {
+        this.world = world;
+        this.simProps = simProps;
+        this.props = props;
+        this.trackerClient = trackerClient;
+        this.mapper = mapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void startIfEnabled() {
+        if (props.enabled()) {
+            Thread.ofPlatform().name("load-generator").daemon().start(this::run);
+        }
+    }
+
+    private void run() {
+        // свой пул: пул по умолчанию держит мало соединений и сам станет узким местом
+        ConnectionProvider pool = ConnectionProvider.builder("load")
+                .maxConnections(Math.max(1, props.maxConnections()))
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient client = trackerClient.mutate()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(pool)))
+                .build();
+        try {
+            EventSource source = prepare(client);
+            if (source.size() == 0) {
+                log.error("Load test aborted: no wheel has a hamster and a working sensor");
+                return;
+            }
+            Instant startedAt = Instant.now();
+            List<LoadReport.Step> steps = new ArrayList<>();
+            for (int step = 0; ; step++) {
+                LoadReport.Step result;
+                if (props.mode() == LoadTestProperties.Mode.OPEN) {
+                    int rate = props.startRate() + step * props.rateStep();
+                    if (rate > props.maxRate() || rate <= 0) {
+                        break;
+                    }
+                    result = openStep(client, source, step, rate);
+                } else {
+                    int concurrency = props.startConcurrency() + step * props.concurrencyStep();
+                    if (concurrency > props.maxConcurrency() || concurrency <= 0) {
+                        break;
+                    }
+                    result = closedStep(client, source, step, concurrency);
+                }
+                steps.add(result);
+                log.info("Load step {}: target={} concurrency={} achieved={}/s errors={} p99={}ms (corrected {}ms)",
+                        step, result.targetRate(), result.concurrency(), Math.round(result.achievedRate()),
+                        result.failed(), result.raw().p99Ms(), result.corrected().p99Ms());
+                if (!result.withinSlo()) {
+                    break;
+                }
+            }
+            double capacity = steps.stream()
+                    .filter(LoadReport.Step::withinSlo)
+                    .mapToDouble(LoadReport.Step::achievedRate)
+                    .max().orElse(0);
+            LoadReport report = new LoadReport(props.mode().name(), startedAt,
+                    world.wheels().size(), source.size(), steps, capacity);
+            Path file = Path.of(props.reportFile());
+            mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+            log.info("Load test finished: capacity {} events/s, report {}", Math.round(capacity), file.toAbsolutePath());
+        } catch (IOException e) {
+            log.error("Load report not written: {}", e.toString());
+        } finally {
+            pool.dispose();
+        }
+    }
+
+    // хомяк на каждое свободное колесо и HamsterEnter от всех его датчиков, иначе трекер не засчитает вращения
+    private EventSource prepare(WebClient client) {
+        List<Target> targets = new ArrayList<>();
+        List<Mono<Void>> enters = new ArrayList<>();
+        for (Wheel wheel : world.wheels()) {
+            String owner = wheel.owner();
+            if (owner == null) {
+                String hamsterId = world.readyHamsters().poll();
+                if (hamsterId != null && wheel.tryEnter(hamsterId)) {
+                    world.noteEnter(hamsterId, wheel);
+                    owner = hamsterId;
+                }
+            }
+            List<Sensor> sensors = wheel.sensorSnapshot().stream()
+                    .filter(s -> s.status() == SensorStatus.WORKING)
+                    .toList();
+            if (owner == null || sensors.isEmpty()) {
+                continue;
+            }
+            HamsterEnter enter = new HamsterEnter(owner, wheel.wheelId());
+            enters.add(Flux.fromIterable(sensors)
+                    .flatMap(s -> s.send(client, enter).onErrorResume(e -> Mono.empty()))
+                    .then());
+            for (int i = 0; i < sensors.size(); i++) {
+                targets.add(new Target(wheel.wheelId(), sensors.get(i), i == 0));
+            }
+        }
+        Mono.when(enters).block(Duration.ofMinutes(1));
+        return new EventSource(targets, simProps.spinSecMin(), simProps.spinSecMax());
+    }
+
+    private LoadReport.Step openStep(WebClient client, EventSource source, int step, int rate) {
+        StepStats stats = new StepStats();
+        AtomicInteger inFlight = new AtomicInteger();
+        long intervalNs = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(props.warmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(props.stepSeconds());
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNs;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = intended >= measureFrom;
+            // генератор не копит бесконечную очередь: сверх maxConcurrency в полёте — сразу отказ
+            if (inFlight.get() >= props.maxConcurrency()) {
+                stats.rejected(measured);
+                continue;
+            }
+            inFlight.incrementAndGet();
+            fire(client, source.next(), intended, measured, stats, inFlight::decrementAndGet);
+        }
+        awaitDrain(() -> inFlight.get() == 0);
+        Histogram raw = stats.raw.getIntervalHistogram();
+        Histogram corrected = stats.fromIntended.getIntervalHistogram();
+        return result(step, rate, 0, stats, raw, corrected);
+    }
+
+    private LoadReport.Step closedStep(WebClient client, EventSource source, int step, int concurrency) {
+        StepStats stats = new StepStats();
+        Semaphore slots = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(props.warmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(props.stepSeconds());
+        try {
+            while (System.nanoTime() < end) {
+                if (!slots.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                long now = System.nanoTime();
+                fire(client, source.next(), now, now >= measureFrom, stats, slots::release);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        awaitDrain(() -> slots.availablePermits() == concurrency);
+        Histogram raw = stats.raw.getIntervalHistogram();
+        long expectedIntervalUs = raw.getTotalCount() == 0 ? 0 : raw.getValueAtPercentile(50);
+        Histogram corrected = expectedIntervalUs > 0 ? raw.copyCorrectedForCoordinatedOmission(expectedIntervalUs) : raw;
+        return result(step, 0, concurrency, stats, raw, corrected);
+    }
+
+    private void fire(WebClient client, Shot shot, long intendedNs, boolean measured, StepStats stats, Runnable done) {
+        long sentNs = System.nanoTime();
+        shot.sensor().send(client, shot.event()).subscribe(
+                null,
+                e -> {
+                    stats.completed(intendedNs, sentNs, false, measured);
+                    done.run();
+                },
+                () -> {
+                    stats.completed(intendedNs, sentNs, true, measured);
+                    done.run();
+                });
+    }
+
+    private LoadReport.Step result(int step, int rate, int concurrency, StepStats stats,
+                                   Histogram raw, Histogram corrected) {
+        long ok = stats.ok.sum();
+        long failed = stats.failed.sum();
+        double achieved = ok / (double) Math.max(1, props.stepSeconds());
+        double errorRate = ok + failed == 0 ? 0 : failed / (double) (ok + failed);
+        LoadReport.Latency correctedLatency = LoadReport.Latency.of(corrected);
+        boolean withinSlo = ok > 0
+                && errorRate <= props.maxErrorRate()
+                && correctedLatency.p99Ms() <= props.sloP99Ms()
+                && (rate == 0 || achieved >= 0.9 * rate);
+        return new LoadReport.Step(step, rate, concurrency, ok, failed, achieved, errorRate,
+                LoadReport.Latency.of(raw), correctedLatency, withinSlo);
+    }
+
+    private static void awaitDrain(BooleanSupplier drained) {
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        while (!drained.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private static long micros(long nanos) {
+        return Math.min(MAX_LATENCY_US, Math.max(1L, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    // Recorder — запись из потоков ответа без блокировок, снимок забирает генератор
+    private static final class StepStats {
+        final Recorder raw = new Recorder(MAX_LATENCY_US, 3);
+        final Recorder fromIntended = new Recorder(MAX_LATENCY_US, 3);
+        final LongAdder ok = new LongAdder();
+        final LongAdder failed = new LongAdder();
+
+        // задержки пишем только для успешных ответов: быстрый 503 не должен улучшать перцентили
+        void completed(long intendedNs, long sentNs, boolean success, boolean measured) {
+            if (!measured) {
+                return;
+            }
+            if (!success) {
+                failed.increment();
+                return;
+            }
+            long now = System.nanoTime();
+            ok.increment();
+            raw.recordValue(micros(now - sentNs));
+            fromIntended.recordValue(micros(now - intendedNs));
+        }
+
+        void rejected(boolean measured) {
+            if (measured) {
+                failed.increment();
+            }
+        }
+    }
+
+    private record Target(String wheelId, Sensor sensor, boolean firstOfWheel) {
+    }
+
+    private record Shot(Sensor sensor, HamsterEvent event) {
+    }
+
+    // колёса по кругу; вращение колеса ретранслируют подряд все его датчики, как в симуляции
+    private static final class EventSource {
+        private final Target[] targets;
+        private final int spinMsMin;
+        private final int spinMsMax;
+        private HamsterEvent current;
+        private int next;
+
+        EventSource(List<Target> targets, int spinSecMin, int spinSecMax) {
+            this.targets = targets.toArray(Target[]::new);
+            // нулевое вращение трекер не засчитает; верхняя граница не ниже уже поднятой нижней
+            this.spinMsMin = Math.max(1, spinSecMin) * 1000;
+            this.spinMsMax = Math.max(spinMsMin, spinSecMax * 1000);
+        }
+
+        int size() {
+            return targets.length;
+        }
+
+        Shot next() {
+            Target target = targets[next];
+            next = (next + 1) % targets.length;
+            if (target.firstOfWheel() || current == null) {
+                current = new WheelSpin(target.wheelId(),
+                        ThreadLocalRandom.current().nextLong(spinMsMin, spinMsMax + 1L));
+            }
+            return new Shot(target.sensor(), current);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.hamsterhub.simulator.engine;
+
+import org.HdrHistogram.Histogram;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Итог нагрузочного прогона. capacity — лучший достигнутый темп среди ступеней, уложившихся в SLO.
+ */
+public record LoadReport(
+        String mode,
+        Instant startedAt,
+        int wheels,
+        int sensors,
+        List<Step> steps,
+        double capacityEventsPerSecond
+) {
+    /**
+     * Ступень: targetRate для открытой модели, concurrency — для закрытой.
+     * raw — от фактической отправки до ответа; corrected — с поправкой на coordinated omission.
+     */
+    public record Step(
+            int step,
+            int targetRate,
+            int concurrency,
+            long ok,
+            long failed,
+            double achievedRate,
+            double errorRate,
+            Latency raw,
+            Latency corrected,
+            boolean withinSlo
+    ) {
+    }
+
+    public record Latency(double p50Ms, double p90Ms, double p99Ms, double p999Ms, double maxMs) {
+
+        // гистограммы в микросекундах
+        static Latency of(Histogram h) {
+            return new Latency(ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)),
+                    ms(h.getValueAtPercentile(99)), ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()));
+        }
+
+        private static double ms(long us) {
+            return us / 1000.0;
+        }
+    }
+}
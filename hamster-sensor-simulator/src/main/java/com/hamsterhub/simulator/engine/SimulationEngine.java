@@ -1,5 +1,6 @@
 package com.hamsterhub.simulator.engine;
 
+import com.hamsterhub.simulator.config.LoadTestProperties;
 import com.hamsterhub.simulator.config.SimulatorConfig;
 import com.hamsterhub.simulator.config.SimulatorProperties;
 import com.hamsterhub.simulator.model.Wheel;
@@ -29,6 +30,7 @@ public class SimulationEngine {
 
     private final WorldState world;
     private final SimulatorProperties props;
+    private final LoadTestProperties loadProps;
     private final WebClient client;
     private final Random rnd = new Random();
     private Disposable loop;
@@ -38,9 +40,11 @@ public class SimulationEngine {
 
     public SimulationEngine(WorldState world,
                             SimulatorProperties props,
+                            LoadTestProperties loadProps,
                             WebClient trackerClient) {
         this.world = world;
         this.props = props;
+        this.loadProps = loadProps;
         this.client = trackerClient;
     }
 
@@ -51,6 +55,11 @@ public class SimulationEngine {
                 props.defaults().sensorCount()
         )).subscribeOn(loopScheduler).block();
 
+        // в нагрузочном режиме мир только строится, события шлёт LoadGenerator
+        if (loadProps.enabled()) {
+            return;
+        }
+
         wheelScheduler = Schedulers.newParallel("sim-exec", Math.max(1, props.parallelism()));
 
         loop = Flux.interval(Duration.ZERO, Duration.ofSeconds(props.tickSeconds()), loopScheduler)
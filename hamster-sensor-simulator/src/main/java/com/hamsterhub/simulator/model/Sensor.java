@@ -51,12 +51,7 @@ public final class Sensor {
             return Mono.empty();
         }
 
-        return client.post()
-                .uri("/events")
-                .header("X-Sensor-Id", id())
-                .bodyValue(event)
-                .retrieve()
-                .bodyToMono(Void.class)
+        return send(client, event)
                 .onErrorResume(e -> {
                     // логируем и молча пропускаем, чтобы не ломать цикл симуляции
                     System.err.println("Sensor " + id + " POST failed: " + e);
@@ -64,6 +59,19 @@ public final class Sensor {
                 });
     }
 
+    /**
+     * Сам POST события от имени датчика: без rate-limit и без подавления ошибок.
+     * Нагрузочному режиму нужен исход каждого запроса.
+     */
+    public Mono<Void> send(WebClient client, HamsterEvent event) {
+        return client.post()
+                .uri("/events")
+                .header("X-Sensor-Id", id())
+                .bodyValue(event)
+                .retrieve()
+                .bodyToMono(Void.class);
+    }
+
     public Mono<Void> maybeFail(WebClient client,
                                 double failPerTick,
                                 double temporaryShare,